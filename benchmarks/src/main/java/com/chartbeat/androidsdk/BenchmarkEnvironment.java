@@ -0,0 +1,46 @@
+package com.chartbeat.androidsdk;
+
+import java.io.File;
+
+/**
+ * A tracker environment where nothing runs in the background: posted tasks are
+ * dropped, so no ping is ever sent while a benchmark measures the tracker.
+ */
+final class BenchmarkEnvironment {
+    static final TaskScheduler DROP_ALL = new TaskScheduler() {
+        @Override
+        public boolean post(Runnable task) {
+            return true;
+        }
+
+        @Override
+        public boolean postDelayed(Runnable task, long delayMillis) {
+            return true;
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+        }
+
+        @Override
+        public boolean isAlive() {
+            return true;
+        }
+    };
+
+    private BenchmarkEnvironment() {
+    }
+
+    static AppInfo appInfo() {
+        return new AppInfo("12345", "benchmark.chartbeat.com", "com.chartbeat.benchmarks", 1080, 7);
+    }
+
+    static TrackerEnvironment create() {
+        File offlineQueueDirectory = new File(System.getProperty("java.io.tmpdir"), "chartbeat-benchmarks");
+        offlineQueueDirectory.mkdirs();
+
+        return new TrackerEnvironment(Clock.SYSTEM, DROP_ALL, new MemoryKeyValueStore(),
+                NetworkState.ALWAYS_CONNECTED, ForegroundState.ALWAYS_IN_FOREGROUND,
+                new PingService("Benchmark"), offlineQueueDirectory);
+    }
+}
@@ -0,0 +1,37 @@
+package com.chartbeat.androidsdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Interactions and the engagement snapshot taken for every ping.
+ */
+@State(Scope.Thread)
+public class EngagementTrackerBenchmark {
+
+    private EngagementTracker engagementTracker;
+
+    @Setup
+    public void setUp() {
+        engagementTracker = new EngagementTracker(Clock.SYSTEM);
+        engagementTracker.userEnteredView();
+    }
+
+    @Benchmark
+    public void userEngaged() {
+        engagementTracker.userEngaged();
+    }
+
+    @Benchmark
+    public long getEngagementSnapshot() {
+        return engagementTracker.getEngagementSnapshot().totalEngagement;
+    }
+
+    @Benchmark
+    public long userEngagedThenGetEngagementSnapshot() {
+        engagementTracker.userEngaged();
+        return engagementTracker.getEngagementSnapshot().totalEngagement;
+    }
+}
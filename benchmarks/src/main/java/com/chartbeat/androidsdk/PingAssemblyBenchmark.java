@@ -0,0 +1,59 @@
+package com.chartbeat.androidsdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.lang.reflect.Field;
+
+/**
+ * Building the query of a heartbeat ping for a view with all metadata set, either as
+ * the regular ping carrying only mandatory keys or as a full ping after a new view.
+ */
+@State(Scope.Thread)
+public class PingAssemblyBenchmark {
+
+    @Param({"standard", "full"})
+    public String pingMode;
+
+    private ChartBeatTracker tracker;
+    private PingParams pingParams;
+    private EngagementTracker.EngagementSnapshot snapshot;
+
+    @Setup
+    public void setUp() throws Exception {
+        tracker = new ChartBeatTracker(BenchmarkEnvironment.appInfo(), BenchmarkEnvironment.create());
+
+        tracker.trackViewImpl("/news/2018/01/article-42", "Markets & Politics: What \"next\" looks like",
+                0, 1080, 0, 1920);
+        tracker.updateSections("news,politics");
+        tracker.updateAuthors("Jane Doe,John Smith");
+        tracker.updateZones("top-story");
+        tracker.updateViewDimensions(640, 1920, 8400, 1080, 960);
+
+        // The ping mode only changes on responses, which never arrive here
+        Field field = ChartBeatTracker.class.getDeclaredField("pingParams");
+        field.setAccessible(true);
+        pingParams = (PingParams) field.get(tracker);
+
+        snapshot = new EngagementTracker.EngagementSnapshot(42, 5, true, false);
+    }
+
+    @TearDown
+    public void tearDown() {
+        tracker.stopTracker();
+    }
+
+    @Benchmark
+    public String encodePing() {
+        if ("full".equals(pingMode)) {
+            pingParams.pingReset();
+        } else {
+            pingParams.pingComplete(200);
+        }
+        return tracker.encodePing(snapshot, 2 * PingIntervalPolicy.BASE_INTERVAL_IN_SECONDS);
+    }
+}
@@ -0,0 +1,104 @@
+package com.chartbeat.androidsdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.logging.HttpLoggingInterceptor;
+
+/**
+ * A ping request going through the OkHttp interceptor chain, with logging disabled and
+ * the response served by a terminal interceptor so that no network is involved.
+ *
+ * "rebuilding" is the chain pings used to go through: HTTP logging at BASIC level,
+ * which formats its lines whether or not they are logged, followed by an interceptor
+ * copying every request to set the Host and User-Agent headers. "lean" is the chain
+ * {@link PingClient#interceptors()} now builds, with the headers already
+ * set on the request as Retrofit does.
+ */
+@State(Scope.Thread)
+public class PingClientBenchmark {
+    private static final String PING_URL = ChartbeatAPI.ENDPOINT + "/" + ChartbeatAPI.PING_PATH
+            + "?h=example.com&p=%2Fnews%2F2018%2F01%2Farticle-42&u=CB-USER-TOKEN&d=example.com&g=1234&c=42";
+    private static final String USER_AGENT = "Dalvik/2.1.0 (Linux; U; Android 8.0.0; Pixel Build/OPR3)";
+
+    @Param({"rebuilding", "lean"})
+    public String chain;
+
+    private OkHttpClient client;
+    private Request request;
+
+    @Setup
+    public void setUp() {
+        Logger.setSink(null);
+
+        Interceptor endpoint = new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                return new Response.Builder()
+                        .request(chain.request())
+                        .protocol(Protocol.HTTP_1_1)
+                        .code(202)
+                        .message("Accepted")
+                        .body(ResponseBody.create(MediaType.parse("text/plain"), new byte[0]))
+                        .build();
+            }
+        };
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder();
+        if ("rebuilding".equals(chain)) {
+            HttpLoggingInterceptor logging = new HttpLoggingInterceptor(new HttpLoggingInterceptor.Logger() {
+                @Override
+                public void log(String message) {
+                    Logger.d("PingClient", message);
+                }
+            });
+            logging.setLevel(HttpLoggingInterceptor.Level.BASIC);
+
+            builder.interceptors().add(logging);
+            builder.interceptors().add(new Interceptor() {
+                @Override
+                public Response intercept(Chain chain) throws IOException {
+                    Request original = chain.request();
+                    Request request = original.newBuilder()
+                            .header("HOST", ChartbeatAPI.HOST)
+                            .header("User-Agent", USER_AGENT)
+                            .method(original.method(), original.body())
+                            .build();
+                    return chain.proceed(request);
+                }
+            });
+            builder.interceptors().add(endpoint);
+
+            request = new Request.Builder().url(PING_URL).build();
+        } else {
+            builder.interceptors().addAll(PingClient.interceptors());
+            builder.interceptors().add(endpoint);
+
+            request = new Request.Builder()
+                    .url(PING_URL)
+                    .header("Host", ChartbeatAPI.HOST)
+                    .header("User-Agent", USER_AGENT)
+                    .build();
+        }
+        client = builder.build();
+    }
+
+    @Benchmark
+    public int ping() throws IOException {
+        Response response = client.newCall(request).execute();
+        response.body().close();
+        return response.code();
+    }
+}
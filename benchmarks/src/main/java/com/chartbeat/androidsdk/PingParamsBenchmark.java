@@ -0,0 +1,67 @@
+package com.chartbeat.androidsdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deciding which keys go into a ping: one lookup per {@link QueryKeys} key, as done
+ * for every ping.
+ */
+@State(Scope.Thread)
+public class PingParamsBenchmark {
+
+    @Param({"FIRST_PING", "STANDARD_PING", "FULL_PING", "REPEAT_PING_AFTER_CODE_500"})
+    public String pingMode;
+
+    private String[] keys;
+    private PingMode mode;
+    private PingParams pingParams;
+
+    @Setup
+    public void setUp() throws IllegalAccessException {
+        List<String> allKeys = new ArrayList<>();
+        for (Field field : QueryKeys.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class) {
+                field.setAccessible(true);
+                allKeys.add((String) field.get(null));
+            }
+        }
+        keys = allKeys.toArray(new String[allKeys.size()]);
+
+        mode = PingMode.valueOf(pingMode);
+        pingParams = new PingParams();
+        pingParams.pingMode = mode;
+        pingParams.addOneTimeParameter(QueryKeys.SCROLL_POSITION_TOP);
+        pingParams.addOneTimeParameter(QueryKeys.SECTION_G0);
+    }
+
+    @Benchmark
+    public int pingParamsIncludeParameter() {
+        int included = 0;
+        for (String key : keys) {
+            if (pingParams.includeParameter(key)) {
+                included++;
+            }
+        }
+        return included;
+    }
+
+    @Benchmark
+    public int pingModeIncludeParameter() {
+        int included = 0;
+        for (String key : keys) {
+            if (mode.includeParameter(key)) {
+                included++;
+            }
+        }
+        return included;
+    }
+}
@@ -0,0 +1,33 @@
+package com.chartbeat.androidsdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Token generation on every new view and metadata joining on every metadata update.
+ */
+@State(Scope.Thread)
+public class StringsBenchmark {
+    private static final int SESSION_TOKEN_LENGTH = 30;
+
+    private final List<String> sections = Arrays.asList("news", "politics", "world,europe", "opinion");
+
+    @Benchmark
+    public String randomChars() {
+        return SecurityUtils.randomChars(SESSION_TOKEN_LENGTH);
+    }
+
+    @Benchmark
+    public String collectionToCommaString() {
+        return StringUtils.collectionToCommaString(sections);
+    }
+
+    @Benchmark
+    public String internedCommaString() {
+        return MetadataInterner.commaString(sections);
+    }
+}
@@ -0,0 +1,32 @@
+package com.chartbeat.androidsdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The visit bookkeeping done on every interaction and every ping.
+ */
+@State(Scope.Thread)
+public class UserInfoBenchmark {
+
+    private UserInfo userInfo;
+
+    @Setup
+    public void setUp() {
+        userInfo = new UserInfo(new MemoryKeyValueStore(), BenchmarkEnvironment.DROP_ALL, Clock.SYSTEM);
+        userInfo.visited();
+    }
+
+    @Benchmark
+    public String getUserVisitFrequencyString() {
+        return userInfo.getUserVisitFrequencyString();
+    }
+
+    @Benchmark
+    public String visitedThenGetUserVisitFrequencyString() {
+        userInfo.visited();
+        return userInfo.getUserVisitFrequencyString();
+    }
+}
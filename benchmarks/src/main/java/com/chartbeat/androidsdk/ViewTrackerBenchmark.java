@@ -0,0 +1,30 @@
+package com.chartbeat.androidsdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Scroll position updates, which apps may send for every scroll event.
+ */
+@State(Scope.Thread)
+public class ViewTrackerBenchmark {
+    private static final int CONTENT_HEIGHT = 8400;
+    private static final int WINDOW_HEIGHT = 1920;
+
+    private ViewTracker viewTracker;
+    private int scrollPosition;
+
+    @Setup
+    public void setUp() {
+        viewTracker = new ViewTracker("/news/2018/01/article-42", "Article 42", "benchmark.chartbeat.com", null, "",
+                SecurityUtils.randomChars(30), new ViewDimension(0, 1080, 0, WINDOW_HEIGHT, 0), Clock.SYSTEM);
+    }
+
+    @Benchmark
+    public void updateDimension() {
+        scrollPosition = (scrollPosition + 17) % (CONTENT_HEIGHT - WINDOW_HEIGHT);
+        viewTracker.updateDimension(scrollPosition, WINDOW_HEIGHT, CONTENT_HEIGHT, 1080, scrollPosition);
+    }
+}
@@ -0,0 +1,174 @@
+package com.chartbeat.androidsdk;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+
+/**
+ * Runs a {@link PingCollector} until stopped, reporting what it received:
+ *
+ * <pre>
+ * --host ADDRESS      address to listen on (127.0.0.1)
+ * --port N            port to listen on (8080)
+ * --threads N         selector threads (one per core)
+ * --script SCRIPT     responses, see {@link ResponseScript} (200)
+ * --strict            answer 400 to pings breaking the rules
+ * --log FILE          log every ping to the file
+ * --sessions FILE     write the statistics of every session to the file as CSV on exit
+ * --duration S        seconds to run for (until interrupted)
+ * </pre>
+ *
+ * Point a tracker at it with the endpoint of a {@link PingService}, or run the load
+ * generator with {@code --endpoint http://127.0.0.1:8080}.
+ */
+public final class CollectorMain {
+    private static final long REPORT_PERIOD_MS = 10 * 1000;
+
+    private String host = "127.0.0.1";
+    private int port = 8080;
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    private ResponseScript script = ResponseScript.ALWAYS_200;
+    private boolean isStrict = false;
+    private String logFile;
+    private String sessionsFile;
+    private long durationMs = Long.MAX_VALUE;
+
+    private CollectorMain() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        CollectorMain main = new CollectorMain();
+        main.parse(args);
+        main.run();
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if ("--strict".equals(args[i])) {
+                isStrict = true;
+                continue;
+            }
+
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value of " + args[i]);
+            }
+            String value = args[++i];
+            switch (args[i - 1]) {
+                case "--host":
+                    host = value;
+                    break;
+                case "--port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "--threads":
+                    threadCount = Integer.parseInt(value);
+                    break;
+                case "--script":
+                    script = ResponseScript.parse(value);
+                    break;
+                case "--log":
+                    logFile = value;
+                    break;
+                case "--sessions":
+                    sessionsFile = value;
+                    break;
+                case "--duration":
+                    durationMs = Long.parseLong(value) * 1000;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+            }
+        }
+    }
+
+    private void run() throws IOException, InterruptedException {
+        PingLog log = logFile != null ? new PingLog(new FileOutputStream(logFile)) : null;
+        final PingCollector collector = new PingCollector(script, isStrict, log, threadCount);
+        collector.start(new InetSocketAddress(host, port));
+
+        System.out.printf("Collecting pings on %s with %d threads%s%n", collector.endpoint(), threadCount,
+                isStrict ? ", rejecting invalid ones" : "");
+
+        final Thread mainThread = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                mainThread.interrupt();
+                try {
+                    mainThread.join(5000);
+                } catch (InterruptedException e) {
+                    // Exiting anyway
+                }
+            }
+        });
+
+        CollectorStats stats = collector.stats();
+        long startTime = System.currentTimeMillis();
+        long lastRequests = 0;
+        long elapsed;
+        try {
+            while ((elapsed = System.currentTimeMillis() - startTime) < durationMs) {
+                Thread.sleep(Math.min(REPORT_PERIOD_MS, durationMs - elapsed));
+
+                long requests = stats.total(CollectorStats.REQUESTS);
+                System.out.printf("%5d s  %10d requests  %10.1f requests/s  %10d pings  %8d invalid%n",
+                        (System.currentTimeMillis() - startTime) / 1000, requests,
+                        (requests - lastRequests) * 1000.0 / REPORT_PERIOD_MS,
+                        stats.total(CollectorStats.PINGS), stats.total(CollectorStats.INVALID_PINGS));
+                lastRequests = requests;
+            }
+        } catch (InterruptedException e) {
+            // Stopped by the shutdown hook
+        }
+
+        collector.stop();
+        report(stats);
+        if (sessionsFile != null) {
+            writeSessions(stats, sessionsFile);
+        }
+    }
+
+    static void report(CollectorStats stats) {
+        long pings = stats.total(CollectorStats.PINGS);
+
+        System.out.println();
+        System.out.printf("requests          %d (%d batches)%n", stats.total(CollectorStats.REQUESTS),
+                stats.total(CollectorStats.BATCHES));
+        System.out.printf("pings             %d from %d sessions, %.0f bytes per ping%n", pings,
+                stats.sessions().size(), stats.total(CollectorStats.PING_BYTES) / (double) Math.max(1, pings));
+
+        StringBuilder responses = new StringBuilder();
+        for (int code : CollectorStats.RESPONSE_CODES) {
+            responses.append(code).append(' ').append(stats.responses(code)).append("  ");
+        }
+        System.out.printf("responses         %sother %d%n", responses, stats.responses(0));
+
+        for (PingMode mode : PingMode.values()) {
+            long modePings = stats.pingsInMode(mode);
+            System.out.printf("%-26s %8d  %6.0f bytes/ping%n", mode, modePings,
+                    stats.bytesInMode(mode) / (double) Math.max(1, modePings));
+        }
+
+        System.out.printf("invalid pings     %d%n", stats.total(CollectorStats.INVALID_PINGS));
+        for (int i = 0; i < PingValidator.VIOLATION_NAMES.length; i++) {
+            long count = stats.violations(i);
+            if (count > 0) {
+                System.out.printf("  %-30s %d%n", PingValidator.VIOLATION_NAMES[i], count);
+            }
+        }
+    }
+
+    private static void writeSessions(CollectorStats stats, String file) throws IOException {
+        PrintWriter out = new PrintWriter(file, "UTF-8");
+        try {
+            out.println(SessionStats.csvHeader());
+            for (SessionStats session : stats.sessions()) {
+                out.println(session.toCsv());
+            }
+        } finally {
+            out.close();
+        }
+        System.out.printf("%nSession statistics written to %s%n", file);
+    }
+}
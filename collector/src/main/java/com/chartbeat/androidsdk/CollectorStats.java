@@ -0,0 +1,125 @@
+package com.chartbeat.androidsdk;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Totals of a collector and the statistics of each session it saw.
+ *
+ * Every selector thread counts into {@link Counters} of its own, so counting needs no
+ * atomic read-modify-write; totals add them up when read.
+ */
+final class CollectorStats {
+    static final int[] RESPONSE_CODES = { 200, 202, 400, 500, 503 };
+
+    static final int REQUESTS = 0;
+    static final int BATCHES = 1;
+    static final int PINGS = 2;
+    // What the pings took on the wire, as query strings or compact
+    static final int PING_BYTES = 3;
+    static final int INVALID_PINGS = 4;
+    private static final int RESPONSES = 5;
+    private static final int VIOLATIONS = RESPONSES + RESPONSE_CODES.length + 1;
+    private static final int MODES = VIOLATIONS + PingValidator.VIOLATION_NAMES.length;
+    private static final int MODE_BYTES = MODES + PingMode.values().length;
+    private static final int COUNTER_COUNT = MODE_BYTES + PingMode.values().length;
+
+    private static final String UNKNOWN_USER = "(none)";
+
+    private final CopyOnWriteArrayList<Counters> threadCounters = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<String, SessionStats> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Counts of one thread, only ever written by that thread.
+     */
+    static final class Counters {
+        private final AtomicLongArray values = new AtomicLongArray(COUNTER_COUNT);
+
+        void add(int counter, long delta) {
+            values.lazySet(counter, values.get(counter) + delta);
+        }
+
+        void increment(int counter) {
+            add(counter, 1);
+        }
+
+        void recordPing(int length, int code, PingMode mode, int violations) {
+            increment(PINGS);
+            add(PING_BYTES, length);
+            increment(RESPONSES + responseSlot(code));
+            increment(MODES + mode.ordinal());
+            add(MODE_BYTES + mode.ordinal(), length);
+
+            if (violations != 0) {
+                increment(INVALID_PINGS);
+                for (int i = 0; i < PingValidator.VIOLATION_NAMES.length; i++) {
+                    if ((violations & (1 << i)) != 0) {
+                        increment(VIOLATIONS + i);
+                    }
+                }
+            }
+        }
+    }
+
+    Counters newCounters() {
+        Counters counters = new Counters();
+        threadCounters.add(counters);
+        return counters;
+    }
+
+    SessionStats session(String userId) {
+        String key = userId != null ? userId : UNKNOWN_USER;
+        SessionStats session = sessions.get(key);
+        if (session == null) {
+            SessionStats newSession = new SessionStats(key);
+            session = sessions.putIfAbsent(key, newSession);
+            if (session == null) {
+                session = newSession;
+            }
+        }
+        return session;
+    }
+
+    Collection<SessionStats> sessions() {
+        return sessions.values();
+    }
+
+    long total(int counter) {
+        long total = 0;
+        for (Counters counters : threadCounters) {
+            total += counters.values.get(counter);
+        }
+        return total;
+    }
+
+    /**
+     * @return pings answered with the code, anything but {@link #RESPONSE_CODES} counting as other
+     */
+    long responses(int code) {
+        return total(RESPONSES + responseSlot(code));
+    }
+
+    long violations(int violationIndex) {
+        return total(VIOLATIONS + violationIndex);
+    }
+
+    long pingsInMode(PingMode mode) {
+        return total(MODES + mode.ordinal());
+    }
+
+    long bytesInMode(PingMode mode) {
+        return total(MODE_BYTES + mode.ordinal());
+    }
+
+    static int responseSlot(int code) {
+        for (int i = 0; i < RESPONSE_CODES.length; i++) {
+            if (RESPONSE_CODES[i] == code) {
+                return i;
+            }
+        }
+        return RESPONSE_CODES.length;
+    }
+}
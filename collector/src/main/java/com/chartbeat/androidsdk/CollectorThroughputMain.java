@@ -0,0 +1,277 @@
+package com.chartbeat.androidsdk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Observable;
+
+/**
+ * Measures how many pings a {@link PingCollector} answers per second: client threads
+ * send real tracker pings, half full and half standard, over keep-alive connections
+ * with many requests pipelined on each, and count the responses.
+ *
+ * <pre>
+ * --clients N         client connections, one thread each (two per core)
+ * --pipeline N        requests in flight per connection (32)
+ * --threads N         collector selector threads (half the cores)
+ * --duration S        seconds to run for (10)
+ * </pre>
+ */
+public final class CollectorThroughputMain {
+    private static final int READERS = 64;
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private int clientCount = 2 * Runtime.getRuntime().availableProcessors();
+    private int pipelineDepth = 32;
+    private int threadCount = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private long durationMs = 10 * 1000;
+
+    private volatile boolean isRunning = true;
+    private final AtomicLong responses = new AtomicLong();
+
+    private CollectorThroughputMain() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        CollectorThroughputMain main = new CollectorThroughputMain();
+        main.parse(args);
+        main.run();
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--clients":
+                    clientCount = Integer.parseInt(value);
+                    break;
+                case "--pipeline":
+                    pipelineDepth = Integer.parseInt(value);
+                    break;
+                case "--threads":
+                    threadCount = Integer.parseInt(value);
+                    break;
+                case "--duration":
+                    durationMs = Long.parseLong(value) * 1000;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    private void run() throws IOException, InterruptedException {
+        List<String> queries = trackerQueries();
+
+        PingCollector collector = new PingCollector(ResponseScript.ALWAYS_200, false, null, threadCount);
+        collector.start(new InetSocketAddress("127.0.0.1", 0));
+
+        System.out.printf("%d clients pipelining %d requests each against %d collector threads for %d s%n",
+                clientCount, pipelineDepth, threadCount, durationMs / 1000);
+
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < clientCount; i++) {
+            final byte[] requests = pipelinedRequests(queries, i);
+            final int port = collector.port();
+            Thread client = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        runClient(port, requests);
+                    } catch (IOException e) {
+                        System.err.println("Client stopped: " + e);
+                    }
+                }
+            }, "client-" + i);
+            client.start();
+            clients.add(client);
+        }
+
+        // Leave the first second out, while the JIT warms up
+        Thread.sleep(1000);
+        long startResponses = responses.get();
+        long startTime = System.nanoTime();
+        Thread.sleep(durationMs);
+        long measuredResponses = responses.get() - startResponses;
+        long elapsedNanos = System.nanoTime() - startTime;
+
+        isRunning = false;
+        for (Thread client : clients) {
+            client.join();
+        }
+        collector.stop();
+
+        System.out.printf("%.0f requests/s%n", measuredResponses * 1e9 / elapsedNanos);
+        CollectorMain.report(collector.stats());
+    }
+
+    private void runClient(int port, byte[] requests) throws IOException {
+        Socket socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress("127.0.0.1", port));
+
+        OutputStream out = socket.getOutputStream();
+        ResponseCounter counter = new ResponseCounter(socket.getInputStream());
+        try {
+            while (isRunning) {
+                out.write(requests);
+                counter.awaitResponses(pipelineDepth);
+                responses.addAndGet(pipelineDepth);
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * A full and a standard ping of each of a few readers, from the tracker itself.
+     */
+    private static List<String> trackerQueries() {
+        final List<String> queries = new ArrayList<>();
+        PingTransport capturingTransport = new PingTransport() {
+            @Override
+            public Observable<PingResult> ping(String query) {
+                queries.add(query);
+                return Observable.just(new PingResult(200, -1));
+            }
+
+            @Override
+            public Observable<List<PingResult>> pingBatch(List<String> batch) {
+                return Observable.empty();
+            }
+
+            @Override
+            public boolean isBatching() {
+                return false;
+            }
+        };
+        // Runs posted tasks right away, so that responses reach the tracker, and drops
+        // the delayed ones, so that it only pings when asked to
+        TaskScheduler inline = new TaskScheduler() {
+            @Override
+            public boolean post(Runnable task) {
+                task.run();
+                return true;
+            }
+
+            @Override
+            public boolean postDelayed(Runnable task, long delayMillis) {
+                return true;
+            }
+
+            @Override
+            public void cancel(Runnable task) {
+            }
+
+            @Override
+            public boolean isAlive() {
+                return true;
+            }
+        };
+
+        File offlineQueueDirectory = new File(System.getProperty("java.io.tmpdir"), "chartbeat-collector-throughput");
+        for (int i = 0; i < READERS; i++) {
+            ChartBeatTracker tracker = new ChartBeatTracker(
+                    new AppInfo("12345", "throughput.chartbeat.com", "com.chartbeat.collector", 1080, 1),
+                    new TrackerEnvironment(Clock.SYSTEM, inline, new MemoryKeyValueStore(),
+                            NetworkState.ALWAYS_CONNECTED, ForegroundState.ALWAYS_IN_FOREGROUND,
+                            capturingTransport, offlineQueueDirectory));
+            tracker.trackViewImpl("/news/2018/01/article-" + i, "Markets & Politics: What \"next\" looks like",
+                    0, 1080, 0, 1920);
+            tracker.updateSections("news,politics");
+            tracker.updateAuthors("Jane Doe,John Smith");
+            // The first ping of a view is full, the next standard
+            tracker.ping(false);
+            tracker.ping(false);
+            tracker.stopTracker();
+        }
+        return queries;
+    }
+
+    private byte[] pipelinedRequests(List<String> queries, int client) {
+        StringBuilder requests = new StringBuilder();
+        for (int i = 0; i < pipelineDepth; i++) {
+            String query = queries.get((client * pipelineDepth + i) % queries.size());
+            requests.append("GET /").append(ChartbeatAPI.PING_PATH).append('?').append(query)
+                    .append(" HTTP/1.1\r\nHost: ").append(ChartbeatAPI.HOST)
+                    .append("\r\nUser-Agent: ChartbeatCollectorThroughput/1.0\r\n\r\n");
+        }
+        return ascii(requests);
+    }
+
+    private static byte[] ascii(CharSequence s) {
+        byte[] bytes = new byte[s.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) s.charAt(i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Reads whole responses off a connection, by their headers and Content-Length.
+     */
+    private static final class ResponseCounter {
+        private final InputStream in;
+        private final byte[] buffer = new byte[64 * 1024];
+        private int start;
+        private int length;
+
+        ResponseCounter(InputStream in) {
+            this.in = in;
+        }
+
+        void awaitResponses(int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                int headerEnd;
+                while ((headerEnd = headerEnd()) < 0) {
+                    fill();
+                }
+                int responseLength = headerEnd - start + contentLength(headerEnd);
+                while (length < responseLength) {
+                    fill();
+                }
+                start += responseLength;
+                length -= responseLength;
+            }
+        }
+
+        private void fill() throws IOException {
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, length);
+                start = 0;
+            }
+            int read = in.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                throw new IOException("Connection closed by the collector");
+            }
+            length += read;
+        }
+
+        private int headerEnd() {
+            for (int i = start + 3; i < start + length; i++) {
+                if (buffer[i] == '\n' && buffer[i - 1] == '\r' && buffer[i - 2] == '\n' && buffer[i - 3] == '\r') {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+
+        private int contentLength(int headerEnd) {
+            String headers = new String(buffer, start, headerEnd - start, ISO_8859_1).toLowerCase();
+            int header = headers.indexOf("content-length:");
+            if (header < 0) {
+                return 0;
+            }
+            int end = headers.indexOf('\r', header);
+            return Integer.parseInt(headers.substring(header + "content-length:".length(), end).trim());
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.chartbeat.androidsdk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * One keep-alive HTTP/1.1 connection of a {@link SelectorLoop}, only ever touched by
+ * the loop's thread. Requests may be pipelined: they are parsed straight from the
+ * input buffer and answered in order, a delayed response holding back the ones
+ * behind it like a slow server would.
+ */
+final class HttpConnection {
+    private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_REQUEST_SIZE = 4 * 1024 * 1024;
+    // Stop reading while this much output waits for a client that does not read
+    private static final int MAX_PENDING_OUTPUT = 1024 * 1024;
+
+    private static final byte[] CONTENT_LENGTH = ascii("content-length:");
+    private static final byte[] CONTENT_ENCODING = ascii("content-encoding:");
+    private static final byte[] CONNECTION = ascii("connection:");
+    private static final byte[] GZIP = ascii("gzip");
+    private static final byte[] CLOSE = ascii("close");
+    private static final byte[] KEEP_ALIVE = ascii("keep-alive");
+    private static final byte[] HTTP_1_0 = ascii("HTTP/1.0");
+    private static final byte[] POST = ascii("POST");
+
+    private final SelectorLoop loop;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+
+    private byte[] input = new byte[INITIAL_BUFFER_SIZE];
+    private ByteBuffer inputBuffer = ByteBuffer.wrap(input);
+    private int inputLength;
+
+    // Bytes to write are [0, position)
+    private ByteBuffer output = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private final ArrayDeque<DelayedResponse> delayedResponses = new ArrayDeque<>();
+    private boolean closeWhenWritten;
+    private boolean isClosed;
+
+    /** When the earliest flush the loop holds for this connection is due, Long.MAX_VALUE for none */
+    long scheduledDueTime = Long.MAX_VALUE;
+
+    private static final class DelayedResponse {
+        final long dueTime;
+        final byte[] response;
+
+        DelayedResponse(long dueTime, byte[] response) {
+            this.dueTime = dueTime;
+            this.response = response;
+        }
+    }
+
+    HttpConnection(SelectorLoop loop, SocketChannel channel, SelectionKey key) {
+        this.loop = loop;
+        this.channel = channel;
+        this.key = key;
+    }
+
+    void onReadable(long now) {
+        int read;
+        try {
+            inputBuffer.limit(input.length).position(inputLength);
+            read = channel.read(inputBuffer);
+        } catch (IOException e) {
+            close();
+            return;
+        }
+
+        if (read < 0) {
+            close();
+            return;
+        }
+
+        inputLength += read;
+        parseRequests(now);
+        flush(now);
+    }
+
+    /**
+     * Queues the response to the oldest unanswered request, to be written once dueTime
+     * has come and all earlier responses are out.
+     */
+    void respond(byte[] response, long dueTime, long now) {
+        if (delayedResponses.isEmpty() && dueTime <= now) {
+            append(response);
+        } else {
+            delayedResponses.add(new DelayedResponse(dueTime, response));
+        }
+    }
+
+    /**
+     * @return when the next delayed response is due, or Long.MAX_VALUE without one
+     */
+    long nextDueTime() {
+        DelayedResponse next = delayedResponses.peek();
+        return next == null ? Long.MAX_VALUE : next.dueTime;
+    }
+
+    /**
+     * Writes what can be written now: the responses due and any output left over from
+     * the last write.
+     */
+    void flush(long now) {
+        if (isClosed) {
+            return;
+        }
+
+        while (!delayedResponses.isEmpty() && delayedResponses.peek().dueTime <= now) {
+            append(delayedResponses.poll().response);
+        }
+        if (nextDueTime() < scheduledDueTime) {
+            loop.schedule(this, nextDueTime());
+        }
+
+        if (output.position() > 0) {
+            try {
+                output.flip();
+                channel.write(output);
+                output.compact();
+            } catch (IOException e) {
+                close();
+                return;
+            }
+        }
+
+        boolean hasOutput = output.position() > 0;
+        if (!hasOutput && closeWhenWritten && delayedResponses.isEmpty()) {
+            close();
+            return;
+        }
+
+        int interest = 0;
+        if (!closeWhenWritten && output.position() < MAX_PENDING_OUTPUT) {
+            interest |= SelectionKey.OP_READ;
+        }
+        if (hasOutput) {
+            interest |= SelectionKey.OP_WRITE;
+        }
+        if (key.interestOps() != interest) {
+            key.interestOps(interest);
+        }
+    }
+
+    boolean isClosed() {
+        return isClosed;
+    }
+
+    void close() {
+        if (isClosed) {
+            return;
+        }
+
+        isClosed = true;
+        if (scheduledDueTime != Long.MAX_VALUE) {
+            loop.unschedule(this);
+        }
+        delayedResponses.clear();
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing left to do
+        }
+    }
+
+    private void parseRequests(long now) {
+        int start = 0;
+
+        while (!closeWhenWritten) {
+            int headerEnd = indexOfHeaderEnd(start);
+            if (headerEnd < 0) {
+                if (inputLength - start >= MAX_REQUEST_SIZE) {
+                    close();
+                    return;
+                }
+                break;
+            }
+
+            int lineEnd = indexOf(start, headerEnd, (byte) '\r');
+            int methodEnd = indexOf(start, lineEnd, (byte) ' ');
+            int targetEnd = indexOf(methodEnd + 1, lineEnd, (byte) ' ');
+            boolean keepAlive = !regionMatches(targetEnd + 1, lineEnd, HTTP_1_0);
+            long contentLength = 0;
+            boolean isGzipped = false;
+
+            for (int line = lineEnd + 2; line < headerEnd - 2; ) {
+                int end = indexOf(line, headerEnd, (byte) '\r');
+                if (startsWithIgnoreCase(line, end, CONTENT_LENGTH)) {
+                    contentLength = parseLong(line + CONTENT_LENGTH.length, end);
+                } else if (startsWithIgnoreCase(line, end, CONTENT_ENCODING)) {
+                    isGzipped = containsIgnoreCase(line + CONTENT_ENCODING.length, end, GZIP);
+                } else if (startsWithIgnoreCase(line, end, CONNECTION)) {
+                    int value = line + CONNECTION.length;
+                    if (containsIgnoreCase(value, end, CLOSE)) {
+                        keepAlive = false;
+                    } else if (containsIgnoreCase(value, end, KEEP_ALIVE)) {
+                        keepAlive = true;
+                    }
+                }
+                line = end + 2;
+            }
+
+            if (contentLength < 0 || headerEnd - start + contentLength > MAX_REQUEST_SIZE) {
+                close();
+                return;
+            }
+            if (inputLength - headerEnd < contentLength) {
+                ensureInputCapacity(headerEnd - start + (int) contentLength);
+                break;
+            }
+
+            boolean isPost = regionMatches(start, methodEnd, POST);
+            loop.serve(this, isPost, input, methodEnd + 1, targetEnd, headerEnd, (int) contentLength, isGzipped, now);
+
+            start = headerEnd + (int) contentLength;
+            if (!keepAlive) {
+                closeWhenWritten = true;
+            }
+        }
+
+        if (start > 0) {
+            System.arraycopy(input, start, input, 0, inputLength - start);
+            inputLength -= start;
+        }
+        if (inputLength == input.length) {
+            ensureInputCapacity(input.length * 2);
+        }
+    }
+
+    private void append(byte[] response) {
+        if (output.remaining() < response.length) {
+            int capacity = output.capacity();
+            while (capacity - output.position() < response.length) {
+                capacity *= 2;
+            }
+            ByteBuffer grown = ByteBuffer.allocate(capacity);
+            output.flip();
+            grown.put(output);
+            output = grown;
+        }
+        output.put(response);
+    }
+
+    private void ensureInputCapacity(int capacity) {
+        if (capacity > input.length) {
+            input = Arrays.copyOf(input, Math.max(capacity, input.length * 2));
+            inputBuffer = ByteBuffer.wrap(input);
+        }
+    }
+
+    /**
+     * @return the index just past the blank line ending the headers, or -1
+     */
+    private int indexOfHeaderEnd(int start) {
+        for (int i = start + 3; i < inputLength; i++) {
+            if (input[i] == '\n' && input[i - 1] == '\r' && input[i - 2] == '\n' && input[i - 3] == '\r') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(int start, int end, byte b) {
+        for (int i = start; i < end; i++) {
+            if (input[i] == b) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private boolean regionMatches(int start, int end, byte[] expected) {
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (input[start + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean startsWithIgnoreCase(int start, int end, byte[] lowerCasePrefix) {
+        if (end - start < lowerCasePrefix.length) {
+            return false;
+        }
+        for (int i = 0; i < lowerCasePrefix.length; i++) {
+            if ((input[start + i] | 0x20) != lowerCasePrefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean containsIgnoreCase(int start, int end, byte[] lowerCaseWord) {
+        for (int i = start; i + lowerCaseWord.length <= end; i++) {
+            if (startsWithIgnoreCase(i, end, lowerCaseWord)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long parseLong(int start, int end) {
+        long value = 0;
+        boolean hasDigits = false;
+        for (int i = start; i < end; i++) {
+            int digit = input[i] - '0';
+            if (digit >= 0 && digit <= 9) {
+                value = value * 10 + digit;
+                hasDigits = true;
+            } else if (input[i] != ' ' && input[i] != '\t') {
+                return -1;
+            }
+        }
+        return hasDigits ? value : -1;
+    }
+
+    private static byte[] ascii(String s) {
+        byte[] bytes = new byte[s.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) s.charAt(i);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,126 @@
+package com.chartbeat.androidsdk;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Local reference implementation of the ping endpoint: answers {@code GET /ping},
+ * {@code POST /ping/batch} and their {@link CompactPingFormat} counterparts the way
+ * {@link ChartbeatAPI} expects, checks every ping with a {@link PingValidator} and
+ * keeps {@link SessionStats} per reader.
+ *
+ * An acceptor thread deals the connections out to a few {@link SelectorLoop} threads,
+ * which serve them without blocking, so the collector keeps up with many thousand
+ * trackers on a single machine.
+ */
+final class PingCollector {
+    private static final String THREAD_NAME = "collector";
+    private static final int MAX_COMPACT_TOKENS = 1 << 16;
+
+    private final ResponseScript script;
+    private final boolean isStrict;
+    private final PingLog log;
+    private final CollectorStats stats = new CollectorStats();
+    // Shared by the loops: a reader's pings may come in on different connections
+    private final CompactPingDecoder compactDecoder = new CompactPingDecoder(MAX_COMPACT_TOKENS);
+    private final SelectorLoop[] loops;
+
+    private ServerSocketChannel server;
+
+    /**
+     * @param isStrict answer 400 to pings breaking the rules instead of following the script
+     * @param log      where to log every ping, or null
+     */
+    PingCollector(ResponseScript script, boolean isStrict, PingLog log, int threads) throws IOException {
+        this.script = script;
+        this.isStrict = isStrict;
+        this.log = log;
+        this.loops = new SelectorLoop[threads];
+        for (int i = 0; i < threads; i++) {
+            loops[i] = new SelectorLoop(this);
+        }
+    }
+
+    static boolean isCollectorThread(String threadName) {
+        return threadName.startsWith(THREAD_NAME);
+    }
+
+    /**
+     * Starts listening, on an ephemeral port if the address has port 0.
+     */
+    void start(InetSocketAddress address) throws IOException {
+        server = ServerSocketChannel.open();
+        server.socket().setReuseAddress(true);
+        server.socket().bind(address, 1024);
+
+        for (int i = 0; i < loops.length; i++) {
+            startThread(loops[i], THREAD_NAME + "-" + i);
+        }
+
+        startThread(new Runnable() {
+            @Override
+            public void run() {
+                int next = 0;
+                while (server.isOpen()) {
+                    try {
+                        SocketChannel channel = server.accept();
+                        loops[next].add(channel);
+                        next = (next + 1) % loops.length;
+                    } catch (IOException e) {
+                        // Closed by stop(), or a connection that went away
+                    }
+                }
+            }
+        }, THREAD_NAME + "-acceptor");
+    }
+
+    void stop() {
+        try {
+            server.close();
+        } catch (IOException e) {
+            // Nothing left to do
+        }
+        for (SelectorLoop loop : loops) {
+            loop.stop();
+        }
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    int port() {
+        return server.socket().getLocalPort();
+    }
+
+    String endpoint() {
+        return "http://127.0.0.1:" + port();
+    }
+
+    CollectorStats stats() {
+        return stats;
+    }
+
+    ResponseScript script() {
+        return script;
+    }
+
+    boolean isStrict() {
+        return isStrict;
+    }
+
+    PingLog log() {
+        return log;
+    }
+
+    CompactPingDecoder compactDecoder() {
+        return compactDecoder;
+    }
+
+    private static void startThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -0,0 +1,42 @@
+package com.chartbeat.androidsdk;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Raw log of every ping a collector answered, one line each:
+ * {@code TIME CODE VIOLATIONS QUERY}, the violations as a {@link PingValidator} bit set.
+ * Shared by the collector threads.
+ */
+final class PingLog {
+    private final OutputStream out;
+    private boolean hasFailed;
+
+    PingLog(OutputStream out) {
+        this.out = new BufferedOutputStream(out, 64 * 1024);
+    }
+
+    synchronized void write(long time, int code, int violations, byte[] query, int offset, int length) {
+        if (hasFailed) {
+            return;
+        }
+
+        try {
+            out.write((time + " " + code + " " + violations + " ").getBytes("ISO-8859-1"));
+            out.write(query, offset, length);
+            out.write('\n');
+        } catch (IOException e) {
+            hasFailed = true;
+            System.err.println("Ping log stopped: " + e);
+        }
+    }
+
+    synchronized void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            // Nothing left to do
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.chartbeat.androidsdk;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parses a ping query string and checks it against the rules the tracker encodes by,
+ * see {@link PingMode} and {@link PingParams}:
+ *
+ * <ul>
+ * <li>every ping carries all the mandatory keys, the end marker last and empty;</li>
+ * <li>every key is one of {@link QueryKeys}, at most once;</li>
+ * <li>{@link QueryKeys#FORCE_DECAY} names the previous view's token, never the
+ * ping's own, and as a one-time key of a new view never rides on a standard ping.</li>
+ * </ul>
+ *
+ * A ping is standard when it only holds mandatory, one-time and always sent keys,
+ * and full otherwise. One instance per thread, it is reused for every ping.
+ */
+final class PingValidator {
+    static final int MISSING_MANDATORY_KEY = 1;
+    static final int UNKNOWN_KEY = 1 << 1;
+    static final int DUPLICATE_KEY = 1 << 2;
+    static final int END_MARKER_NOT_LAST = 1 << 3;
+    static final int FORCE_DECAY_OF_OWN_TOKEN = 1 << 4;
+    static final int FORCE_DECAY_IN_STANDARD_PING = 1 << 5;
+    /** Set by {@link SessionStats}: a standard ping right after a 400 or 500 instead of a full one */
+    static final int NOT_FULL_AFTER_ERROR = 1 << 6;
+    static final String[] VIOLATION_NAMES = {
+            "missing mandatory key", "unknown key", "duplicate key", "end marker not last",
+            "force decay of own token", "force decay in standard ping", "not full after 400/500" };
+
+    // Keys the tracker adds with PingParams.addOneTimeParameter
+    private static final String[] ONE_TIME_KEYS = {
+            QueryKeys.FORCE_DECAY, QueryKeys.SCROLL_POSITION_TOP, QueryKeys.CONTENT_HEIGHT,
+            QueryKeys.SCROLL_WINDOW_HEIGHT, QueryKeys.DOCUMENT_WIDTH, QueryKeys.MAX_SCROLL_DEPTH,
+            QueryKeys.ZONE_G2, QueryKeys.SECTION_G0, QueryKeys.AUTHOR_G1, QueryKeys.PAGE_LOAD_TIME };
+    // Keys sent in every mode without being mandatory
+    private static final String[] ALWAYS_SENT_KEYS = {
+            QueryKeys.ENGAGED_SECONDS_SINCE_LAST_PING, QueryKeys.TIME_ZONE, QueryKeys.QUEUED_PING_TIMESTAMP,
+            QueryKeys.SAMPLING_FACTOR };
+
+    private static final String[] KEYS;
+    private static final int[] PACKED_KEYS; // sorted, see pack()
+    private static final int[] KEY_INDEXES; // index in KEYS of each packed key
+    private static final long MANDATORY_MASK;
+    private static final long OPTIONAL_MASK;
+
+    private static final int TOKEN;
+    private static final int USER_ID;
+    private static final int FORCE_DECAY;
+    private static final int ENGAGED_SECONDS;
+    private static final int QUEUED_PING_TIMESTAMP;
+    private static final int END_MARKER;
+
+    static {
+        List<String> keys = new ArrayList<>();
+        for (Field field : QueryKeys.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class) {
+                try {
+                    keys.add((String) field.get(null));
+                } catch (IllegalAccessException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        }
+        KEYS = keys.toArray(new String[keys.size()]);
+        if (KEYS.length > 64) {
+            throw new AssertionError("Key masks hold 64 keys");
+        }
+
+        long[] packedWithIndex = new long[KEYS.length];
+        for (int i = 0; i < KEYS.length; i++) {
+            packedWithIndex[i] = ((long) pack(KEYS[i]) << 32) | i;
+        }
+        Arrays.sort(packedWithIndex);
+        PACKED_KEYS = new int[KEYS.length];
+        KEY_INDEXES = new int[KEYS.length];
+        for (int i = 0; i < KEYS.length; i++) {
+            PACKED_KEYS[i] = (int) (packedWithIndex[i] >>> 32);
+            KEY_INDEXES[i] = (int) packedWithIndex[i];
+        }
+
+        long mandatory = 0;
+        long optional = 0;
+        List<String> oneTimeKeys = Arrays.asList(ONE_TIME_KEYS);
+        List<String> alwaysSentKeys = Arrays.asList(ALWAYS_SENT_KEYS);
+        for (int i = 0; i < KEYS.length; i++) {
+            if (PingMode.STANDARD_PING.includeParameter(KEYS[i])) {
+                mandatory |= 1L << i;
+            } else if (!oneTimeKeys.contains(KEYS[i]) && !alwaysSentKeys.contains(KEYS[i])) {
+                optional |= 1L << i;
+            }
+        }
+        MANDATORY_MASK = mandatory;
+        OPTIONAL_MASK = optional;
+
+        TOKEN = keys.indexOf(QueryKeys.TOKEN);
+        USER_ID = keys.indexOf(QueryKeys.USER_ID);
+        FORCE_DECAY = keys.indexOf(QueryKeys.FORCE_DECAY);
+        ENGAGED_SECONDS = keys.indexOf(QueryKeys.ENGAGED_SECONDS);
+        QUEUED_PING_TIMESTAMP = keys.indexOf(QueryKeys.QUEUED_PING_TIMESTAMP);
+        END_MARKER = keys.indexOf(QueryKeys.END_MARKER);
+    }
+
+    // Result of the last parse()
+    long keyMask;
+    int violations;
+    String token;
+    String userId;
+    String forceDecay;
+    long engagedSeconds;
+
+    /**
+     * Parses and checks the ping in bytes [offset, offset + length), an encoded query string.
+     */
+    void parse(byte[] bytes, int offset, int length) {
+        keyMask = 0;
+        violations = 0;
+        token = null;
+        userId = null;
+        forceDecay = null;
+        engagedSeconds = -1;
+
+        int end = offset + length;
+        int lastKey = -1;
+        boolean lastValueEmpty = false;
+        int position = offset;
+
+        while (position < end) {
+            int pairEnd = indexOf(bytes, position, end, (byte) '&');
+            int equals = indexOf(bytes, position, pairEnd, (byte) '=');
+            int valueStart = Math.min(equals + 1, pairEnd);
+
+            int key = keyIndex(bytes, position, equals);
+            if (key < 0) {
+                violations |= UNKNOWN_KEY;
+            } else {
+                long bit = 1L << key;
+                if ((keyMask & bit) != 0) {
+                    violations |= DUPLICATE_KEY;
+                }
+                keyMask |= bit;
+
+                if (key == TOKEN) {
+                    token = decode(bytes, valueStart, pairEnd);
+                } else if (key == USER_ID) {
+                    userId = decode(bytes, valueStart, pairEnd);
+                } else if (key == FORCE_DECAY) {
+                    forceDecay = decode(bytes, valueStart, pairEnd);
+                } else if (key == ENGAGED_SECONDS) {
+                    engagedSeconds = parseLong(bytes, valueStart, pairEnd);
+                }
+            }
+
+            lastKey = key;
+            lastValueEmpty = valueStart == pairEnd;
+            position = pairEnd + 1;
+        }
+
+        if ((keyMask & MANDATORY_MASK) != MANDATORY_MASK) {
+            violations |= MISSING_MANDATORY_KEY;
+        }
+        if (lastKey != END_MARKER || !lastValueEmpty) {
+            violations |= END_MARKER_NOT_LAST;
+        }
+        if (forceDecay != null) {
+            if (forceDecay.equals(token)) {
+                violations |= FORCE_DECAY_OF_OWN_TOKEN;
+            }
+            if (isStandard()) {
+                violations |= FORCE_DECAY_IN_STANDARD_PING;
+            }
+        }
+    }
+
+    /**
+     * @return true if the ping holds no more than the mandatory, one-time and always sent keys
+     */
+    boolean isStandard() {
+        return (keyMask & OPTIONAL_MASK) == 0;
+    }
+
+    /**
+     * @return true if the ping was replayed from the offline queue
+     */
+    boolean isQueued() {
+        return (keyMask & (1L << QUEUED_PING_TIMESTAMP)) != 0;
+    }
+
+    static String describe(int violations) {
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < VIOLATION_NAMES.length; i++) {
+            if ((violations & (1 << i)) != 0) {
+                if (description.length() > 0) {
+                    description.append(", ");
+                }
+                description.append(VIOLATION_NAMES[i]);
+            }
+        }
+        return description.toString();
+    }
+
+    /**
+     * Keys are up to three ASCII characters, packed with their length into an int.
+     */
+    private static int pack(String key) {
+        int packed = key.length() << 24;
+        for (int i = 0; i < key.length() && i < 3; i++) {
+            packed |= (key.charAt(i) & 0xFF) << (8 * i);
+        }
+        return key.length() > 3 ? -1 : packed;
+    }
+
+    private static int keyIndex(byte[] bytes, int start, int end) {
+        int length = end - start;
+        if (length < 1 || length > 3) {
+            return -1;
+        }
+
+        int packed = length << 24;
+        for (int i = 0; i < length; i++) {
+            packed |= (bytes[start + i] & 0xFF) << (8 * i);
+        }
+
+        int found = Arrays.binarySearch(PACKED_KEYS, packed);
+        return found < 0 ? -1 : KEY_INDEXES[found];
+    }
+
+    private static int indexOf(byte[] bytes, int start, int end, byte b) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static long parseLong(byte[] bytes, int start, int end) {
+        if (start == end) {
+            return -1;
+        }
+
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Percent-decodes an ASCII value, all the tracker sends in the keys decoded here.
+     */
+    private static String decode(byte[] bytes, int start, int end) {
+        char[] chars = new char[end - start];
+        int length = 0;
+
+        for (int i = start; i < end; i++) {
+            int b = bytes[i] & 0xFF;
+            if (b == '%' && i + 2 < end) {
+                b = Character.digit(bytes[i + 1], 16) << 4 | Character.digit(bytes[i + 2], 16);
+                i += 2;
+            } else if (b == '+') {
+                b = ' ';
+            }
+            chars[length++] = (char) b;
+        }
+
+        return new String(chars, 0, length);
+    }
+}
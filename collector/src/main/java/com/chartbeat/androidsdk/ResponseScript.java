@@ -0,0 +1,143 @@
+package com.chartbeat.androidsdk;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The answers a collector gives, in the order pings arrive: a list of steps, each a
+ * status code given to a number of pings after an optional delay. The last step
+ * repeats forever. Written as comma separated steps of the form
+ * {@code CODE[*COUNT][/DELAY_MS][~RETRY_AFTER_S]}, for example
+ * {@code 200*1000,503*50~30,200/20} answers 1000 pings, then tells 50 to come back in
+ * 30 seconds, then answers everything after a 20 ms delay.
+ */
+final class ResponseScript {
+    static final ResponseScript ALWAYS_200 = parse("200");
+
+    private final Step[] steps;
+    // Number of pings answered before each step
+    private final long[] stepStarts;
+    private final AtomicLong answered = new AtomicLong();
+
+    static final class Step {
+        final int code;
+        final long count;
+        final long delayMillis;
+        final long retryAfterSeconds;
+        /** The full response to a single ping */
+        final byte[] response;
+
+        Step(int code, long count, long delayMillis, long retryAfterSeconds) {
+            this.code = code;
+            this.count = count;
+            this.delayMillis = delayMillis;
+            this.retryAfterSeconds = retryAfterSeconds;
+            this.response = encodeResponse(code, retryAfterSeconds, "");
+        }
+    }
+
+    private ResponseScript(List<Step> steps) {
+        this.steps = steps.toArray(new Step[steps.size()]);
+        this.stepStarts = new long[this.steps.length];
+        long start = 0;
+        for (int i = 0; i < this.steps.length; i++) {
+            stepStarts[i] = start;
+            start += this.steps[i].count;
+        }
+    }
+
+    static ResponseScript parse(String script) {
+        List<Step> steps = new ArrayList<>();
+
+        for (String step : script.split(",")) {
+            step = step.trim();
+            long retryAfter = -1;
+            long delay = 0;
+            long count = 1;
+
+            int tilde = step.indexOf('~');
+            if (tilde >= 0) {
+                retryAfter = Long.parseLong(step.substring(tilde + 1));
+                step = step.substring(0, tilde);
+            }
+            int slash = step.indexOf('/');
+            if (slash >= 0) {
+                delay = Long.parseLong(step.substring(slash + 1));
+                step = step.substring(0, slash);
+            }
+            int star = step.indexOf('*');
+            if (star >= 0) {
+                count = Long.parseLong(step.substring(star + 1));
+                step = step.substring(0, star);
+            }
+
+            steps.add(new Step(Integer.parseInt(step), count, delay, retryAfter));
+        }
+
+        if (steps.isEmpty()) {
+            throw new IllegalArgumentException("Empty response script");
+        }
+        return new ResponseScript(steps);
+    }
+
+    /**
+     * @return the step answering the next ping
+     */
+    Step next() {
+        long ping = answered.getAndIncrement();
+
+        int low = 0;
+        int high = steps.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (stepStarts[middle] <= ping) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return steps[low];
+    }
+
+    /**
+     * @param retryAfterSeconds -1 for no Retry-After header
+     */
+    static byte[] encodeResponse(int code, long retryAfterSeconds, String body) {
+        StringBuilder response = new StringBuilder(96 + body.length());
+        response.append("HTTP/1.1 ").append(code).append(' ').append(reason(code)).append("\r\n");
+        if (retryAfterSeconds >= 0) {
+            response.append("Retry-After: ").append(retryAfterSeconds).append("\r\n");
+        }
+        if (!body.isEmpty()) {
+            response.append("Content-Type: text/plain; charset=utf-8\r\n");
+        }
+        response.append("Content-Length: ").append(body.length()).append("\r\n\r\n").append(body);
+
+        try {
+            return response.toString().getBytes("ISO-8859-1");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static String reason(int code) {
+        switch (code) {
+            case 200:
+                return "OK";
+            case 202:
+                return "Accepted";
+            case 400:
+                return "Bad Request";
+            case 404:
+                return "Not Found";
+            case 500:
+                return "Internal Server Error";
+            case 503:
+                return "Service Unavailable";
+            default:
+                return "Status";
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.chartbeat.androidsdk;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * One collector thread: a selector serving its share of the connections, with
+ * everything a ping needs (validator, counters) owned by the thread so that serving
+ * a ping takes no lock but that of the reader's session.
+ */
+final class SelectorLoop implements Runnable {
+    private static final byte[] PING_PATH = ("/" + ChartbeatAPI.PING_PATH).getBytes();
+    private static final byte[] BATCH_PATH = ("/" + ChartbeatAPI.PING_PATH + "/batch").getBytes();
+    private static final byte[] COMPACT_PATH = ("/" + ChartbeatAPI.COMPACT_PING_PATH).getBytes();
+    private static final byte[] COMPACT_BATCH_PATH = ("/" + ChartbeatAPI.COMPACT_PING_PATH + "/batch").getBytes();
+    private static final byte[] NOT_FOUND = ResponseScript.encodeResponse(404, -1, "");
+    private static final ResponseScript.Step REJECTED = new ResponseScript.Step(400, 1, 0, -1);
+
+    private final PingCollector collector;
+    private final Selector selector;
+    private final Queue<SocketChannel> acceptedChannels = new ConcurrentLinkedQueue<>();
+    private final PingValidator validator = new PingValidator();
+    private final CollectorStats.Counters counters;
+
+    // When to flush connections holding delayed responses. The due times are fixed when
+    // queued: a connection whose responses change is queued again, and the stale entry
+    // only causes a flush with nothing due.
+    private final PriorityQueue<ScheduledFlush> scheduledFlushes = new PriorityQueue<>(16,
+            new Comparator<ScheduledFlush>() {
+                @Override
+                public int compare(ScheduledFlush a, ScheduledFlush b) {
+                    return a.dueTime < b.dueTime ? -1 : (a.dueTime == b.dueTime ? 0 : 1);
+                }
+            });
+
+    private static final class ScheduledFlush {
+        final long dueTime;
+        final HttpConnection connection;
+
+        ScheduledFlush(long dueTime, HttpConnection connection) {
+            this.dueTime = dueTime;
+            this.connection = connection;
+        }
+    }
+
+    private volatile boolean isRunning = true;
+
+    SelectorLoop(PingCollector collector) throws IOException {
+        this.collector = collector;
+        this.selector = Selector.open();
+        this.counters = collector.stats().newCounters();
+    }
+
+    /**
+     * Hands a newly accepted connection over to this loop. Called on the acceptor thread.
+     */
+    void add(SocketChannel channel) {
+        acceptedChannels.add(channel);
+        selector.wakeup();
+    }
+
+    void stop() {
+        isRunning = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (isRunning) {
+                long timeout = 0;
+                if (!scheduledFlushes.isEmpty()) {
+                    timeout = Math.max(1, scheduledFlushes.peek().dueTime - System.currentTimeMillis());
+                }
+                selector.select(timeout);
+
+                registerAcceptedChannels();
+
+                long now = System.currentTimeMillis();
+                Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while (selected.hasNext()) {
+                    SelectionKey key = selected.next();
+                    selected.remove();
+
+                    HttpConnection connection = (HttpConnection) key.attachment();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isReadable()) {
+                        connection.onReadable(now);
+                    } else if (key.isWritable()) {
+                        connection.flush(now);
+                    }
+                }
+
+                now = System.currentTimeMillis();
+                while (!scheduledFlushes.isEmpty() && scheduledFlushes.peek().dueTime <= now) {
+                    ScheduledFlush scheduled = scheduledFlushes.poll();
+                    HttpConnection connection = scheduled.connection;
+                    if (connection.isClosed()) {
+                        continue;
+                    }
+                    if (connection.scheduledDueTime == scheduled.dueTime) {
+                        connection.scheduledDueTime = Long.MAX_VALUE;
+                    }
+                    connection.flush(now);
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            System.err.println("Collector loop stopped: " + e);
+        } finally {
+            closeAll();
+        }
+    }
+
+    /**
+     * Flushes the connection at dueTime, on top of any flush already scheduled.
+     */
+    void schedule(HttpConnection connection, long dueTime) {
+        connection.scheduledDueTime = dueTime;
+        scheduledFlushes.add(new ScheduledFlush(dueTime, connection));
+    }
+
+    /**
+     * Drops the scheduled flushes of a connection that was closed. Any left over are
+     * skipped when due.
+     */
+    void unschedule(HttpConnection connection) {
+        Iterator<ScheduledFlush> flushes = scheduledFlushes.iterator();
+        while (flushes.hasNext()) {
+            if (flushes.next().connection == connection) {
+                flushes.remove();
+            }
+        }
+        connection.scheduledDueTime = Long.MAX_VALUE;
+    }
+
+    /**
+     * Answers one request, the target and body being ranges of bytes.
+     */
+    void serve(HttpConnection connection, boolean isPost, byte[] bytes, int targetStart, int targetEnd,
+               int bodyStart, int bodyLength, boolean isGzipped, long now) {
+        counters.increment(CollectorStats.REQUESTS);
+
+        int queryStart = targetStart;
+        while (queryStart < targetEnd && bytes[queryStart] != '?') {
+            queryStart++;
+        }
+
+        if (!isPost && pathEquals(bytes, targetStart, queryStart, PING_PATH)) {
+            int offset = Math.min(queryStart + 1, targetEnd);
+            ResponseScript.Step step = servePing(bytes, offset, targetEnd - offset, targetEnd - offset, now);
+            connection.respond(step.response, now + step.delayMillis, now);
+        } else if (isPost && pathEquals(bytes, targetStart, queryStart, BATCH_PATH)) {
+            counters.increment(CollectorStats.BATCHES);
+            serveBatch(connection, bytes, bodyStart, bodyLength, isGzipped, now);
+        } else if (isPost && pathEquals(bytes, targetStart, queryStart, COMPACT_PATH)) {
+            ResponseScript.Step step = serveCompactPing(new CompactPingFormat.Reader(bytes, bodyStart, bodyLength),
+                    bodyLength, now);
+            connection.respond(step.response, now + step.delayMillis, now);
+        } else if (isPost && pathEquals(bytes, targetStart, queryStart, COMPACT_BATCH_PATH)) {
+            counters.increment(CollectorStats.BATCHES);
+            serveCompactBatch(connection, bytes, bodyStart, bodyLength, isGzipped, now);
+        } else {
+            connection.respond(NOT_FOUND, now, now);
+        }
+    }
+
+    /**
+     * @param wireLength the bytes the ping took on the wire, length unless it came compact
+     */
+    private ResponseScript.Step servePing(byte[] bytes, int offset, int length, int wireLength, long now) {
+        validator.parse(bytes, offset, length);
+        SessionStats session = collector.stats().session(validator.userId);
+        PingMode mode = session.record(validator, wireLength, now);
+
+        ResponseScript.Step step = collector.script().next();
+        if (validator.violations != 0 && collector.isStrict()) {
+            step = REJECTED;
+        }
+
+        session.responded(step.code, now + step.delayMillis);
+        counters.recordPing(wireLength, step.code, mode, validator.violations);
+
+        PingLog log = collector.log();
+        if (log != null) {
+            log.write(now, step.code, validator.violations, bytes, offset, length);
+        }
+        return step;
+    }
+
+    /**
+     * Decodes a compact ping into a query string and serves that, or answers 400 if it
+     * cannot be decoded, which tells the tracker to send its dictionary again.
+     */
+    private ResponseScript.Step serveCompactPing(CompactPingFormat.Reader reader, int wireLength, long now) {
+        byte[] query;
+        try {
+            query = collector.compactDecoder().decode(reader).getBytes(CompactPingFormat.UTF_8);
+        } catch (IOException e) {
+            counters.increment(CollectorStats.INVALID_PINGS);
+            return REJECTED;
+        }
+
+        return servePing(query, 0, query.length, wireLength, now);
+    }
+
+    /**
+     * Answers every ping of a batch by the script. The batch goes out once the slowest
+     * step's delay is over, its Retry-After the longest of the steps'.
+     */
+    private void serveBatch(HttpConnection connection, byte[] bytes, int offset, int length, boolean isGzipped,
+                            long now) {
+        byte[] pings = readBody(bytes, offset, length, isGzipped);
+        if (pings == null) {
+            connection.respond(REJECTED.response, now, now);
+            return;
+        }
+        int pingsLength = pings.length;
+
+        StringBuilder codes = new StringBuilder();
+        long delayMillis = 0;
+        long retryAfterSeconds = -1;
+
+        int lineStart = 0;
+        while (lineStart < pingsLength) {
+            int lineEnd = lineStart;
+            while (lineEnd < pingsLength && pings[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int end = lineEnd > lineStart && pings[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+
+            if (end > lineStart) {
+                ResponseScript.Step step = servePing(pings, lineStart, end - lineStart, end - lineStart, now);
+                codes.append(step.code).append('\n');
+                delayMillis = Math.max(delayMillis, step.delayMillis);
+                retryAfterSeconds = Math.max(retryAfterSeconds, step.retryAfterSeconds);
+            }
+            lineStart = lineEnd + 1;
+        }
+
+        byte[] response = ResponseScript.encodeResponse(200, retryAfterSeconds, codes.toString());
+        connection.respond(response, now + delayMillis, now);
+    }
+
+    /**
+     * Answers a batch of compact pings like {@link #serveBatch}. A batch cut short is
+     * answered up to where it could be read.
+     */
+    private void serveCompactBatch(HttpConnection connection, byte[] bytes, int offset, int length,
+                                   boolean isGzipped, long now) {
+        byte[] pings = readBody(bytes, offset, length, isGzipped);
+        if (pings == null) {
+            connection.respond(REJECTED.response, now, now);
+            return;
+        }
+
+        StringBuilder codes = new StringBuilder();
+        long delayMillis = 0;
+        long retryAfterSeconds = -1;
+
+        CompactPingFormat.Reader reader = new CompactPingFormat.Reader(pings, 0, pings.length);
+        while (reader.hasRemaining()) {
+            int start = reader.position();
+            CompactPingFormat.Reader ping;
+            try {
+                ping = reader.nextPing();
+            } catch (IOException e) {
+                break;
+            }
+
+            ResponseScript.Step step = serveCompactPing(ping, reader.position() - start, now);
+            codes.append(step.code).append('\n');
+            delayMillis = Math.max(delayMillis, step.delayMillis);
+            retryAfterSeconds = Math.max(retryAfterSeconds, step.retryAfterSeconds);
+        }
+
+        byte[] response = ResponseScript.encodeResponse(200, retryAfterSeconds, codes.toString());
+        connection.respond(response, now + delayMillis, now);
+    }
+
+    /**
+     * @return a copy of the body, decompressed, or null if it is not valid gzip
+     */
+    private static byte[] readBody(byte[] bytes, int offset, int length, boolean isGzipped) {
+        if (!isGzipped) {
+            byte[] body = new byte[length];
+            System.arraycopy(bytes, offset, body, 0, length);
+            return body;
+        }
+
+        try {
+            ByteArrayOutputStream decompressed = new ByteArrayOutputStream(length * 4);
+            InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes, offset, length));
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                decompressed.write(buffer, 0, read);
+            }
+            return decompressed.toByteArray();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void registerAcceptedChannels() {
+        SocketChannel channel;
+        while ((channel = acceptedChannels.poll()) != null) {
+            try {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new HttpConnection(this, channel, key));
+            } catch (IOException e) {
+                try {
+                    channel.close();
+                } catch (IOException closeException) {
+                    // Nothing left to do
+                }
+            }
+        }
+    }
+
+    private void closeAll() {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                ((HttpConnection) key.attachment()).close();
+            }
+            selector.close();
+        } catch (IOException | ClosedSelectorException e) {
+            // Nothing left to do
+        }
+    }
+
+    private static boolean pathEquals(byte[] bytes, int start, int end, byte[] path) {
+        if (end - start != path.length) {
+            return false;
+        }
+        for (int i = 0; i < path.length; i++) {
+            if (bytes[start + i] != path[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,102 @@
+package com.chartbeat.androidsdk;
+
+/**
+ * What a collector saw from one reader, identified by user id.
+ */
+final class SessionStats {
+    final String userId;
+
+    private long pings;
+    private long pingBytes;
+    private long firstSeen;
+    private long lastSeen;
+    private long views;
+    private long maxEngagedSeconds = -1;
+    private long invalidPings;
+    private final long[] modes = new long[PingMode.values().length];
+    private final long[] responses = new long[CollectorStats.RESPONSE_CODES.length + 1];
+
+    private String lastToken;
+    private int lastCode;
+    private long lastResponseTime;
+
+    SessionStats(String userId) {
+        this.userId = userId;
+    }
+
+    /**
+     * Records a ping just parsed by the validator, adding the violations that depend on
+     * what came before it in this session.
+     *
+     * @return the mode the ping was sent in, as far as the collector can tell
+     */
+    synchronized PingMode record(PingValidator ping, int length, long now) {
+        boolean isStandard = ping.isStandard();
+
+        if (isStandard && !ping.isQueued() && (lastCode == 400 || lastCode == 500) && now >= lastResponseTime) {
+            ping.violations |= PingValidator.NOT_FULL_AFTER_ERROR;
+        }
+
+        PingMode mode;
+        if (isStandard) {
+            mode = PingMode.STANDARD_PING;
+        } else if (pings == 0) {
+            mode = PingMode.FIRST_PING;
+        } else if (lastCode == 500) {
+            mode = PingMode.REPEAT_PING_AFTER_CODE_500;
+        } else {
+            mode = PingMode.FULL_PING;
+        }
+
+        if (pings == 0) {
+            firstSeen = now;
+        }
+        pings++;
+        pingBytes += length;
+        lastSeen = now;
+        modes[mode.ordinal()]++;
+        if (ping.violations != 0) {
+            invalidPings++;
+        }
+        if (ping.token != null && !ping.token.equals(lastToken)) {
+            views++;
+            lastToken = ping.token;
+        }
+        maxEngagedSeconds = Math.max(maxEngagedSeconds, ping.engagedSeconds);
+
+        return mode;
+    }
+
+    /**
+     * @param responseTime when the response is written, after any scripted delay
+     */
+    synchronized void responded(int code, long responseTime) {
+        lastCode = code;
+        lastResponseTime = responseTime;
+        responses[CollectorStats.responseSlot(code)]++;
+    }
+
+    static String csvHeader() {
+        StringBuilder header = new StringBuilder("user,pings,ping_bytes,first_seen,last_seen,views,max_engaged_seconds,invalid_pings");
+        for (PingMode mode : PingMode.values()) {
+            header.append(',').append(mode.name().toLowerCase());
+        }
+        for (int code : CollectorStats.RESPONSE_CODES) {
+            header.append(",responses_").append(code);
+        }
+        return header.append(",responses_other").toString();
+    }
+
+    synchronized String toCsv() {
+        StringBuilder line = new StringBuilder(userId).append(',').append(pings).append(',').append(pingBytes)
+                .append(',').append(firstSeen).append(',').append(lastSeen).append(',').append(views)
+                .append(',').append(maxEngagedSeconds).append(',').append(invalidPings);
+        for (long count : modes) {
+            line.append(',').append(count);
+        }
+        for (long count : responses) {
+            line.append(',').append(count);
+        }
+        return line.toString();
+    }
+}
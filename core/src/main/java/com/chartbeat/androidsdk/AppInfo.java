@@ -0,0 +1,108 @@
+package com.chartbeat.androidsdk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Created by Mike Dai Wang on 2016-02-04.
+ */
+final class AppInfo {
+    private static final String TAG = AppInfo.class.getSimpleName();
+    private static final int ANDROID_SDK_VERSION_BASE = 2000;
+
+    private static String referrer;
+
+    private final String accountID;
+    private final String domain;
+    private final String packageName;
+    private final int deviceScreenWidth;
+    private final String sdkVersion;
+    private final List<PingDestination> additionalDestinations = new ArrayList<>();
+    private int samplingFactor = 1;
+
+    /**
+     * @param versionCode version code of the SDK build
+     */
+    AppInfo(String accountID, String domain, String packageName, int deviceScreenWidth, int versionCode) {
+        if (accountID == null) {
+            throw new NullPointerException("Account ID cannot be null");
+        }
+
+        this.accountID = accountID;
+
+        if (domain == null) {
+            throw new NullPointerException("Domain cannot be null");
+        } else {
+            this.domain = domain;
+        }
+
+        this.packageName = packageName;
+        this.deviceScreenWidth = deviceScreenWidth;
+        this.sdkVersion = String.valueOf(ANDROID_SDK_VERSION_BASE + versionCode);
+    }
+
+    /**
+     * Also reports to another account, under the given domain. Call before the tracker
+     * is created.
+     */
+    void addDestination(String accountID, String domain) {
+        additionalDestinations.add(new PingDestination(accountID, domain));
+    }
+
+    /**
+     * @return the accounts reported to besides {@link #getAccountID()}
+     */
+    List<PingDestination> getAdditionalDestinations() {
+        return Collections.unmodifiableList(additionalDestinations);
+    }
+
+    /**
+     * Tracks only one user in samplingFactor, 1 (default) tracks every user. Call
+     * before the tracker is created.
+     */
+    void setSamplingFactor(int samplingFactor) {
+        if (samplingFactor < 1) {
+            throw new IllegalArgumentException("Sampling factor must be at least 1");
+        }
+
+        this.samplingFactor = samplingFactor;
+    }
+
+    int getSamplingFactor() {
+        return samplingFactor;
+    }
+
+    void setExternalReferrer(String externalReferrer) {
+        referrer = externalReferrer;
+    }
+
+    String getExternalReferrer() {
+        return referrer == null ? "" : referrer;
+    }
+
+    public String toString() {
+        String info = "Chartbeat tracking SDK (" + getSdkVersion() + "): " + this.accountID + "|" + this.packageName + "|" + this.domain;
+        return additionalDestinations.isEmpty() ? info : info + " and " + additionalDestinations;
+    }
+
+    String getDomain() {
+        return domain;
+    }
+
+    String getPackageName() {
+        return packageName;
+    }
+
+    String getAccountID() {
+        return accountID;
+    }
+
+    String getSdkVersion() {
+        return sdkVersion;
+    }
+
+    int getDeviceScreenWidth() {
+        return deviceScreenWidth;
+    }
+}
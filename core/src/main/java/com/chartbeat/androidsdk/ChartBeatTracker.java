@@ -0,0 +1,613 @@
+package com.chartbeat.androidsdk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import rx.Observable;
+import rx.Observer;
+import rx.functions.Func1;
+import rx.functions.FuncN;
+
+/**
+ * Created by Mike Dai Wang on 2016-02-05.
+ */
+final class ChartBeatTracker {
+    private static final String TAG = ChartBeatTracker.class.getSimpleName();
+
+    private static final int SESSION_TOKEN_LENGTH = 30;
+
+
+    static final int PING_ENDPOINT_VERSION = 1;
+
+    private static final Func1<PingResult, List<PingResult>> TO_LIST = new Func1<PingResult, List<PingResult>>() {
+        @Override
+        public List<PingResult> call(PingResult result) {
+            return Collections.singletonList(result);
+        }
+    };
+
+    private static final FuncN<List<PingResult>> COLLECT_RESULTS = new FuncN<List<PingResult>>() {
+        @Override
+        public List<PingResult> call(Object... results) {
+            List<PingResult> list = new ArrayList<>(results.length);
+            for (Object result : results) {
+                list.add((PingResult) result);
+            }
+            return list;
+        }
+    };
+
+    private static boolean firstPing = true;
+
+    private final Clock clock;
+    private final TaskScheduler scheduler;
+    private final NetworkState networkState;
+    private final ForegroundState foregroundState;
+    private final PingTransport pingService;
+
+    private final AppInfo appInfo;
+    // The other accounts every ping also goes to
+    private final List<PingDestination> additionalDestinations;
+    private final UserInfo userInfo;
+    // Only users sampled in are pinged, see UserInfo.isSampled()
+    private final int samplingFactor;
+    private final EngagementTracker engagementTracker;
+
+    private String previousToken;
+    private ViewTracker currentViewTracker;
+
+    private PingParams pingParams;
+    private final PingEncoder pingEncoder = new PingEncoder();
+    private final OfflinePingQueue offlinePingQueue;
+    private boolean isReplayingOfflinePings = false;
+    private final CommandCoalescer pendingUpdates;
+
+	/** set to true to simulate a very long response to pings (10 seconds) */
+	public static final boolean SIMULATE_VERY_SLOW_SERVER = false;
+
+	private final PingManager pingManager;
+	private long lastSuccessfulPingTime = 0;
+	private int sequentialErrors; // counts 503 errors.
+
+    ChartBeatTracker(AppInfo appInfo, TrackerEnvironment environment) {
+        this.clock = environment.clock;
+        this.scheduler = environment.scheduler;
+        this.networkState = environment.networkState;
+        this.foregroundState = environment.foregroundState;
+        this.pingService = environment.transport;
+
+        this.appInfo = appInfo;
+        this.additionalDestinations = new ArrayList<>(appInfo.getAdditionalDestinations());
+        this.userInfo = new UserInfo(environment.store, scheduler, clock);
+        this.samplingFactor = appInfo.getSamplingFactor();
+
+        boolean isSampled = userInfo.isSampled(samplingFactor);
+        if (!isSampled) {
+            Logger.d(TAG, "User not in the sample of 1 in {}, not pinging", samplingFactor);
+        }
+
+		this.currentViewTracker = null;
+		this.pingManager = new PingManager(this, scheduler, clock, isSampled);
+
+		this.engagementTracker = new EngagementTracker(clock);
+
+		this.pingParams = new PingParams();
+		this.offlinePingQueue = new OfflinePingQueue(environment.offlineQueueDirectory);
+		this.pendingUpdates = new CommandCoalescer();
+
+        Logger.d(TAG, "{}", appInfo);
+	}
+
+    synchronized void stopTracker() {
+        pingManager.stop();
+        engagementTracker.stop();
+        Diagnostics.record(Diagnostics.TRACKER_STOPPED);
+    }
+
+    /**
+     * Pings right away when the network comes back, rather than at the end of the
+     * interval, so that the reader shows up again and the pings queued while offline
+     * go out. Call on the tracker thread.
+     */
+    synchronized void networkRestored() {
+        if (currentViewTracker != null && pingManager.pingNow()) {
+            Metrics.increment(Metrics.CATCH_UP_PINGS);
+            Diagnostics.record(Diagnostics.NETWORK_RESTORED);
+        }
+    }
+
+    synchronized void setExternalReferrer(String appReferrer) {
+        appInfo.setExternalReferrer(appReferrer);
+    }
+
+    /**
+     * Holds back position and metadata updates until the next ping or view change.
+     *
+     * @return true if the command was held back
+     */
+    synchronized boolean coalesce(TrackerCommand command) {
+        return pendingUpdates.stage(command);
+    }
+
+    synchronized void flushPendingUpdates() {
+        pendingUpdates.flush(this);
+    }
+
+    /**
+     * @return the mode the next ping will be encoded in
+     */
+    synchronized PingMode getPingMode() {
+        return pingParams.pingMode;
+    }
+
+    synchronized boolean isNotTrackingAnyView() {
+        return currentViewTracker == null;
+    }
+
+    synchronized void trackViewImpl(final String viewId, final String viewTitle,
+                                    final int x, final int w, final int y, final int o) {
+        engagementTracker.userEnteredView();
+        userInfo.visited();
+
+        if (currentViewTracker == null || !currentViewTracker.isSameView(viewId)) {
+            trackNewView(viewId, viewTitle, x, w, y, o);
+        } else {
+            if (userInfo.isNewUser() && currentViewTracker.wasReferredFromAnotherView()) {
+                userInfo.markUserAsOld();
+            }
+            pingManager.alive();
+        }
+	}
+
+    private void trackNewView(String viewId, String viewTitle, int x, int w, int y, int o) {
+        String internalReferral = "";
+        String domain = null;
+        String subdomain = null;
+
+        if (currentViewTracker != null) {
+            domain = currentViewTracker.getDomain();
+            subdomain = currentViewTracker.getSubdomain();
+            internalReferral = currentViewTracker.getViewID();
+            this.previousToken = currentViewTracker.getToken();
+        }
+
+        String generatedToken = SecurityUtils.randomChars(SESSION_TOKEN_LENGTH);
+        ViewDimension viewDimension = new ViewDimension(x, w, y, o, x);
+
+        currentViewTracker = new ViewTracker(viewId, viewTitle, domain, subdomain, internalReferral, generatedToken, viewDimension, clock);
+        Diagnostics.record(Diagnostics.VIEW_TRACKED, viewId.hashCode(), 0);
+        pingParams.newView();
+
+        Logger.d(TAG, "{} :: TRACK VIEW :: {}", appInfo, viewId);
+
+        this.pingParams.addOneTimeParameter(QueryKeys.FORCE_DECAY);
+        this.pingParams.addOneTimeParameter(QueryKeys.SCROLL_POSITION_TOP);
+        this.pingParams.addOneTimeParameter(QueryKeys.CONTENT_HEIGHT);
+        this.pingParams.addOneTimeParameter(QueryKeys.SCROLL_WINDOW_HEIGHT);
+        this.pingParams.addOneTimeParameter(QueryKeys.DOCUMENT_WIDTH);
+        this.pingParams.addOneTimeParameter(QueryKeys.MAX_SCROLL_DEPTH);
+
+        pingManager.restart();
+    }
+
+    synchronized void userInteractedImpl() {
+        engagementTracker.userEngaged();
+        userInfo.visited();
+        pingManager.alive();
+
+        Logger.d(TAG, "{} :: USER INTERACTED", appInfo);
+	}
+
+    synchronized void userTypedImpl() {
+        engagementTracker.userTyped();
+        userInfo.visited();
+        pingManager.alive();
+        Logger.d(TAG, "{} :: USER TYPED", appInfo);
+	}
+
+    synchronized void userLeftViewImpl(String viewId) {
+        pingManager.setInBackground(true);
+        engagementTracker.userLeftView();
+        Logger.d(TAG, "{} :: USER LEFT", appInfo);
+	}
+
+    synchronized void updateViewDimensions(final int scrollPositionTop,
+                                           final int scrollWindowHeight,
+                                           final int totalContentHeight,
+                                           final int fullyRenderedDocWidth,
+                                           final int maxScrollPositionTop) {
+        currentViewTracker.updateDimension(scrollPositionTop,
+                scrollWindowHeight,
+                totalContentHeight,
+                fullyRenderedDocWidth,
+                maxScrollPositionTop);
+
+        pingParams.addOneTimeParameter(QueryKeys.SCROLL_POSITION_TOP);
+        pingParams.addOneTimeParameter(QueryKeys.CONTENT_HEIGHT);
+        pingParams.addOneTimeParameter(QueryKeys.SCROLL_WINDOW_HEIGHT);
+        pingParams.addOneTimeParameter(QueryKeys.DOCUMENT_WIDTH);
+        pingParams.addOneTimeParameter(QueryKeys.MAX_SCROLL_DEPTH);
+        pingManager.alive();
+    }
+
+    synchronized void updateSubdomain(final String subdomain) {
+        currentViewTracker.updateSubdomain(subdomain);
+        pingManager.alive();
+    }
+
+    synchronized void updateDomain(final String domain) {
+        currentViewTracker.updateDomain(domain);
+        pingManager.alive();
+    }
+
+    synchronized void updateZones(final String zones) {
+        currentViewTracker.updateZones(zones);
+        pingParams.addOneTimeParameter(QueryKeys.ZONE_G2);
+        pingManager.alive();
+    }
+
+    synchronized void updateSections(final String sections) {
+        currentViewTracker.updateSections(sections);
+        pingParams.addOneTimeParameter(QueryKeys.SECTION_G0);
+        pingManager.alive();
+    }
+
+    synchronized void updateAuthors(final String authors) {
+        currentViewTracker.updateAuthors(authors);
+        pingParams.addOneTimeParameter(QueryKeys.AUTHOR_G1);
+        pingManager.alive();
+    }
+
+    synchronized void updatePageLoadingTime(final float pageLoadTime) {
+        currentViewTracker.updatePageLoadingTime(pageLoadTime);
+        /* Not needed at the moment, may need it later on
+        pingParams.addOneTimeParameter(QueryKeys.PAGE_LOAD_TIME);
+        */
+        pingManager.alive();
+    }
+
+	void ping(boolean needsFullPingHint) {
+		final List<String> queries;
+		final EngagementTracker.EngagementSnapshot engagementSnapshot;
+		final PingMode pingMode;
+
+		// setup parameters in a synchronized block:
+		synchronized (this) {
+			pendingUpdates.flush(this);
+
+			if (currentViewTracker == null)
+				return;
+
+			// decrease the likelihood of getting a 500 back
+			if (needsFullPingHint) {
+                pingParams.pingReset();
+            }
+
+            engagementSnapshot = engagementTracker.getEngagementSnapshot();
+            pingMode = pingParams.pingMode;
+            // the next ping comes later for idle readers, the decay has to cover it
+            pingManager.scheduleNextPing(engagementSnapshot.idle);
+            queries = fanOut(encodePing(engagementSnapshot, pingManager.expectedDecayInSeconds()));
+            Logger.d(TAG, "PING! User Data: {}", queries.get(0));
+        }
+		// out of synchronized block, do the actual ping:
+		if (networkState.isNetworkAvailable()) {
+            for (String query : queries) {
+                Diagnostics.record(Diagnostics.PING_SENT, pingMode.ordinal(), query.length());
+            }
+            send(queries)
+                    .subscribe(new Observer<List<PingResult>>() {
+                        @Override
+                        public void onCompleted() {
+
+                        }
+
+                        @Override
+                        public void onError(final Throwable e) {
+                            scheduler.post(new Runnable() {
+                                @Override
+                                public void run() {
+                                    handlePingError(e.getLocalizedMessage(), engagementSnapshot, queries);
+                                }
+                            });
+                        }
+
+                        @Override
+                        public void onNext(final List<PingResult> results) {
+                            if (SIMULATE_VERY_SLOW_SERVER) {
+                                try {
+                                    Thread.sleep(10000);
+                                } catch (InterruptedException io) {
+                                }
+                            }
+
+                            scheduler.post(new Runnable() {
+                                @Override
+                                public void run() {
+                                    handlePingResponses(results, engagementSnapshot);
+                                }
+                            });
+                        }
+                    });
+
+            replayOfflinePings();
+		} else {
+			synchronized( this ) {
+                Logger.e(TAG, "Not pinging: no network connection detected, queueing ping.");
+				pingParams.pingReset();
+				queueOfflinePings(queries, engagementSnapshot);
+			}
+		}
+	}
+
+    /**
+     * @return the ping of the tracker's own account followed by the same ping for
+     * each of the other accounts
+     */
+    private List<String> fanOut(String query) {
+        if (additionalDestinations.isEmpty()) {
+            return Collections.singletonList(query);
+        }
+
+        int destinationParamsLength = currentViewTracker.getDestinationParamsLength();
+        List<String> queries = new ArrayList<>(additionalDestinations.size() + 1);
+        queries.add(query);
+        for (PingDestination destination : additionalDestinations) {
+            queries.add(destination.retarget(query, destinationParamsLength));
+        }
+        return queries;
+    }
+
+    /**
+     * Sends the pings of all accounts together: in the transport's batch if it
+     * batches, otherwise in a batch of their own.
+     *
+     * @return the result of each ping, in order
+     */
+    private Observable<List<PingResult>> send(List<String> queries) {
+        if (queries.size() == 1) {
+            return pingService.ping(queries.get(0)).map(TO_LIST);
+        }
+
+        if (pingService.isBatching()) {
+            List<Observable<PingResult>> pings = new ArrayList<>(queries.size());
+            for (String query : queries) {
+                pings.add(pingService.ping(query));
+            }
+            return Observable.zip(pings, COLLECT_RESULTS);
+        }
+
+        return pingService.pingBatch(queries);
+    }
+
+    /**
+     * Builds the query of a ping for the current view from the given engagement.
+     *
+     * @param decay the decay to send, see {@link PingIntervalPolicy}
+     */
+    synchronized String encodePing(EngagementTracker.EngagementSnapshot engagementSnapshot, int decay) {
+        pingEncoder.reset();
+
+        // host, ids, token, content, referrer, title, timezone, ...
+        currentViewTracker.appendStaticParams(pingEncoder, pingParams, appInfo, userInfo.getUserID());
+
+        addParameterIfRequired(QueryKeys.IS_NEW_USER, userInfo.isNewUser());
+        addParameterIfRequired(QueryKeys.VISIT_FREQUENCY, userInfo.getUserVisitFrequencyString());
+        if (pingParams.includeParameter(QueryKeys.TIME_ON_VIEW_IN_MINUTES)) {
+            pingEncoder.appendTwoDecimals(QueryKeys.TIME_ON_VIEW_IN_MINUTES, currentViewTracker.getViewingTimeInMinutes());
+        }
+        currentViewTracker.appendDimensionParams(pingEncoder, pingParams);
+
+        addParameterIfRequired(QueryKeys.DECAY, decay);
+
+        // engagement keys
+        pingEncoder.append(QueryKeys.READING, engagementSnapshot.reading);
+        pingEncoder.append(QueryKeys.WRITING, engagementSnapshot.typed);
+        pingEncoder.append(QueryKeys.IDLING, engagementSnapshot.idle);
+        pingEncoder.append(QueryKeys.ENGAGED_SECONDS, engagementSnapshot.totalEngagement);
+        pingEncoder.append(QueryKeys.ENGAGED_SECONDS_SINCE_LAST_PING, engagementSnapshot.engagementSinceLastPing);
+
+        if (firstPing) {
+            addParameterIfRequired(QueryKeys.EXTERNAL_REFERRER, appInfo.getExternalReferrer());
+        }
+
+        if (previousToken != null) {
+            addParameterIfRequired(QueryKeys.FORCE_DECAY, previousToken);
+        }
+
+//        if (locationService != null) {
+//            addParameterIfRequired(QueryKeys.LONGITUDE, locationService.getLongitude());
+//            addParameterIfRequired(QueryKeys.LATITUDE, locationService.getLatitude());
+//        }
+
+        if (samplingFactor > 1) {
+            pingEncoder.append(QueryKeys.SAMPLING_FACTOR, samplingFactor);
+        }
+
+        // last key must be an empty underscore
+        pingEncoder.append(QueryKeys.END_MARKER, "");
+
+        return pingEncoder.toString();
+    }
+
+    private void queueOfflinePings(List<String> queries, EngagementTracker.EngagementSnapshot engagementSnapshot) {
+        long now = clock.currentTimeMillis();
+
+        for (int i = 0; i < queries.size(); i++) {
+            if (offlinePingQueue.add(now, queries.get(i))) {
+                Metrics.increment(Metrics.PINGS_QUEUED_OFFLINE);
+                Diagnostics.record(Diagnostics.PING_QUEUED_OFFLINE);
+            } else if (i == 0) {
+                // The queued ping carries its own engagement, only fold it back if it could not be stored
+                engagementTracker.lastPingFailed(engagementSnapshot);
+            }
+        }
+    }
+
+    /**
+     * Sends the pings queued while offline, oldest first, tagging each with the
+     * time it was originally taken. In batch mode the backlog goes out in batches,
+     * otherwise one ping at a time.
+     */
+    private void replayOfflinePings() {
+        if (isReplayingOfflinePings) {
+            return;
+        }
+
+        int maxCount = pingService.isBatching() ? PingService.MAX_BATCH_SIZE : 1;
+        List<OfflinePingQueue.QueuedPing> queuedPings = offlinePingQueue.peek(clock.currentTimeMillis(), maxCount);
+        if (queuedPings.isEmpty()) {
+            return;
+        }
+
+        isReplayingOfflinePings = true;
+
+        List<String> batch = new ArrayList<>(queuedPings.size());
+        for (OfflinePingQueue.QueuedPing queuedPing : queuedPings) {
+            batch.add(PingEncoder.withQueuedTimestamp(queuedPing.query, queuedPing.timestamp));
+        }
+
+        Observable<List<PingResult>> replay;
+        if (pingService.isBatching()) {
+            replay = pingService.pingBatch(batch);
+        } else {
+            replay = pingService.ping(batch.get(0)).map(TO_LIST);
+        }
+
+        replay.subscribe(new Observer<List<PingResult>>() {
+            @Override
+            public void onCompleted() {
+
+            }
+
+            @Override
+            public void onError(final Throwable e) {
+                scheduler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        Logger.e(TAG, "Error replaying queued pings: {}", e.getLocalizedMessage());
+                        isReplayingOfflinePings = false;
+                    }
+                });
+            }
+
+            @Override
+            public void onNext(final List<PingResult> results) {
+                scheduler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        handleReplayResults(results);
+                    }
+                });
+            }
+        });
+    }
+
+    private void handleReplayResults(List<PingResult> results) {
+        isReplayingOfflinePings = false;
+
+        // Anything but a 503 is final for a replayed ping: a 500 or 400 would not be
+        // fixed by resending it. On a 503 the server is busy, keep the rest for later.
+        int sent = 0;
+        for (PingResult result : results) {
+            if (result.code == 503) {
+                break;
+            }
+            sent++;
+        }
+
+        offlinePingQueue.remove(sent);
+        Diagnostics.record(Diagnostics.QUEUED_PINGS_REPLAYED, sent, 0);
+
+        if (sent == results.size()) {
+            replayOfflinePings();
+        }
+    }
+
+    /**
+     * The response of the tracker's own account drives the schedule and the engagement
+     * carried over. The accounts share one encoding, so a 400 or 500 from any of the
+     * others makes the next ping a full one for all of them.
+     */
+    private void handlePingResponses(List<PingResult> results, EngagementTracker.EngagementSnapshot engagementSnapshot) {
+        handlePingResponse(results.get(0), engagementSnapshot);
+
+        synchronized (this) {
+            for (int i = 1; i < results.size(); i++) {
+                int code = results.get(i).code;
+                if ((code == 500 || code == 400) && !pingParams.includesOptionalParameters()) {
+                    pingParams.pingError();
+                }
+            }
+        }
+    }
+
+    private void handlePingResponse(PingResult result, EngagementTracker.EngagementSnapshot engagementSnapshot) {
+        int code = result.code;
+        synchronized( this ) {
+            // Only process ping response when able to
+            if (scheduler.isAlive()) {
+                boolean isInBackground;
+                try {
+                    isInBackground = foregroundState.isInBackground();
+                } catch (IllegalStateException e) {
+                    return;
+                }
+
+                pingParams.pingComplete(code);
+                if (code == 503) {
+                    ++sequentialErrors;
+                } else {
+                    sequentialErrors = 0;
+                }
+                Metrics.setGauge(Metrics.SEQUENTIAL_503_ERRORS, sequentialErrors);
+                // System.out.println( sequentialErrors );
+                // A busy server that says when to come back is listened to right away
+                if (sequentialErrors == 3 || (code == 503 && result.retryAfterMillis != PingResult.NO_RETRY_AFTER)) {
+                    sequentialErrors = 0;
+                    pingParams.pingError();
+                    pingManager.suspendDueToServerBusy(result.retryAfterMillis);
+                }
+                pingManager.setInBackground(isInBackground);
+                if (code == 500 || code == 400 || code == 202) {
+                    engagementTracker.lastPingFailed(engagementSnapshot);
+                    pingManager.retryWithBackoff(result.retryAfterMillis);
+                }
+                if (code == 200) {
+                    pingManager.pingSucceeded();
+                    lastSuccessfulPingTime = clock.currentTimeMillis();
+                    if (firstPing) {
+                        firstPing = false;
+                    }
+                }
+            }
+        }
+    }
+
+    private void handlePingError(String errorMessage, EngagementTracker.EngagementSnapshot engagementSnapshot,
+                                 List<String> queries) {
+        pingParams.pingError();
+        Diagnostics.record(Diagnostics.PING_FAILED);
+        Logger.e(TAG, "Error pinging Chartbeat: {}", errorMessage);
+        queueOfflinePings(queries, engagementSnapshot);
+    }
+
+	private synchronized void addParameterIfRequired(String key, String value) {
+        if (key != null && value != null && pingParams.includeParameter(key)) {
+            pingEncoder.append(key, value);
+        }
+	}
+
+	private synchronized void addParameterIfRequired(String key, long value) {
+        if (pingParams.includeParameter(key)) {
+            pingEncoder.append(key, value);
+        }
+	}
+
+	private synchronized void addParameterIfRequired(String key, boolean flag) {
+        if (pingParams.includeParameter(key)) {
+            pingEncoder.append(key, flag);
+        }
+	}
+}
@@ -0,0 +1,55 @@
+package com.chartbeat.androidsdk;
+
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+import retrofit2.http.Body;
+import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.Headers;
+import retrofit2.http.POST;
+import retrofit2.http.Url;
+import rx.Observable;
+
+/**
+ * Created by Mike Dai Wang on 2016-02-05.
+ */
+interface ChartbeatAPI {
+    String ENDPOINT = "https://ping.chartbeat.net";
+    String HOST = "ping.chartbeat.net";
+
+    String PING_PATH = "ping";
+    String COMPACT_PING_PATH = "ping/compact";
+
+    /**
+     * @param pingUrl the ping path followed by the already encoded query string
+     */
+    @Headers("Host: " + HOST)
+    @GET
+    Observable<Response<Void>> ping(@Url String pingUrl, @Header("User-Agent") String userAgent);
+
+    /**
+     * Sends several pings at once. The body is the gzip-compressed list of ping query
+     * strings, one per line, and the response body lists one status code per line
+     * in the same order.
+     */
+    @Headers({"Host: " + HOST, "Content-Encoding: gzip"})
+    @POST("ping/batch")
+    Observable<Response<ResponseBody>> pingBatch(@Body RequestBody pings, @Header("User-Agent") String userAgent);
+
+    /**
+     * Sends a ping in the {@link CompactPingFormat}.
+     */
+    @Headers("Host: " + HOST)
+    @POST(COMPACT_PING_PATH)
+    Observable<Response<Void>> pingCompact(@Body RequestBody ping, @Header("User-Agent") String userAgent);
+
+    /**
+     * Sends several pings in the {@link CompactPingFormat}. The body is gzip-compressed,
+     * each ping preceded by its length as a varint, and the response is that of
+     * {@link #pingBatch(RequestBody, String)}.
+     */
+    @Headers({"Host: " + HOST, "Content-Encoding: gzip"})
+    @POST(COMPACT_PING_PATH + "/batch")
+    Observable<Response<ResponseBody>> pingCompactBatch(@Body RequestBody pings, @Header("User-Agent") String userAgent);
+}
@@ -0,0 +1,15 @@
+package com.chartbeat.androidsdk;
+
+/**
+ * Source of wall clock time, so that time based policies can run against a virtual clock.
+ */
+interface Clock {
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    long currentTimeMillis();
+}
@@ -0,0 +1,154 @@
+package com.chartbeat.androidsdk;
+
+/**
+ * Holds back high-frequency view updates on the tracker thread so that only the
+ * latest value of each reaches the {@link ChartBeatTracker}. Scroll positions keep
+ * the latest position while folding the running max scroll depth; repeated
+ * domain, subdomain, zones, authors and sections calls collapse to the last one.
+ *
+ * Pending updates are applied right before the next ping and before any command
+ * that changes which view is being tracked, so they always land on the view they
+ * were set for. Only accessed from the tracker thread.
+ */
+final class CommandCoalescer {
+    private static final String TAG = CommandCoalescer.class.getSimpleName();
+
+    private boolean hasPosition;
+    private int scrollPositionTop;
+    private int scrollWindowHeight;
+    private int totalContentHeight;
+    private int fullyRenderedDocWidth;
+    private int maxScrollPositionTop;
+
+    private boolean hasDomain;
+    private String domain;
+    private boolean hasSubdomain;
+    private String subdomain;
+    private boolean hasZones;
+    private String zones;
+    private boolean hasAuthors;
+    private String authors;
+    private boolean hasSections;
+    private String sections;
+
+    private boolean pending;
+
+    /**
+     * @return true if the command was held back and must not be dispatched
+     */
+    boolean stage(TrackerCommand command) {
+        switch (command.type) {
+            case TrackerCommand.SET_POSITION:
+                if (!hasPosition) {
+                    hasPosition = true;
+                    maxScrollPositionTop = command.scrollPositionTop;
+                } else {
+                    maxScrollPositionTop = Math.max(maxScrollPositionTop, command.scrollPositionTop);
+                }
+                scrollPositionTop = command.scrollPositionTop;
+                scrollWindowHeight = command.scrollWindowHeight;
+                totalContentHeight = command.totalContentHeight;
+                fullyRenderedDocWidth = command.fullyRenderedDocWidth;
+                break;
+            case TrackerCommand.SET_DOMAIN:
+                hasDomain = true;
+                domain = command.value;
+                break;
+            case TrackerCommand.SET_SUBDOMAIN:
+                hasSubdomain = true;
+                subdomain = command.value;
+                break;
+            case TrackerCommand.SET_ZONES:
+                hasZones = true;
+                zones = command.value;
+                break;
+            case TrackerCommand.SET_AUTHORS:
+                hasAuthors = true;
+                authors = command.value;
+                break;
+            case TrackerCommand.SET_SECTIONS:
+                hasSections = true;
+                sections = command.value;
+                break;
+            default:
+                return false;
+        }
+
+        pending = true;
+        return true;
+    }
+
+    /**
+     * @return true if the command changes the tracked view or stops tracking,
+     *         so pending updates have to be applied before it
+     */
+    static boolean isViewBoundary(TrackerCommand command) {
+        switch (command.type) {
+            case TrackerCommand.INIT_TRACKER:
+            case TrackerCommand.TRACK_VIEW:
+            case TrackerCommand.LEFT_VIEW:
+            case TrackerCommand.STOP_TRACKER:
+            case TrackerCommand.PAUSE_TRACKER:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    void flush(ChartBeatTracker tracker) {
+        if (!pending) {
+            return;
+        }
+
+        if (tracker.isNotTrackingAnyView()) {
+            Logger.e(TAG, "View tracking hasn't started, please call Tracker.trackView() first");
+            clear();
+            return;
+        }
+
+        if (hasDomain) {
+            tracker.updateDomain(domain);
+        }
+
+        if (hasSubdomain) {
+            tracker.updateSubdomain(subdomain);
+        }
+
+        if (hasZones) {
+            tracker.updateZones(zones);
+        }
+
+        if (hasAuthors) {
+            tracker.updateAuthors(authors);
+        }
+
+        if (hasSections) {
+            tracker.updateSections(sections);
+        }
+
+        if (hasPosition) {
+            tracker.updateViewDimensions(scrollPositionTop,
+                    scrollWindowHeight,
+                    totalContentHeight,
+                    fullyRenderedDocWidth,
+                    maxScrollPositionTop);
+        }
+
+        clear();
+    }
+
+    void clear() {
+        pending = false;
+        hasPosition = false;
+        hasDomain = false;
+        domain = null;
+        hasSubdomain = false;
+        subdomain = null;
+        hasZones = false;
+        zones = null;
+        hasAuthors = false;
+        authors = null;
+        hasSections = false;
+        sections = null;
+    }
+}
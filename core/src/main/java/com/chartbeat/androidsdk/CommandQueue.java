@@ -0,0 +1,56 @@
+package com.chartbeat.androidsdk;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free multi-producer, single-consumer queue of {@link TrackerCommand}s.
+ *
+ * Commands are linked intrusively through {@link TrackerCommand#next}, so offering
+ * never allocates. Any thread may offer; only the tracker thread may poll.
+ */
+final class CommandQueue {
+    private final AtomicReference<TrackerCommand> tail;
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    // Consumer side only. Always points at the last consumed command (or the initial stub).
+    private TrackerCommand head;
+
+    CommandQueue() {
+        TrackerCommand stub = TrackerCommand.obtain(0);
+        head = stub;
+        tail = new AtomicReference<>(stub);
+    }
+
+    void offer(TrackerCommand command) {
+        command.next = null;
+        size.incrementAndGet();
+
+        TrackerCommand previous = tail.getAndSet(command);
+        previous.next = command;
+    }
+
+    /**
+     * Returns the next command, or null if the queue is empty. The returned command
+     * stays owned by the queue and is recycled on the following poll, so callers
+     * must not keep a reference to it.
+     */
+    TrackerCommand poll() {
+        TrackerCommand current = head;
+        TrackerCommand next = current.next;
+
+        if (next == null) {
+            return null;
+        }
+
+        head = next;
+        size.decrementAndGet();
+        current.recycle();
+
+        return next;
+    }
+
+    int size() {
+        return size.get();
+    }
+}
@@ -0,0 +1,120 @@
+package com.chartbeat.androidsdk;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Server side of the {@link CompactPingFormat}: turns compact pings back into the query
+ * strings {@link PingEncoder} builds, keeping the dictionaries of the most recently seen
+ * view tokens. Thread-safe.
+ */
+final class CompactPingDecoder {
+    private final Map<String, String[]> dictionaries;
+
+    /**
+     * @param maxTokens how many view dictionaries to keep, the least recently used
+     *                  going first
+     */
+    CompactPingDecoder(final int maxTokens) {
+        dictionaries = new LinkedHashMap<String, String[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String[]> eldest) {
+                return size() > maxTokens;
+            }
+        };
+    }
+
+    /**
+     * Reads one compact ping.
+     *
+     * @throws IOException if the ping is malformed or references a string that is
+     * not in its dictionary
+     */
+    synchronized String decode(CompactPingFormat.Reader reader) throws IOException {
+        int version = reader.readByte();
+        if (version != CompactPingFormat.VERSION) {
+            throw new IOException("Unknown compact ping version " + version);
+        }
+
+        long bitmap = reader.readVarint();
+        if ((bitmap & ~(CompactPingFormat.EXTRA_KEYS_BIT | (CompactPingFormat.EXTRA_KEYS_BIT - 1))) != 0) {
+            throw new IOException("Unknown keys in compact ping");
+        }
+
+        PingEncoder query = new PingEncoder();
+        String[] dictionary = null;
+
+        for (int i = 0; i < CompactPingFormat.END_MARKER_INDEX; i++) {
+            if ((bitmap & (1L << i)) == 0) {
+                continue;
+            }
+
+            String value = readValue(reader, dictionary);
+            if (i == CompactPingFormat.TOKEN_INDEX) {
+                dictionary = dictionaries.get(value);
+                if (dictionary == null) {
+                    dictionary = new String[CompactPingFormat.MAX_SLOTS];
+                    dictionaries.put(value, dictionary);
+                }
+            }
+            query.append(CompactPingFormat.KEYS[i], value);
+        }
+
+        // The end marker stays last, after the extra keys
+        String endMarker = null;
+        if ((bitmap & (1L << CompactPingFormat.END_MARKER_INDEX)) != 0) {
+            endMarker = readValue(reader, dictionary);
+        }
+        if ((bitmap & CompactPingFormat.EXTRA_KEYS_BIT) != 0) {
+            long count = reader.readVarint();
+            for (long i = 0; i < count; i++) {
+                query.append(readValue(reader, null), readValue(reader, null));
+            }
+        }
+        if (endMarker != null) {
+            query.append(QueryKeys.END_MARKER, endMarker);
+        }
+
+        return query.toString();
+    }
+
+    /**
+     * @param dictionary null if the ping has no token
+     */
+    private static String readValue(CompactPingFormat.Reader reader, String[] dictionary) throws IOException {
+        long header = reader.readVarint();
+        long payload = header >>> 2;
+
+        switch ((int) (header & 3)) {
+            case CompactPingFormat.TAG_NUMBER:
+                return Long.toString(CompactPingFormat.unzigzag(payload));
+            case CompactPingFormat.TAG_HUNDREDTHS:
+                return CompactPingFormat.formatHundredths(payload);
+            case CompactPingFormat.TAG_LITERAL:
+                if (payload > Integer.MAX_VALUE) {
+                    throw new IOException("Literal too long");
+                }
+                long slot = reader.readVarint() - 1;
+                String value = reader.readUtf8((int) payload);
+                if (slot >= 0) {
+                    checkSlot(dictionary, slot);
+                    dictionary[(int) slot] = value;
+                }
+                return value;
+            default:
+                checkSlot(dictionary, payload);
+                String referenced = dictionary[(int) payload];
+                if (referenced == null) {
+                    throw new IOException("Reference to unknown dictionary slot " + payload);
+                }
+                return referenced;
+        }
+    }
+
+    private static void checkSlot(String[] dictionary, long slot) throws IOException {
+        if (dictionary == null || slot >= CompactPingFormat.MAX_SLOTS) {
+            throw new IOException("Invalid dictionary slot " + slot);
+        }
+    }
+}
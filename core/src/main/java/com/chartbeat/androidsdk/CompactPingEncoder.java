@@ -0,0 +1,187 @@
+package com.chartbeat.androidsdk;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns ping query strings into the {@link CompactPingFormat}, keeping a dictionary of
+ * the strings sent for each of the last few view tokens.
+ *
+ * A string is written in full, with its slot, until a ping carrying it is answered
+ * with a 2xx, and only referenced after that, so the server has always seen the slot
+ * before it is referenced even if pings are lost or answered out of order. A 400 may
+ * mean the server lost the dictionary, every string of the token is then sent in full
+ * again. Thread-safe: pings are encoded on the tracker thread and answered on io threads.
+ */
+final class CompactPingEncoder {
+    private static final int MAX_TOKENS = 8;
+
+    // Shorter strings cost no more written in full than referenced
+    private static final int MIN_DICTIONARY_LENGTH = 3;
+
+    private final Map<String, Dictionary> dictionaries = new LinkedHashMap<String, Dictionary>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Dictionary> eldest) {
+            return size() > MAX_TOKENS;
+        }
+    };
+
+    private static final class Dictionary {
+        final Map<String, Integer> slots = new HashMap<>();
+        long acknowledgedSlots;
+    }
+
+    /**
+     * An encoded ping, to hand back to {@link #responded(CompactPing, int)} with its
+     * status code.
+     */
+    static final class CompactPing {
+        final byte[] bytes;
+        private final Dictionary dictionary;
+        private final long writtenSlots;
+
+        CompactPing(byte[] bytes, Dictionary dictionary, long writtenSlots) {
+            this.bytes = bytes;
+            this.dictionary = dictionary;
+            this.writtenSlots = writtenSlots;
+        }
+    }
+
+    /**
+     * @param query an encoded ping query string, as {@link PingEncoder} builds them
+     */
+    synchronized CompactPing encode(String query) {
+        String[] values = new String[CompactPingFormat.KEYS.length];
+        List<String> extras = new ArrayList<>(0);
+        long bitmap = 0;
+
+        int start = 0;
+        while (start < query.length()) {
+            int end = query.indexOf('&', start);
+            if (end < 0) {
+                end = query.length();
+            }
+
+            if (end > start) {
+                int separator = query.indexOf('=', start);
+                if (separator < 0 || separator > end) {
+                    separator = end;
+                }
+                String key = PingEncoder.decode(query.substring(start, separator));
+                String value = PingEncoder.decode(query.substring(Math.min(separator + 1, end), end));
+
+                int index = CompactPingFormat.indexOf(key);
+                if (index >= 0 && values[index] == null) {
+                    values[index] = value;
+                    bitmap |= 1L << index;
+                } else {
+                    extras.add(key);
+                    extras.add(value);
+                }
+            }
+            start = end + 1;
+        }
+        if (!extras.isEmpty()) {
+            bitmap |= CompactPingFormat.EXTRA_KEYS_BIT;
+        }
+
+        Dictionary dictionary = null;
+        String token = values[CompactPingFormat.TOKEN_INDEX];
+        if (token != null) {
+            dictionary = dictionaries.get(token);
+            if (dictionary == null) {
+                dictionary = new Dictionary();
+                dictionaries.put(token, dictionary);
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(query.length() / 2);
+        out.write(CompactPingFormat.VERSION);
+        CompactPingFormat.writeVarint(out, bitmap);
+
+        long writtenSlots = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                writtenSlots |= writeValue(out, values[i], i == CompactPingFormat.TOKEN_INDEX ? null : dictionary);
+            }
+        }
+        if (!extras.isEmpty()) {
+            CompactPingFormat.writeVarint(out, extras.size() / 2);
+            for (String extra : extras) {
+                writeLiteral(out, extra, -1);
+            }
+        }
+
+        return new CompactPing(out.toByteArray(), dictionary, writtenSlots);
+    }
+
+    /**
+     * Records the status code a ping was answered with.
+     */
+    synchronized void responded(CompactPing ping, int code) {
+        if (ping.dictionary == null) {
+            return;
+        }
+
+        if (code >= 200 && code < 300) {
+            ping.dictionary.acknowledgedSlots |= ping.writtenSlots;
+        } else if (code == 400) {
+            ping.dictionary.acknowledgedSlots = 0;
+        }
+    }
+
+    /**
+     * @return the bit of the dictionary slot written in full, if any
+     */
+    private static long writeValue(ByteArrayOutputStream out, String value, Dictionary dictionary) {
+        long number = CompactPingFormat.parseNumber(value);
+        if (number != Long.MIN_VALUE) {
+            CompactPingFormat.writeHeader(out, CompactPingFormat.zigzag(number), CompactPingFormat.TAG_NUMBER);
+            return 0;
+        }
+
+        long hundredths = CompactPingFormat.parseHundredths(value);
+        if (hundredths >= 0) {
+            CompactPingFormat.writeHeader(out, hundredths, CompactPingFormat.TAG_HUNDREDTHS);
+            return 0;
+        }
+
+        if (dictionary == null || value.length() < MIN_DICTIONARY_LENGTH) {
+            writeLiteral(out, value, -1);
+            return 0;
+        }
+
+        Integer slot = dictionary.slots.get(value);
+        if (slot == null && dictionary.slots.size() < CompactPingFormat.MAX_SLOTS) {
+            slot = dictionary.slots.size();
+            dictionary.slots.put(value, slot);
+        }
+        if (slot == null) {
+            writeLiteral(out, value, -1);
+            return 0;
+        }
+
+        long slotBit = 1L << slot;
+        if ((dictionary.acknowledgedSlots & slotBit) != 0) {
+            CompactPingFormat.writeHeader(out, slot, CompactPingFormat.TAG_REFERENCE);
+            return 0;
+        }
+
+        writeLiteral(out, value, slot);
+        return slotBit;
+    }
+
+    /**
+     * @param slot the dictionary slot to keep the string in, -1 for none
+     */
+    private static void writeLiteral(ByteArrayOutputStream out, String value, int slot) {
+        byte[] utf8 = value.getBytes(CompactPingFormat.UTF_8);
+        CompactPingFormat.writeHeader(out, utf8.length, CompactPingFormat.TAG_LITERAL);
+        CompactPingFormat.writeVarint(out, slot + 1);
+        out.write(utf8, 0, utf8.length);
+    }
+}
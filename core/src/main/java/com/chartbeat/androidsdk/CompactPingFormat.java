@@ -0,0 +1,226 @@
+package com.chartbeat.androidsdk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The compact ping format, an opt-in alternative to the query string for readers on
+ * metered connections, see {@link CompactPingEncoder} and {@link CompactPingDecoder}.
+ * A ping is:
+ *
+ * <pre>
+ * [byte version][varint key bitmap][value of each key present, in KEYS order][extra keys]
+ * </pre>
+ *
+ * Bit i of the bitmap stands for {@code KEYS[i]}. Bit {@code KEYS.length} flags extra
+ * keys, those not in the table or repeated: a varint count followed by the key and
+ * value of each. A value starts with a varint header, the payload shifted left by two
+ * over one of the tags:
+ *
+ * <ul>
+ * <li>{@link #TAG_NUMBER}: the zigzag-encoded value of a canonical decimal integer;</li>
+ * <li>{@link #TAG_HUNDREDTHS}: a non-negative value with two decimals, times 100;</li>
+ * <li>{@link #TAG_LITERAL}: the UTF-8 length of a string, followed by a varint of its
+ * dictionary slot plus one (0 for none) and the bytes;</li>
+ * <li>{@link #TAG_REFERENCE}: the dictionary slot of a string sent before.</li>
+ * </ul>
+ *
+ * Each view token has its own dictionary of {@link #MAX_SLOTS} strings, which is why
+ * the token is the first key of the table and is never a reference.
+ */
+final class CompactPingFormat {
+    static final int VERSION = 1;
+
+    static final int TAG_NUMBER = 0;
+    static final int TAG_HUNDREDTHS = 1;
+    static final int TAG_LITERAL = 2;
+    static final int TAG_REFERENCE = 3;
+
+    static final int MAX_SLOTS = 64;
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Wire order, never reorder: new keys go at the end, before the end marker
+    static final String[] KEYS = {
+            QueryKeys.TOKEN, QueryKeys.HOST, QueryKeys.VIEW_ID, QueryKeys.USER_ID, QueryKeys.SUBDOMAIN,
+            QueryKeys.ACCOUNT_ID, QueryKeys.SECTION_G0, QueryKeys.AUTHOR_G1, QueryKeys.ZONE_G2,
+            QueryKeys.PAGE_LOAD_TIME, QueryKeys.INTERNAL_REFERRER, QueryKeys.SDK_VERSION, QueryKeys.VIEW_TITLE,
+            QueryKeys.TIME_ZONE, QueryKeys.SCREEN_WIDTH, QueryKeys.MEMFLY_API_VERSION, QueryKeys.IS_NEW_USER,
+            QueryKeys.VISIT_FREQUENCY, QueryKeys.TIME_ON_VIEW_IN_MINUTES, QueryKeys.SCROLL_POSITION_TOP,
+            QueryKeys.MAX_SCROLL_DEPTH, QueryKeys.CONTENT_HEIGHT, QueryKeys.DOCUMENT_WIDTH,
+            QueryKeys.SCROLL_WINDOW_HEIGHT, QueryKeys.DECAY, QueryKeys.READING, QueryKeys.WRITING,
+            QueryKeys.IDLING, QueryKeys.ENGAGED_SECONDS, QueryKeys.ENGAGED_SECONDS_SINCE_LAST_PING,
+            QueryKeys.EXTERNAL_REFERRER, QueryKeys.FORCE_DECAY, QueryKeys.QUEUED_PING_TIMESTAMP,
+            QueryKeys.SAMPLING_FACTOR, QueryKeys.END_MARKER };
+
+    static final int TOKEN_INDEX = 0;
+    static final int END_MARKER_INDEX = KEYS.length - 1;
+    static final long EXTRA_KEYS_BIT = 1L << KEYS.length;
+
+    // Keeps the header of a number or hundredths within a varint of 64 bits
+    private static final long MAX_PAYLOAD = 1L << 60;
+    private static final int MAX_DIGITS = 18;
+
+    private static final Map<String, Integer> KEY_INDEXES = new HashMap<>();
+
+    static {
+        for (int i = 0; i < KEYS.length; i++) {
+            KEY_INDEXES.put(KEYS[i], i);
+        }
+    }
+
+    private CompactPingFormat() {
+    }
+
+    /**
+     * @return the index of a key in {@link #KEYS}, or -1
+     */
+    static int indexOf(String key) {
+        Integer index = KEY_INDEXES.get(key);
+        return index == null ? -1 : index;
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static void writeHeader(ByteArrayOutputStream out, long payload, int tag) {
+        writeVarint(out, (payload << 2) | tag);
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * @return the value of a decimal integer written the way {@link Long#toString(long)}
+     * would, or {@link Long#MIN_VALUE} if it is written any other way or too large
+     */
+    static long parseNumber(String value) {
+        int length = value.length();
+        int start = length > 0 && value.charAt(0) == '-' ? 1 : 0;
+        int digits = length - start;
+
+        if (digits == 0 || digits > MAX_DIGITS || (value.charAt(start) == '0' && (digits > 1 || start == 1))) {
+            return Long.MIN_VALUE;
+        }
+
+        long number = 0;
+        for (int i = start; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return Long.MIN_VALUE;
+            }
+            number = number * 10 + (c - '0');
+        }
+
+        if (number >= MAX_PAYLOAD / 2) {
+            return Long.MIN_VALUE;
+        }
+        return start == 1 ? -number : number;
+    }
+
+    /**
+     * @return the hundredths of a value written with exactly two decimals, the way
+     * {@link PingEncoder#appendTwoDecimals(String, double)} does, or -1
+     */
+    static long parseHundredths(String value) {
+        int length = value.length();
+        if (length < 4 || value.charAt(length - 3) != '.') {
+            return -1;
+        }
+
+        char tens = value.charAt(length - 2);
+        char ones = value.charAt(length - 1);
+        if (tens < '0' || tens > '9' || ones < '0' || ones > '9') {
+            return -1;
+        }
+
+        long units = parseNumber(value.substring(0, length - 3));
+        if (units < 0 || units >= MAX_PAYLOAD / 100) {
+            return -1;
+        }
+        return units * 100 + (tens - '0') * 10 + (ones - '0');
+    }
+
+    static String formatHundredths(long hundredths) {
+        long fraction = hundredths % 100;
+        return (hundredths / 100) + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+
+    /**
+     * Reads a compact ping, or a batch of them, from an array.
+     */
+    static final class Reader {
+        private final byte[] bytes;
+        private final int end;
+        private int position;
+
+        Reader(byte[] bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        int position() {
+            return position;
+        }
+
+        boolean hasRemaining() {
+            return position < end;
+        }
+
+        int readByte() throws IOException {
+            if (position >= end) {
+                throw new IOException("Truncated compact ping");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        /**
+         * @return a reader of the next ping of a batch, the length of which comes first
+         */
+        Reader nextPing() throws IOException {
+            long length = readVarint();
+            if (length > end - position) {
+                throw new IOException("Truncated compact ping");
+            }
+
+            Reader ping = new Reader(bytes, position, (int) length);
+            position += (int) length;
+            return ping;
+        }
+
+        String readUtf8(int length) throws IOException {
+            if (length < 0 || length > end - position) {
+                throw new IOException("Truncated compact ping");
+            }
+            String value = new String(bytes, position, length, UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.chartbeat.androidsdk;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Optional in-memory record of the last {@link #CAPACITY} things the SDK did, for
+ * support to read from a device in the field without turning on logcat, see
+ * {@code Tracker.dumpDiagnostics()}.
+ *
+ * Events are a time, a type and two numbers, packed into a ring of longs allocated
+ * once, so recording never allocates; they are only turned into text by
+ * {@link #dump()}. Until enabled, recording is a single volatile read.
+ */
+final class Diagnostics {
+    static final int CAPACITY = 256;
+
+    // Events, with what their two values hold
+    static final int VIEW_TRACKED = 0;          // hash of the view id
+    static final int TRACKER_STOPPED = 1;
+    static final int PING_SENT = 2;             // ping mode ordinal, query length
+    static final int PING_RESPONSE = 3;         // status code, latency in ms
+    static final int PING_FAILED = 4;
+    static final int PING_QUEUED_OFFLINE = 5;
+    static final int QUEUED_PINGS_REPLAYED = 6; // pings
+    static final int RETRY_SCHEDULED = 7;       // delay in ms
+    static final int SUSPENDED = 8;             // duration in ms
+    static final int NETWORK_RESTORED = 9;
+    static final int BATCH_SENT = 10;           // pings, bytes
+
+    private static final String[] EVENT_NAMES = {
+            "VIEW_TRACKED", "TRACKER_STOPPED", "PING_SENT", "PING_RESPONSE", "PING_FAILED",
+            "PING_QUEUED_OFFLINE", "QUEUED_PINGS_REPLAYED", "RETRY_SCHEDULED", "SUSPENDED",
+            "NETWORK_RESTORED", "BATCH_SENT" };
+
+    private static final int LONGS_PER_EVENT = 3; // time, type, values as two ints
+
+    // Null while disabled. Guarded by Diagnostics.class, volatile for the check in record().
+    private static volatile long[] events;
+    private static int nextEvent;
+    private static int eventCount;
+
+    private Diagnostics() {
+    }
+
+    static synchronized void setEnabled(boolean enabled) {
+        if (enabled == (events != null)) {
+            return;
+        }
+
+        nextEvent = 0;
+        eventCount = 0;
+        events = enabled ? new long[CAPACITY * LONGS_PER_EVENT] : null;
+    }
+
+    static boolean isEnabled() {
+        return events != null;
+    }
+
+    static void record(int event) {
+        record(event, 0, 0);
+    }
+
+    static void record(int event, long value1, long value2) {
+        if (events == null) {
+            return;
+        }
+
+        long time = System.currentTimeMillis();
+        synchronized (Diagnostics.class) {
+            long[] ring = events;
+            if (ring == null) {
+                return;
+            }
+
+            int slot = nextEvent * LONGS_PER_EVENT;
+            ring[slot] = time;
+            ring[slot + 1] = event;
+            ring[slot + 2] = (value1 << 32) | (value2 & 0xFFFFFFFFL);
+
+            nextEvent = (nextEvent + 1) % CAPACITY;
+            eventCount = Math.min(eventCount + 1, CAPACITY);
+        }
+    }
+
+    /**
+     * @return the recorded events, oldest first, one per line, or an empty string
+     *         when disabled
+     */
+    static String dump() {
+        long[] copy;
+        int first;
+        int count;
+        synchronized (Diagnostics.class) {
+            if (events == null) {
+                return "";
+            }
+            copy = events.clone();
+            count = eventCount;
+            first = (nextEvent - count + CAPACITY) % CAPACITY;
+        }
+
+        SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        timeFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        StringBuilder dump = new StringBuilder(count * 64);
+        for (int i = 0; i < count; i++) {
+            int slot = ((first + i) % CAPACITY) * LONGS_PER_EVENT;
+            int event = (int) copy[slot + 1];
+            int value1 = (int) (copy[slot + 2] >> 32);
+            int value2 = (int) copy[slot + 2];
+
+            dump.append(timeFormat.format(new Date(copy[slot]))).append(' ').append(EVENT_NAMES[event]);
+            describe(dump, event, value1, value2);
+            dump.append('\n');
+        }
+        return dump.toString();
+    }
+
+    private static void describe(StringBuilder line, int event, int value1, int value2) {
+        switch (event) {
+            case VIEW_TRACKED:
+                line.append(" view=").append(Integer.toHexString(value1));
+                break;
+            case PING_SENT:
+                line.append(" mode=").append(PingMode.values()[value1]).append(" bytes=").append(value2);
+                break;
+            case PING_RESPONSE:
+                line.append(" code=").append(value1).append(" ms=").append(value2);
+                break;
+            case QUEUED_PINGS_REPLAYED:
+                line.append(" pings=").append(value1);
+                break;
+            case RETRY_SCHEDULED:
+            case SUSPENDED:
+                line.append(" ms=").append(value1);
+                break;
+            case BATCH_SENT:
+                line.append(" pings=").append(value1).append(" bytes=").append(value2);
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.chartbeat.androidsdk;
+
+/**
+ * Tracks user engagement and calculates the necessary metrics.
+ *
+ * A view counts one engaged second for every second since it was entered that falls
+ * within {@link #ENGAGEMENT_WINDOW} of entering the view or of the latest interaction.
+ * Rather than checking that every second on a timer, the seconds are counted when
+ * an interaction or a snapshot comes in, so an idle view costs nothing.
+ * 
+ * @author bjorn
+ */
+final class EngagementTracker {
+    private static final String TAG = EngagementTracker.class.getSimpleName();
+
+    private static final int SECOND = 1000;
+    private static final int ENGAGEMENT_CHECK_PERIOD = 1 * SECOND;
+    private static final int ENGAGEMENT_WINDOW = 5 * SECOND;
+    private static final int INITIAL_ENGAGEMENT_WINDOW = 5 * SECOND;
+
+    private final Clock clock;
+
+    private boolean engaged, typed;
+
+    // Engagement is checked at viewStartTime + n * ENGAGEMENT_CHECK_PERIOD, until viewStopTime
+    private long viewStopTime;
+    private long nextCheckTime;
+    // Every check before this time, and after the last one counted, is an engaged second
+    private long engagementWindowEnd;
+
+    private long totalEngagementCount;
+    private long engagementSinceLastPing;
+
+    EngagementTracker(Clock clock) {
+        this.clock = clock;
+        engaged = false;
+        typed = false;
+
+        // Nothing is counted until a view is entered
+        long now = clock.currentTimeMillis();
+        viewStopTime = now;
+        nextCheckTime = now;
+        engagementWindowEnd = now;
+    }
+
+    synchronized void userEnteredView() {
+        long viewStartTime = clock.currentTimeMillis();
+
+        viewStopTime = Long.MAX_VALUE;
+        nextCheckTime = viewStartTime;
+        engagementWindowEnd = viewStartTime + INITIAL_ENGAGEMENT_WINDOW;
+        totalEngagementCount = 0;
+        engagementSinceLastPing = 0;
+    }
+
+    synchronized void userLeftView() {
+        stop();
+    }
+
+    synchronized void stop() {
+        viewStopTime = Math.min(viewStopTime, clock.currentTimeMillis());
+    }
+
+    synchronized void userEngaged() {
+        engaged = true;
+        engage();
+    }
+
+    synchronized void userTyped() {
+        typed = true;
+        engage();
+    }
+
+    synchronized void lastPingFailed(EngagementSnapshot ed) {
+        engaged |= ed.engaged;
+        typed |= ed.typed;
+    }
+
+    synchronized EngagementSnapshot getEngagementSnapshot() {
+        countEngagementBefore(clock.currentTimeMillis() + 1);
+
+        EngagementSnapshot data = new EngagementSnapshot(totalEngagementCount, engagementSinceLastPing, engaged, typed );
+        engagementSinceLastPing = 0;
+        engaged = false;
+        typed = false;
+        return data;
+    }
+
+    private void engage() {
+        long now = clock.currentTimeMillis();
+
+        // Checks before now only saw the previous window
+        countEngagementBefore(now);
+        engagementWindowEnd = Math.max(engagementWindowEnd, now + ENGAGEMENT_WINDOW);
+    }
+
+    /**
+     * Counts the engaged seconds among the checks due before the given time.
+     */
+    private void countEngagementBefore(long time) {
+        long end = Math.min(time, viewStopTime);
+        if (end <= nextCheckTime) {
+            return;
+        }
+
+        long engagedSeconds = checksBetween(nextCheckTime, Math.min(end, engagementWindowEnd));
+        totalEngagementCount += engagedSeconds;
+        engagementSinceLastPing += engagedSeconds;
+
+        nextCheckTime += checksBetween(nextCheckTime, end) * ENGAGEMENT_CHECK_PERIOD;
+    }
+
+    /**
+     * @return the number of checks in [from, to), with a check due at from
+     */
+    private static long checksBetween(long from, long to) {
+        if (to <= from) {
+            return 0;
+        }
+
+        return (to - from + ENGAGEMENT_CHECK_PERIOD - 1) / ENGAGEMENT_CHECK_PERIOD;
+    }
+
+    final static class EngagementSnapshot {
+        final boolean engaged, typed, reading, idle;
+        final long totalEngagement;
+        final long engagementSinceLastPing;
+
+        public EngagementSnapshot(long totalEngagement, long engagementSinceLastPing, boolean engaged, boolean typed) {
+            this.engaged = engaged;
+            this.typed = typed;
+            this.reading = engaged && (!typed);
+            this.idle = !engaged;
+            this.engagementSinceLastPing = engagementSinceLastPing;
+            this.totalEngagement = totalEngagement;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.chartbeat.androidsdk;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TaskScheduler} on a single daemon thread, for running the tracker headless.
+ */
+final class ExecutorTaskScheduler implements TaskScheduler {
+    private final ScheduledExecutorService executor;
+
+    // Bumped by cancel(), posts made before that skip their run. Only cancelled tasks are kept.
+    private final Map<Runnable, Integer> generations = new ConcurrentHashMap<>();
+
+    ExecutorTaskScheduler(String threadName) {
+        this(newTrackerThread(threadName));
+    }
+
+    /**
+     * Runs the tasks on an existing single-threaded executor, which may be shared by
+     * several trackers: each keeps its tasks in order, as they all run on that thread.
+     */
+    ExecutorTaskScheduler(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @return a single daemon thread to run one or more trackers on
+     */
+    static ScheduledExecutorService newTrackerThread(final String threadName) {
+        return Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @Override
+    public boolean post(Runnable task) {
+        return postDelayed(task, 0);
+    }
+
+    @Override
+    public boolean postDelayed(final Runnable task, long delayMillis) {
+        final int generation = generationOf(task);
+
+        try {
+            executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (generationOf(task) == generation) {
+                        task.run();
+                    }
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void cancel(Runnable task) {
+        generations.put(task, generationOf(task) + 1);
+    }
+
+    @Override
+    public boolean isAlive() {
+        return !executor.isShutdown();
+    }
+
+    /**
+     * Stops the executor, along with every other tracker sharing it.
+     */
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private int generationOf(Runnable task) {
+        Integer generation = generations.get(task);
+        return generation == null ? 0 : generation;
+    }
+}
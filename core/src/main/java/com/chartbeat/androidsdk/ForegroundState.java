@@ -0,0 +1,18 @@
+package com.chartbeat.androidsdk;
+
+/**
+ * Whether the app is showing anything to the reader.
+ */
+interface ForegroundState {
+    ForegroundState ALWAYS_IN_FOREGROUND = new ForegroundState() {
+        @Override
+        public boolean isInBackground() {
+            return false;
+        }
+    };
+
+    /**
+     * @throws IllegalStateException if the state is not known yet
+     */
+    boolean isInBackground();
+}
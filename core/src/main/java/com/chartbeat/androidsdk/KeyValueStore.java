@@ -0,0 +1,21 @@
+package com.chartbeat.androidsdk;
+
+/**
+ * Storage for the user and session state the tracker keeps across runs.
+ */
+interface KeyValueStore {
+    String getString(String key, String defaultValue);
+
+    long getLong(String key, long defaultValue);
+
+    boolean contains(String key);
+
+    /**
+     * Stores a string, or removes the key if value is null.
+     */
+    void putString(String key, String value);
+
+    void putLong(String key, long value);
+
+    void remove(String key);
+}
@@ -0,0 +1,109 @@
+package com.chartbeat.androidsdk;
+
+/**
+ * Created by Mike Dai Wang on 2016-05-06.
+ *
+ * The overloads taking arguments replace each {@code {}} in the message with the next
+ * argument, and only when logging is enabled, so that a disabled log line costs one
+ * volatile read: {@code Logger.d(TAG, "PING! User Data: {}", query)}.
+ */
+final class Logger {
+    // Same values as android.util.Log
+    static final int VERBOSE = 2;
+    static final int DEBUG = 3;
+    static final int WARN = 5;
+    static final int ERROR = 6;
+
+    /**
+     * Where log lines go, the Android SDK installs one that writes to logcat.
+     */
+    interface Sink {
+        boolean isEnabled();
+
+        void log(int priority, String tag, String message);
+    }
+
+    private static volatile Sink sink;
+
+    private Logger() {
+    }
+
+    static void setSink(Sink logSink) {
+        sink = logSink;
+    }
+
+    /**
+     * @return true if log lines go anywhere, to skip work done only to log
+     */
+    static boolean isEnabled() {
+        Sink logSink = sink;
+        return logSink != null && logSink.isEnabled();
+    }
+
+    static void d(String TAG, String logMessage) {
+        log(DEBUG, TAG, logMessage);
+    }
+
+    static void d(String TAG, String pattern, Object arg) {
+        if (isEnabled()) {
+            log(DEBUG, TAG, format(pattern, arg));
+        }
+    }
+
+    static void d(String TAG, String pattern, Object arg1, Object arg2) {
+        if (isEnabled()) {
+            log(DEBUG, TAG, format(pattern, arg1, arg2));
+        }
+    }
+
+    static void e(String TAG, String logMessage) {
+        log(ERROR, TAG, logMessage);
+    }
+
+    static void e(String TAG, String pattern, Object arg) {
+        if (isEnabled()) {
+            log(ERROR, TAG, format(pattern, arg));
+        }
+    }
+
+    static void e(String TAG, String pattern, Object arg1, Object arg2) {
+        if (isEnabled()) {
+            log(ERROR, TAG, format(pattern, arg1, arg2));
+        }
+    }
+
+    static void w(String TAG, String logMessage) {
+        log(WARN, TAG, logMessage);
+    }
+
+    static void w(String TAG, String pattern, Object arg) {
+        if (isEnabled()) {
+            log(WARN, TAG, format(pattern, arg));
+        }
+    }
+
+    static void v(String TAG, String logMessage) {
+        log(VERBOSE, TAG, logMessage);
+    }
+
+    static String format(String pattern, Object... args) {
+        StringBuilder message = new StringBuilder(pattern.length() + 16 * args.length);
+        int start = 0;
+        int next = 0;
+        int placeholder;
+
+        while (next < args.length && (placeholder = pattern.indexOf("{}", start)) >= 0) {
+            message.append(pattern, start, placeholder).append(args[next++]);
+            start = placeholder + 2;
+        }
+
+        return message.append(pattern, start, pattern.length()).toString();
+    }
+
+    private static void log(int priority, String TAG, String logMessage) {
+        Sink logSink = sink;
+        if (logSink != null && logSink.isEnabled()) {
+            logSink.log(priority, TAG, logMessage);
+        }
+    }
+}
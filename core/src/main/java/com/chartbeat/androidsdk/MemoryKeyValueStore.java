@@ -0,0 +1,48 @@
+package com.chartbeat.androidsdk;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link KeyValueStore} that forgets everything when the process exits, for running
+ * the tracker headless.
+ */
+final class MemoryKeyValueStore implements KeyValueStore {
+    private final Map<String, Object> values = new HashMap<>();
+
+    @Override
+    public synchronized String getString(String key, String defaultValue) {
+        Object value = values.get(key);
+        return value instanceof String ? (String) value : defaultValue;
+    }
+
+    @Override
+    public synchronized long getLong(String key, long defaultValue) {
+        Object value = values.get(key);
+        return value instanceof Long ? (Long) value : defaultValue;
+    }
+
+    @Override
+    public synchronized boolean contains(String key) {
+        return values.containsKey(key);
+    }
+
+    @Override
+    public synchronized void putString(String key, String value) {
+        if (value == null) {
+            values.remove(key);
+        } else {
+            values.put(key, value);
+        }
+    }
+
+    @Override
+    public synchronized void putLong(String key, long value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public synchronized void remove(String key) {
+        values.remove(key);
+    }
+}
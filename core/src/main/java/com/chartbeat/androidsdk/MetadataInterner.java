@@ -0,0 +1,78 @@
+package com.chartbeat.androidsdk;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU caches for the sections, authors and zones metadata, which publishers
+ * repeat across many views.
+ *
+ * Repeated collections map to one canonical comma separated string, and each
+ * canonical string to its percent-encoded form, so recurring metadata costs a hash
+ * lookup and shares the same strings across views.
+ */
+final class MetadataInterner {
+    static final int MAX_ENTRIES = 128;
+
+    private static final Map<List<String>, String> COMMA_STRINGS = new LruMap<>();
+    private static final Map<String, String> ENCODED_VALUES = new LruMap<>();
+
+    private MetadataInterner() {
+    }
+
+    /**
+     * @return the canonical comma separated form of the collection, or null if it is empty
+     */
+    static String commaString(Collection<String> col) {
+        if (col == null || col.size() == 0) {
+            return null;
+        }
+
+        synchronized (COMMA_STRINGS) {
+            // A list can be looked up as is, other collections are compared in iteration order
+            String commaString = col instanceof List ? COMMA_STRINGS.get(col) : null;
+            if (commaString != null) {
+                return commaString;
+            }
+
+            List<String> key = Collections.unmodifiableList(new ArrayList<>(col));
+            commaString = COMMA_STRINGS.get(key);
+            if (commaString == null) {
+                commaString = StringUtils.collectionToCommaString(key);
+                COMMA_STRINGS.put(key, commaString);
+            }
+            return commaString;
+        }
+    }
+
+    /**
+     * @return the canonical percent-encoded form of the value
+     */
+    static String encoded(String value) {
+        synchronized (ENCODED_VALUES) {
+            String encoded = ENCODED_VALUES.get(value);
+            if (encoded == null) {
+                encoded = PingEncoder.encode(value);
+                ENCODED_VALUES.put(value, encoded);
+            }
+            return encoded;
+        }
+    }
+
+    private static final class LruMap<K, V> extends LinkedHashMap<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        LruMap() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    }
+}
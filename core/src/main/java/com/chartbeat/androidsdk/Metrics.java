@@ -0,0 +1,123 @@
+package com.chartbeat.androidsdk;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide registry of counters, gauges and the ping latency histogram that
+ * make up {@link TrackerMetrics}.
+ *
+ * Every metric is a slot in a lock-free array, so recording is a single atomic
+ * add or set and never allocates.
+ */
+final class Metrics {
+    // Counters
+    static final int PINGS_SENT = 0;
+    static final int PING_NETWORK_ERRORS = 1;
+    static final int RESPONSES_200 = 2;
+    static final int RESPONSES_202 = 3;
+    static final int RESPONSES_400 = 4;
+    static final int RESPONSES_500 = 5;
+    static final int RESPONSES_503 = 6;
+    static final int RESPONSES_OTHER = 7;
+    static final int BYTES_SENT = 8;
+    static final int DROPPED_EVENTS = 9;
+    static final int COMMANDS_PROCESSED = 10;
+    static final int RETRIES_SCHEDULED = 11;
+    static final int RETRY_BUDGET_EXHAUSTED = 12;
+    static final int SUSPENSIONS = 13;
+    static final int SUSPENDED_MILLIS = 14;
+    static final int PINGS_QUEUED_OFFLINE = 15;
+    static final int CATCH_UP_PINGS = 16;
+    static final int COUNTER_COUNT = 17;
+
+    // Gauges
+    static final int SEQUENTIAL_503_ERRORS = 0;
+    static final int PENDING_COMMANDS = 1;
+    static final int PING_INTERVAL_SECONDS = 2;
+    static final int GAUGE_COUNT = 3;
+
+    /** Upper bounds of the ping latency buckets, the last bucket takes everything above. */
+    static final long[] LATENCY_BUCKET_BOUNDS_MS = { 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+
+    private static final long NANOS_IN_ONE_MILLI = 1000 * 1000;
+
+    private static final AtomicLongArray counters = new AtomicLongArray(COUNTER_COUNT);
+    private static final AtomicLongArray gauges = new AtomicLongArray(GAUGE_COUNT);
+    private static final AtomicLongArray latencyBuckets = new AtomicLongArray(LATENCY_BUCKET_BOUNDS_MS.length + 1);
+    private static final AtomicLongArray latencyTotals = new AtomicLongArray(2); // count, sum in ms
+
+    private Metrics() {
+    }
+
+    static void increment(int counter) {
+        counters.incrementAndGet(counter);
+    }
+
+    static void add(int counter, long delta) {
+        counters.addAndGet(counter, delta);
+    }
+
+    static void setGauge(int gauge, long value) {
+        gauges.set(gauge, value);
+    }
+
+    static void addToGauge(int gauge, long delta) {
+        gauges.addAndGet(gauge, delta);
+    }
+
+    static void recordResponse(int code) {
+        switch (code) {
+            case 200:
+                increment(RESPONSES_200);
+                break;
+            case 202:
+                increment(RESPONSES_202);
+                break;
+            case 400:
+                increment(RESPONSES_400);
+                break;
+            case 500:
+                increment(RESPONSES_500);
+                break;
+            case 503:
+                increment(RESPONSES_503);
+                break;
+            default:
+                increment(RESPONSES_OTHER);
+                break;
+        }
+    }
+
+    static void recordPingLatency(long latencyNanos) {
+        long latencyMillis = latencyNanos / NANOS_IN_ONE_MILLI;
+
+        int bucket = 0;
+        while (bucket < LATENCY_BUCKET_BOUNDS_MS.length && latencyMillis > LATENCY_BUCKET_BOUNDS_MS[bucket]) {
+            bucket++;
+        }
+
+        latencyBuckets.incrementAndGet(bucket);
+        latencyTotals.incrementAndGet(0);
+        latencyTotals.addAndGet(1, latencyMillis);
+    }
+
+    static TrackerMetrics snapshot() {
+        long[] counterValues = new long[COUNTER_COUNT];
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            counterValues[i] = counters.get(i);
+        }
+
+        long[] gaugeValues = new long[GAUGE_COUNT];
+        for (int i = 0; i < GAUGE_COUNT; i++) {
+            gaugeValues[i] = gauges.get(i);
+        }
+
+        long[] bucketValues = new long[latencyBuckets.length()];
+        for (int i = 0; i < bucketValues.length; i++) {
+            bucketValues[i] = latencyBuckets.get(i);
+        }
+
+        return new TrackerMetrics(counterValues, gaugeValues, bucketValues,
+                latencyTotals.get(0), latencyTotals.get(1));
+    }
+}
@@ -0,0 +1,15 @@
+package com.chartbeat.androidsdk;
+
+/**
+ * Whether pings can go out right now, or should be queued until they can.
+ */
+interface NetworkState {
+    NetworkState ALWAYS_CONNECTED = new NetworkState() {
+        @Override
+        public boolean isNetworkAvailable() {
+            return true;
+        }
+    };
+
+    boolean isNetworkAvailable();
+}
@@ -0,0 +1,281 @@
+package com.chartbeat.androidsdk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded, append-only file queue of pings that could not be sent, kept so that
+ * offline reading sessions can be replayed in order once connectivity returns.
+ *
+ * File layout: a 12 byte header (magic, offset of the oldest unsent record) followed
+ * by records of [int payload length][long ping time][UTF-8 query string]. Records
+ * older than {@link #MAX_PING_AGE_MS} are skipped on read and the oldest records are
+ * evicted when the file would grow past {@link #MAX_FILE_SIZE_BYTES}.
+ *
+ * Only accessed from the tracker thread.
+ */
+final class OfflinePingQueue {
+    private static final String TAG = OfflinePingQueue.class.getSimpleName();
+
+    private static final String QUEUE_FILE_NAME = "com.chartbeat.androidsdk.pings";
+    private static final String CHARSET = "UTF-8";
+
+    private static final int MAGIC = 0xCB0FF1E1;
+    private static final int HEADER_SIZE = 4 + 8;
+    private static final int RECORD_HEADER_SIZE = 4 + 8;
+
+    static final int MAX_FILE_SIZE_BYTES = 256 * 1024;
+    static final long MAX_PING_AGE_MS = 24 * 60 * 60 * 1000L;
+
+    private final File file;
+
+    // False once the queue is known to be empty, so that the check after every ping
+    // does not touch the disk
+    private boolean mayHaveRecords;
+
+    // Records returned by the last peek(), consumed by remove()
+    private long peekedStartOffset = -1;
+    private final List<Long> peekedNextOffsets = new ArrayList<>();
+
+    static final class QueuedPing {
+        final long timestamp;
+        final String query;
+
+        QueuedPing(long timestamp, String query) {
+            this.timestamp = timestamp;
+            this.query = query;
+        }
+    }
+
+    OfflinePingQueue(File directory) {
+        this.file = new File(directory, QUEUE_FILE_NAME);
+        this.mayHaveRecords = file.length() > HEADER_SIZE;
+    }
+
+    /**
+     * Appends a ping that could not be sent.
+     *
+     * @return true if the ping was stored
+     */
+    boolean add(long timestamp, String query) {
+        byte[] payload;
+        try {
+            payload = query.getBytes(CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            return false;
+        }
+
+        int recordSize = RECORD_HEADER_SIZE + payload.length;
+        if (HEADER_SIZE + recordSize > MAX_FILE_SIZE_BYTES) {
+            return false;
+        }
+
+        RandomAccessFile raf = null;
+        try {
+            raf = open();
+            if (raf.length() + recordSize > MAX_FILE_SIZE_BYTES) {
+                makeRoom(raf, recordSize, timestamp);
+            }
+
+            raf.seek(raf.length());
+            raf.writeInt(payload.length);
+            raf.writeLong(timestamp);
+            raf.write(payload);
+            mayHaveRecords = true;
+            return true;
+        } catch (IOException e) {
+            Logger.e(TAG, "Could not queue ping: {}", e.getLocalizedMessage());
+            return false;
+        } finally {
+            closeQuietly(raf);
+        }
+    }
+
+    /**
+     * Returns up to maxCount of the oldest pings that are still worth sending, oldest
+     * first. They stay queued until {@link #remove(int)} is called.
+     */
+    List<QueuedPing> peek(long now, int maxCount) {
+        List<QueuedPing> pings = new ArrayList<>();
+        peekedStartOffset = -1;
+        peekedNextOffsets.clear();
+
+        if (!mayHaveRecords) {
+            return pings;
+        }
+
+        RandomAccessFile raf = null;
+        try {
+            raf = open();
+            long offset = readOffset(raf);
+            long length = raf.length();
+
+            while (pings.size() < maxCount && offset + RECORD_HEADER_SIZE <= length) {
+                raf.seek(offset);
+                int payloadLength = raf.readInt();
+                long timestamp = raf.readLong();
+                long nextOffset = offset + RECORD_HEADER_SIZE + payloadLength;
+
+                if (payloadLength < 0 || nextOffset > length) {
+                    // Truncated write, nothing after this point can be trusted
+                    raf.setLength(offset);
+                    break;
+                }
+
+                if (now - timestamp <= MAX_PING_AGE_MS) {
+                    byte[] payload = new byte[payloadLength];
+                    raf.readFully(payload);
+
+                    if (peekedStartOffset < 0) {
+                        // skip the expired records for good
+                        writeOffset(raf, offset);
+                        peekedStartOffset = offset;
+                    }
+                    peekedNextOffsets.add(nextOffset);
+                    pings.add(new QueuedPing(timestamp, new String(payload, CHARSET)));
+                }
+
+                offset = nextOffset;
+            }
+
+            if (pings.isEmpty()) {
+                reset(raf);
+                mayHaveRecords = false;
+            }
+        } catch (IOException e) {
+            Logger.e(TAG, "Could not read offline ping queue: {}", e.getLocalizedMessage());
+            pings.clear();
+            peekedStartOffset = -1;
+            peekedNextOffsets.clear();
+        } finally {
+            closeQuietly(raf);
+        }
+
+        return pings;
+    }
+
+    /**
+     * Drops the first count pings returned by the last {@link #peek(long, int)}.
+     */
+    void remove(int count) {
+        if (peekedStartOffset < 0 || count <= 0) {
+            return;
+        }
+
+        long nextOffset = peekedNextOffsets.get(Math.min(count, peekedNextOffsets.size()) - 1);
+
+        RandomAccessFile raf = null;
+        try {
+            raf = open();
+            // Skip if a compaction moved the records since they were peeked
+            if (readOffset(raf) == peekedStartOffset) {
+                if (nextOffset >= raf.length()) {
+                    reset(raf);
+                } else {
+                    writeOffset(raf, nextOffset);
+                }
+            }
+        } catch (IOException e) {
+            Logger.e(TAG, "Could not update offline ping queue: {}", e.getLocalizedMessage());
+        } finally {
+            peekedStartOffset = -1;
+            peekedNextOffsets.clear();
+            closeQuietly(raf);
+        }
+    }
+
+    private RandomAccessFile open() throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+        if (raf.length() < HEADER_SIZE || readMagic(raf) != MAGIC) {
+            reset(raf);
+        }
+
+        return raf;
+    }
+
+    /**
+     * Compacts the live records to the front of the file, evicting expired and then
+     * the oldest records until a new record of recordSize bytes fits.
+     */
+    private void makeRoom(RandomAccessFile raf, int recordSize, long now) throws IOException {
+        long firstOffset = readOffset(raf);
+        long offset = firstOffset;
+        long length = raf.length();
+
+        while (offset + RECORD_HEADER_SIZE <= length) {
+            raf.seek(offset);
+            int payloadLength = raf.readInt();
+            long timestamp = raf.readLong();
+            long nextOffset = offset + RECORD_HEADER_SIZE + payloadLength;
+
+            if (payloadLength < 0 || nextOffset > length) {
+                // Truncated write, nothing after this point can be trusted. The records
+                // before it may fit without it, start over.
+                raf.setLength(offset);
+                length = offset;
+                offset = firstOffset;
+                continue;
+            }
+
+            long liveSize = length - offset;
+            boolean expired = now - timestamp > MAX_PING_AGE_MS;
+
+            if (!expired && HEADER_SIZE + liveSize + recordSize <= MAX_FILE_SIZE_BYTES) {
+                break;
+            }
+
+            offset = nextOffset;
+        }
+
+        if (offset >= length) {
+            reset(raf);
+            return;
+        }
+
+        byte[] live = new byte[(int) (length - offset)];
+        raf.seek(offset);
+        raf.readFully(live);
+
+        raf.seek(HEADER_SIZE);
+        raf.write(live);
+        raf.setLength(HEADER_SIZE + live.length);
+        writeOffset(raf, HEADER_SIZE);
+    }
+
+    private static void closeQuietly(RandomAccessFile raf) {
+        if (raf != null) {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                // Nothing left to do
+            }
+        }
+    }
+
+    private static void reset(RandomAccessFile raf) throws IOException {
+        raf.setLength(HEADER_SIZE);
+        raf.seek(0);
+        raf.writeInt(MAGIC);
+        raf.writeLong(HEADER_SIZE);
+    }
+
+    private static int readMagic(RandomAccessFile raf) throws IOException {
+        raf.seek(0);
+        return raf.readInt();
+    }
+
+    private static long readOffset(RandomAccessFile raf) throws IOException {
+        raf.seek(4);
+        return raf.readLong();
+    }
+
+    private static void writeOffset(RandomAccessFile raf, long offset) throws IOException {
+        raf.seek(4);
+        raf.writeLong(offset);
+    }
+}
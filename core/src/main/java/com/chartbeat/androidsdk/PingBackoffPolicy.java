@@ -0,0 +1,83 @@
+package com.chartbeat.androidsdk;
+
+import java.util.Random;
+
+/**
+ * Decides when a rejected ping may be retried.
+ *
+ * Each consecutive failure doubles the upper bound of the delay, starting at
+ * {@link #BASE_DELAY_MS} and capped at {@link #MAX_DELAY_MS}, and the actual delay is
+ * drawn uniformly below that bound (full jitter) so that clients failing together do
+ * not retry together. A Retry-After from the server is a floor on the delay. Every
+ * session gets {@link #RETRY_BUDGET} early retries; once they are spent, failed pings
+ * simply wait for the next regular heartbeat.
+ */
+final class PingBackoffPolicy {
+    static final long NO_RETRY = -1;
+
+    static final long BASE_DELAY_MS = 1000;
+    static final long MAX_DELAY_MS = 5 * 60 * 1000;
+    static final int RETRY_BUDGET = 10;
+
+    private final Clock clock;
+    private final Random random;
+
+    private int consecutiveFailures;
+    private int retriesLeft;
+    private long retryNotBefore;
+
+    PingBackoffPolicy(Clock clock, Random random) {
+        this.clock = clock;
+        this.random = random;
+        resetBudget();
+    }
+
+    /**
+     * Records a failed ping.
+     *
+     * @param retryAfterMillis the delay the server asked for, or {@link PingResult#NO_RETRY_AFTER}
+     * @return how long to wait before retrying, or {@link #NO_RETRY} if the retry budget is spent
+     */
+    long onFailure(long retryAfterMillis) {
+        long ceiling = MAX_DELAY_MS;
+        if (consecutiveFailures < 31) {
+            ceiling = Math.min(MAX_DELAY_MS, BASE_DELAY_MS << consecutiveFailures);
+        }
+        consecutiveFailures++;
+
+        if (retriesLeft <= 0) {
+            return NO_RETRY;
+        }
+        retriesLeft--;
+
+        long delay = (long) (random.nextDouble() * ceiling);
+        if (retryAfterMillis != PingResult.NO_RETRY_AFTER) {
+            delay = Math.max(delay, retryAfterMillis);
+        }
+
+        retryNotBefore = clock.currentTimeMillis() + delay;
+        return delay;
+    }
+
+    void onSuccess() {
+        consecutiveFailures = 0;
+        retryNotBefore = 0;
+    }
+
+    /**
+     * Starts a new session with a full retry budget.
+     */
+    void resetBudget() {
+        consecutiveFailures = 0;
+        retriesLeft = RETRY_BUDGET;
+        retryNotBefore = 0;
+    }
+
+    boolean isBackingOff() {
+        return clock.currentTimeMillis() < retryNotBefore;
+    }
+
+    int getRetriesLeft() {
+        return retriesLeft;
+    }
+}
@@ -0,0 +1,83 @@
+package com.chartbeat.androidsdk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.logging.HttpLoggingInterceptor;
+import retrofit2.Retrofit;
+import retrofit2.adapter.rxjava.RxJavaCallAdapterFactory;
+
+/**
+ * Created by Mike Dai Wang on 2016-02-05.
+ *
+ * Every client of the process shares one OkHttp connection pool and dispatcher.
+ * Interceptors are only added when there is something for them to do, as each one
+ * costs every request a trip through the chain.
+ */
+final class PingClient {
+    private static final String TAG = PingClient.class.getSimpleName();
+
+    private static OkHttpClient sharedHttpClient;
+
+    private final Retrofit retrofit;
+
+    /**
+     * @param interceptors application interceptors in the order they run, see
+     *                     {@link #interceptors()}
+     */
+    PingClient(String endpoint, List<Interceptor> interceptors) {
+        OkHttpClient httpClient = sharedHttpClient();
+
+        if (!interceptors.isEmpty()) {
+            OkHttpClient.Builder clientBuilder = httpClient.newBuilder();
+            clientBuilder.interceptors().addAll(interceptors);
+            httpClient = clientBuilder.build();
+        }
+
+        retrofit = new Retrofit.Builder()
+                .baseUrl(endpoint)
+                .addCallAdapterFactory(RxJavaCallAdapterFactory.create())
+                .client(httpClient)
+                .build();
+    }
+
+    /**
+     * The interceptors pings need: HTTP logging if logging is enabled when the client
+     * is built, none otherwise.
+     */
+    static List<Interceptor> interceptors() {
+        List<Interceptor> interceptors = new ArrayList<>(1);
+
+        if (Logger.isEnabled()) {
+            interceptors.add(loggingInterceptor());
+        }
+
+        return interceptors;
+    }
+
+    <S> S createService(Class<S> serviceClass) {
+        return retrofit.create(serviceClass);
+    }
+
+    private static synchronized OkHttpClient sharedHttpClient() {
+        if (sharedHttpClient == null) {
+            sharedHttpClient = new OkHttpClient();
+        }
+        return sharedHttpClient;
+    }
+
+    private static HttpLoggingInterceptor loggingInterceptor() {
+        HttpLoggingInterceptor httpLoggingInterceptor = new HttpLoggingInterceptor(new HttpLoggingInterceptor.Logger() {
+            @Override
+            public void log(String message) {
+                Logger.d(TAG, message);
+            }
+        });
+
+        httpLoggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BASIC);
+
+        return httpLoggingInterceptor;
+    }
+}
@@ -0,0 +1,53 @@
+package com.chartbeat.androidsdk;
+
+/**
+ * Another account the pings of a tracker also go to, with the domain reported to it.
+ * Its pings are those of the tracker's own account with the host, subdomain and
+ * account parameters swapped, so that everything else is only encoded once.
+ */
+final class PingDestination {
+    private final String accountID;
+    private final String domain;
+    private final String encodedParams;
+
+    PingDestination(String accountID, String domain) {
+        if (accountID == null) {
+            throw new NullPointerException("Account ID cannot be null");
+        }
+        if (domain == null) {
+            throw new NullPointerException("Domain cannot be null");
+        }
+
+        this.accountID = accountID;
+        this.domain = domain;
+
+        PingEncoder params = new PingEncoder();
+        params.append(QueryKeys.HOST, domain);
+        params.append(QueryKeys.SUBDOMAIN, domain);
+        params.append(QueryKeys.ACCOUNT_ID, accountID);
+        this.encodedParams = params.toString();
+    }
+
+    String getAccountID() {
+        return accountID;
+    }
+
+    String getDomain() {
+        return domain;
+    }
+
+    /**
+     * @param query a ping of the tracker's own account
+     * @param destinationParamsLength the length of its destination parameters, see
+     *                                {@link ViewTracker#getDestinationParamsLength()}
+     */
+    String retarget(String query, int destinationParamsLength) {
+        StringBuilder retargeted = new StringBuilder(encodedParams.length() + query.length() - destinationParamsLength);
+        return retargeted.append(encodedParams).append(query, destinationParamsLength, query.length()).toString();
+    }
+
+    @Override
+    public String toString() {
+        return accountID + "|" + domain;
+    }
+}
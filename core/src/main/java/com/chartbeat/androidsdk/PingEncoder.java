@@ -0,0 +1,224 @@
+package com.chartbeat.androidsdk;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Writes ping parameters straight into a reusable buffer as a URL query string.
+ *
+ * Values are percent-encoded as they are appended, with a fast path for unreserved
+ * ASCII characters, and numbers are written without boxing or intermediate strings,
+ * so assembling a ping produces no garbage besides the final query string.
+ * Not thread-safe: each tracker owns one encoder and only uses it while building a ping.
+ */
+final class PingEncoder {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    private static final boolean[] UNRESERVED = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            UNRESERVED[c] = true;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            UNRESERVED[c] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            UNRESERVED[c] = true;
+        }
+        UNRESERVED['-'] = true;
+        UNRESERVED['_'] = true;
+        UNRESERVED['.'] = true;
+        UNRESERVED['~'] = true;
+    }
+
+    private final StringBuilder buffer = new StringBuilder(INITIAL_CAPACITY);
+
+    void reset() {
+        buffer.setLength(0);
+    }
+
+    PingEncoder append(String key, String value) {
+        startParameter(key);
+        appendEncoded(buffer, value);
+        return this;
+    }
+
+    PingEncoder append(String key, long value) {
+        startParameter(key);
+        buffer.append(value);
+        return this;
+    }
+
+    PingEncoder append(String key, boolean flag) {
+        startParameter(key);
+        buffer.append(flag ? '1' : '0');
+        return this;
+    }
+
+    /**
+     * Appends a value that is already percent-encoded.
+     */
+    PingEncoder appendPreEncoded(String key, String encodedValue) {
+        startParameter(key);
+        buffer.append(encodedValue);
+        return this;
+    }
+
+    /**
+     * Appends a non-negative value rounded to two decimals, as "%.2f" would.
+     */
+    PingEncoder appendTwoDecimals(String key, double value) {
+        startParameter(key);
+
+        long hundredths = Math.round(value * 100);
+        buffer.append(hundredths / 100).append('.');
+
+        long fraction = hundredths % 100;
+        if (fraction < 10) {
+            buffer.append('0');
+        }
+        buffer.append(fraction);
+        return this;
+    }
+
+    /**
+     * Appends parameters that were already encoded by another encoder.
+     */
+    PingEncoder appendEncodedParameters(String encodedParameters) {
+        if (encodedParameters.isEmpty()) {
+            return this;
+        }
+
+        if (buffer.length() > 0) {
+            buffer.append('&');
+        }
+        buffer.append(encodedParameters);
+        return this;
+    }
+
+    int length() {
+        return buffer.length();
+    }
+
+    @Override
+    public String toString() {
+        return buffer.toString();
+    }
+
+    private void startParameter(String key) {
+        if (buffer.length() > 0) {
+            buffer.append('&');
+        }
+        appendEncoded(buffer, key);
+        buffer.append('=');
+    }
+
+    /**
+     * Percent-encodes a value as UTF-8, the same way URLEncoder does except that
+     * spaces become %20.
+     */
+    static void appendEncoded(StringBuilder out, String value) {
+        int length = value.length();
+
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+
+            if (c < 0x80) {
+                if (UNRESERVED[c]) {
+                    out.append(c);
+                } else {
+                    appendEscaped(out, c);
+                }
+            } else if (c < 0x800) {
+                appendEscaped(out, 0xC0 | (c >> 6));
+                appendEscaped(out, 0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                appendEscaped(out, 0xF0 | (codePoint >> 18));
+                appendEscaped(out, 0x80 | ((codePoint >> 12) & 0x3F));
+                appendEscaped(out, 0x80 | ((codePoint >> 6) & 0x3F));
+                appendEscaped(out, 0x80 | (codePoint & 0x3F));
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                // Unpaired surrogate, encoded as '?' like String.getBytes() does
+                appendEscaped(out, '?');
+            } else {
+                appendEscaped(out, 0xE0 | (c >> 12));
+                appendEscaped(out, 0x80 | ((c >> 6) & 0x3F));
+                appendEscaped(out, 0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    static String encode(String value) {
+        StringBuilder out = new StringBuilder(value.length() + 16);
+        appendEncoded(out, value);
+        return out.toString();
+    }
+
+    /**
+     * Decodes a percent-encoded UTF-8 value, reading '+' as a space the way
+     * URLDecoder does. Malformed escapes are kept as they are.
+     */
+    static String decode(String encoded) {
+        int length = encoded.length();
+        if (encoded.indexOf('%') < 0 && encoded.indexOf('+') < 0) {
+            return encoded;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(length);
+        for (int i = 0; i < length; i++) {
+            char c = encoded.charAt(i);
+
+            if (c == '%' && i + 2 < length && hexValue(encoded.charAt(i + 1)) >= 0
+                    && hexValue(encoded.charAt(i + 2)) >= 0) {
+                bytes.write((hexValue(encoded.charAt(i + 1)) << 4) | hexValue(encoded.charAt(i + 2)));
+                i += 2;
+            } else if (c == '+') {
+                bytes.write(' ');
+            } else if (c < 0x80) {
+                bytes.write(c);
+            } else {
+                int end = Character.isHighSurrogate(c) && i + 1 < length ? i + 2 : i + 1;
+                byte[] utf8 = encoded.substring(i, end).getBytes(CompactPingFormat.UTF_8);
+                bytes.write(utf8, 0, utf8.length);
+                i = end - 1;
+            }
+        }
+
+        return new String(bytes.toByteArray(), CompactPingFormat.UTF_8);
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+
+    private static void appendEscaped(StringBuilder out, int b) {
+        out.append('%').append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+    }
+
+    /**
+     * Adds the original ping time to a query replayed from the offline queue,
+     * keeping the end marker last.
+     */
+    static String withQueuedTimestamp(String query, long timestamp) {
+        String endMarker = QueryKeys.END_MARKER + "=";
+        StringBuilder builder = new StringBuilder(query.length() + 24);
+
+        if (query.endsWith(endMarker)) {
+            builder.append(query, 0, query.length() - endMarker.length());
+        } else {
+            builder.append(query).append('&');
+        }
+
+        builder.append(QueryKeys.QUEUED_PING_TIMESTAMP).append('=').append(timestamp);
+        builder.append('&').append(endMarker);
+        return builder.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package com.chartbeat.androidsdk;
+
+/**
+ * Picks the time until the next heartbeat ping from the engagement of the last one.
+ *
+ * Active readers are pinged every {@link #BASE_INTERVAL_IN_SECONDS}. Each consecutive
+ * idle ping doubles the interval up to {@link #MAX_INTERVAL_IN_SECONDS}, and any
+ * engagement drops it straight back to the base interval. The decay sent with a ping
+ * is always twice the interval until the next one, so an idle reader stays counted
+ * as a concurrent while being pinged less often.
+ */
+final class PingIntervalPolicy {
+    static final int BASE_INTERVAL_IN_SECONDS = 15;
+    static final int MAX_INTERVAL_IN_SECONDS = 120;
+    private static final int DECAY_FACTOR = 2;
+
+    private int intervalInSeconds = BASE_INTERVAL_IN_SECONDS;
+
+    /**
+     * @param idle whether the reader was idle since the last ping
+     * @return the interval until the next ping, in seconds
+     */
+    int nextInterval(boolean idle) {
+        if (idle) {
+            intervalInSeconds = Math.min(intervalInSeconds * 2, MAX_INTERVAL_IN_SECONDS);
+        } else {
+            intervalInSeconds = BASE_INTERVAL_IN_SECONDS;
+        }
+
+        return intervalInSeconds;
+    }
+
+    int currentInterval() {
+        return intervalInSeconds;
+    }
+
+    int currentDecay() {
+        return intervalInSeconds * DECAY_FACTOR;
+    }
+
+    boolean isStretched() {
+        return intervalInSeconds > BASE_INTERVAL_IN_SECONDS;
+    }
+
+    void reset() {
+        intervalInSeconds = BASE_INTERVAL_IN_SECONDS;
+    }
+}
@@ -0,0 +1,221 @@
+package com.chartbeat.androidsdk;
+
+import java.util.Random;
+
+/**
+ * @author bjorn
+ */
+final class PingManager {
+	private static final String TAG = PingManager.class.getSimpleName();
+
+	private static final long SECOND = 1000;
+	private static final long MINUTE = 60 * 1000;
+    private static final long HOUR = 60 * MINUTE;
+	private static final long MAX_SDK_RUN_TIME = 2 * HOUR; //after two hours of inactivity we shut down
+	private static final long SERVER_BUSY_WAIT_WINDOW = 10 * MINUTE; //suspension is after the server rejects us due to too many clients.
+
+    private final ChartBeatTracker tracker;
+    private final Clock clock;
+
+    private final TaskScheduler scheduler;
+    private final Runnable pingTask;
+    // False for a reader left out of the sample, whose pings are never scheduled
+    private final boolean isEnabled;
+    private long pingIntervalMillis;
+    private boolean isStarted;
+	private final PingIntervalPolicy intervalPolicy;
+    private final PingBackoffPolicy backoffPolicy;
+
+	private boolean inBackground;
+    private boolean wasInBackground;
+
+    private volatile long lastActiveTimestamp = 0;
+    private volatile boolean isSuspended;
+    private volatile long suspensionEndTime;
+
+    /**
+     * @param isEnabled false to never schedule a ping, for a reader left out of the sample
+     */
+	PingManager(ChartBeatTracker tracker, final TaskScheduler scheduler, Clock clock, boolean isEnabled) {
+        this.tracker = tracker;
+        this.scheduler = scheduler;
+        this.clock = clock;
+        this.isEnabled = isEnabled;
+        intervalPolicy = new PingIntervalPolicy();
+        backoffPolicy = new PingBackoffPolicy(clock, new Random());
+
+        isSuspended = false;
+        suspensionEndTime = 0;
+
+        wasInBackground = false;
+        inBackground = false;
+
+        pingTask = new Runnable() {
+            @Override
+            public void run() {
+                // Queue the next run first, a ping may replace it with another interval
+                scheduler.postDelayed(this, pingIntervalMillis);
+
+                if (isServerSuspended() || backoffPolicy.isBackingOff() || isDormant()) {
+                    return;
+                }
+                runTask();
+            }
+        };
+    }
+	
+    void restart() {
+        // Entering a view is activity too, or a reader who never touches it is never pinged
+        lastActiveTimestamp = clock.currentTimeMillis();
+        inBackground = false;
+		stop();
+        intervalPolicy.reset();
+        start(0, intervalPolicy.currentInterval());
+	}
+
+    /**
+     * Stretches or tightens the ping interval after a ping, depending on whether
+     * the reader was idle since the previous one.
+     */
+    void scheduleNextPing(boolean idle) {
+        int previousInterval = intervalPolicy.currentInterval();
+        int interval = intervalPolicy.nextInterval(idle);
+
+        if (interval != previousInterval) {
+            reschedule(interval);
+        }
+    }
+
+    private void reschedule(int interval) {
+        stop();
+        start(interval * SECOND, interval);
+    }
+
+    void stop() {
+        isStarted = false;
+        scheduler.cancel(pingTask);
+    }
+
+    /**
+     * Schedules an early retry of a rejected ping, as allowed by the backoff policy.
+     *
+     * @param retryAfterMillis the delay the server asked for, or {@link PingResult#NO_RETRY_AFTER}
+     */
+    void retryWithBackoff(long retryAfterMillis) {
+        long delay = backoffPolicy.onFailure(retryAfterMillis);
+        if (delay == PingBackoffPolicy.NO_RETRY) {
+            Metrics.increment(Metrics.RETRY_BUDGET_EXHAUSTED);
+            Logger.w(TAG, "Retry budget spent, waiting for the next regular ping.");
+            return;
+        }
+        Metrics.increment(Metrics.RETRIES_SCHEDULED);
+        Diagnostics.record(Diagnostics.RETRY_SCHEDULED, delay, 0);
+
+        stop();
+        start(delay, intervalPolicy.currentInterval());
+    }
+
+    /**
+     * Runs the ping task right away instead of at the end of the interval, which then
+     * starts over. Suspension, backoff and dormancy still apply, and a stopped tracker
+     * stays stopped.
+     *
+     * @return false if the tracker is stopped
+     */
+    boolean pingNow() {
+        if (!isStarted) {
+            return false;
+        }
+
+        stop();
+        start(0, intervalPolicy.currentInterval());
+        return true;
+    }
+
+    void pingSucceeded() {
+        backoffPolicy.onSuccess();
+    }
+
+    int expectedDecayInSeconds() {
+        return intervalPolicy.currentDecay();
+    }
+
+    void setInBackground(boolean isInBackground) {
+        this.inBackground = isInBackground;
+    }
+
+    /**
+     * @param retryAfterMillis how long the server asked us to stay away, or
+     *                         {@link PingResult#NO_RETRY_AFTER} for the default wait
+     */
+    void suspendDueToServerBusy(long retryAfterMillis) {
+        long waitWindow = retryAfterMillis == PingResult.NO_RETRY_AFTER ? SERVER_BUSY_WAIT_WINDOW : retryAfterMillis;
+        suspensionEndTime = clock.currentTimeMillis() + waitWindow;
+        isSuspended = true;
+
+        Metrics.increment(Metrics.SUSPENSIONS);
+        Metrics.add(Metrics.SUSPENDED_MILLIS, waitWindow);
+        Diagnostics.record(Diagnostics.SUSPENDED, waitWindow, 0);
+    }
+
+    void alive() {
+        lastActiveTimestamp = clock.currentTimeMillis();
+
+        if (inBackground) {
+            // Coming back to the foreground starts a new session
+            backoffPolicy.resetBudget();
+            restart();
+        } else if (intervalPolicy.isStretched()) {
+            // Back to the base interval as soon as the reader engages again
+            intervalPolicy.reset();
+            reschedule(intervalPolicy.currentInterval());
+        }
+    }
+
+    private boolean isServerSuspended() {
+        if (isSuspended) {
+            if(clock.currentTimeMillis() > suspensionEndTime) {
+                isSuspended = false;
+            }
+        }
+
+        return isSuspended;
+    }
+	
+	private void start(long initialDelayMillis, int interval) {
+        if (!isEnabled) {
+            return;
+        }
+
+        Metrics.setGauge(Metrics.PING_INTERVAL_SECONDS, interval);
+        pingIntervalMillis = interval * SECOND;
+        isStarted = true;
+        scheduler.postDelayed(pingTask, initialDelayMillis);
+	}
+
+    private void runTask() {
+        try {
+            if(inBackground) { // now in background
+                wasInBackground = true;
+                return;
+            }
+
+            tracker.ping(wasInBackground);
+            wasInBackground = false;
+        } catch (Exception e) {
+            //we catch all exceptions to ensure that we can reschedule the next run.
+            Logger.e(TAG, "Problem executing: {}", e.getLocalizedMessage());
+            e.printStackTrace();
+        }
+    }
+	
+	private boolean isDormant() {
+        long idlingTime = clock.currentTimeMillis() - lastActiveTimestamp;
+
+        if(idlingTime > MAX_SDK_RUN_TIME) {
+            return true;
+        }
+
+		return false;
+	}
+}
@@ -30,6 +30,13 @@ final class PingParams {
         return oneTimeKeys.contains(parameter) || pingMode.includeParameter(parameter);
     }
 
+    /**
+     * @return false when only the mandatory parameters and one-time keys are sent
+     */
+    boolean includesOptionalParameters() {
+        return pingMode != PingMode.STANDARD_PING;
+    }
+
     void pingComplete(int code) {
         if (code == 500) {
             pingMode = PingMode.REPEAT_PING_AFTER_CODE_500;
@@ -0,0 +1,54 @@
+package com.chartbeat.androidsdk;
+
+import java.util.Date;
+
+import okhttp3.Headers;
+import retrofit2.Response;
+
+/**
+ * Status code of a ping along with how long the server asked us to wait before
+ * trying again, if it did.
+ */
+final class PingResult {
+    static final long NO_RETRY_AFTER = -1;
+
+    private static final String RETRY_AFTER = "Retry-After";
+
+    final int code;
+    final long retryAfterMillis;
+
+    PingResult(int code, long retryAfterMillis) {
+        this.code = code;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    static PingResult fromResponse(Response<?> response, Clock clock) {
+        return new PingResult(response.code(), parseRetryAfter(response.headers(), clock));
+    }
+
+    /**
+     * Reads a Retry-After header given either in seconds or as an HTTP date.
+     */
+    static long parseRetryAfter(Headers headers, Clock clock) {
+        String value = headers == null ? null : headers.get(RETRY_AFTER);
+        if (value == null) {
+            return NO_RETRY_AFTER;
+        }
+
+        try {
+            return Math.max(0, Long.parseLong(value.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            Date date = headers.getDate(RETRY_AFTER);
+            if (date == null) {
+                return NO_RETRY_AFTER;
+            }
+
+            return Math.max(0, date.getTime() - clock.currentTimeMillis());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return retryAfterMillis == NO_RETRY_AFTER ? String.valueOf(code) : code + " (retry after " + retryAfterMillis + "ms)";
+    }
+}
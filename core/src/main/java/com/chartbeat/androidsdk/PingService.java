@@ -0,0 +1,384 @@
+package com.chartbeat.androidsdk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+import retrofit2.Response;
+import rx.Observable;
+import rx.Observer;
+import rx.Subscription;
+import rx.exceptions.Exceptions;
+import rx.functions.Action1;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
+import rx.subjects.AsyncSubject;
+
+/**
+ * Created by Mike Dai Wang on 2016-02-05.
+ */
+final class PingService implements PingTransport {
+    private static final String TAG = PingService.class.getSimpleName();
+
+    private static final boolean TEST_RANDOM_FAILURES = false;
+
+    static final int MAX_BATCH_SIZE = 50;
+    private static final MediaType BATCH_MEDIA_TYPE = MediaType.parse("text/plain; charset=utf-8");
+    private static final MediaType COMPACT_MEDIA_TYPE = MediaType.parse("application/octet-stream");
+
+    private static final Action1<Throwable> COUNT_NETWORK_ERROR = new Action1<Throwable>() {
+        @Override
+        public void call(Throwable throwable) {
+            Metrics.increment(Metrics.PING_NETWORK_ERRORS);
+        }
+    };
+
+    private ChartbeatAPI api;
+    private final String userAgent;
+    private final Clock clock = Clock.SYSTEM;
+
+    // Null unless pings go out in the compact format
+    private final CompactPingEncoder compactEncoder;
+
+    // Batch mode: pings are held for up to batchWindowMillis and sent together
+    private final long batchWindowMillis;
+    private final Object batchLock = new Object();
+    private List<PendingPing> pendingBatch;
+    private Subscription batchFlushSubscription;
+
+    private static final class PendingPing {
+        final String query;
+        final AsyncSubject<PingResult> result;
+
+        PendingPing(String query) {
+            this.query = query;
+            this.result = AsyncSubject.create();
+        }
+    }
+
+    PingService(String userAgent) {
+        this(userAgent, 0, false);
+    }
+
+    /**
+     * @param isCompact true to send pings in the {@link CompactPingFormat}
+     */
+    PingService(String userAgent, long batchWindowMillis, boolean isCompact) {
+        this(ChartbeatAPI.ENDPOINT, userAgent, batchWindowMillis, isCompact);
+    }
+
+    /**
+     * @param endpoint base URL of the ping server, {@link ChartbeatAPI#ENDPOINT} outside of load tests
+     * @param isCompact true to send pings in the {@link CompactPingFormat}
+     */
+    PingService(String endpoint, String userAgent, long batchWindowMillis, boolean isCompact) {
+        PingClient client = new PingClient(endpoint, PingClient.interceptors());
+        api = client.createService(ChartbeatAPI.class);
+        this.userAgent = userAgent;
+        this.batchWindowMillis = batchWindowMillis;
+        this.compactEncoder = isCompact ? new CompactPingEncoder() : null;
+    }
+
+    @Override
+    public boolean isBatching() {
+        return batchWindowMillis > 0;
+    }
+
+    /**
+     * Sends a single ping, or adds it to the current batch in batch mode. Either way the
+     * returned observable emits the result of this ping.
+     *
+     * @param query the already encoded ping query string
+     */
+    @Override
+    public Observable<PingResult> ping(final String query) {
+        if( TEST_RANDOM_FAILURES ) {
+            Random random = new Random();
+            int r = random.nextInt(6);
+            if( r == 0 ) {
+                Logger.w(TAG, "Simulating a fake 400 response." );
+                return Observable.just(new PingResult(400, PingResult.NO_RETRY_AFTER));
+            }
+            if( r > 2 ) {
+                Logger.w(TAG, "Simulating a fake 503 response." );
+                return Observable.just(new PingResult(503, PingResult.NO_RETRY_AFTER));
+            }
+        }
+
+        if (isBatching()) {
+            return addToBatch(query);
+        }
+        if (compactEncoder != null) {
+            return pingCompact(query);
+        }
+
+        Metrics.increment(Metrics.PINGS_SENT);
+        Metrics.add(Metrics.BYTES_SENT, query.length());
+        final long startTime = System.nanoTime();
+
+        return api.ping(ChartbeatAPI.PING_PATH + "?" + query, userAgent)
+                .compose(this.<Response<Void>>applySchedulers())
+                .doOnError(COUNT_NETWORK_ERROR)
+                .map(new Func1<Response<Void>, PingResult>() {
+                    @Override
+                    public PingResult call(Response<Void> response) {
+                        long latencyNanos = System.nanoTime() - startTime;
+                        Metrics.recordPingLatency(latencyNanos);
+                        Metrics.recordResponse(response.code());
+                        Diagnostics.record(Diagnostics.PING_RESPONSE, response.code(), latencyNanos / 1000000);
+                        return PingResult.fromResponse(response, clock);
+                    }
+                });
+    }
+
+    private Observable<PingResult> pingCompact(String query) {
+        final CompactPingEncoder.CompactPing compactPing = compactEncoder.encode(query);
+
+        Metrics.increment(Metrics.PINGS_SENT);
+        Metrics.add(Metrics.BYTES_SENT, compactPing.bytes.length);
+        final long startTime = System.nanoTime();
+
+        return api.pingCompact(RequestBody.create(COMPACT_MEDIA_TYPE, compactPing.bytes), userAgent)
+                .compose(this.<Response<Void>>applySchedulers())
+                .doOnError(COUNT_NETWORK_ERROR)
+                .map(new Func1<Response<Void>, PingResult>() {
+                    @Override
+                    public PingResult call(Response<Void> response) {
+                        long latencyNanos = System.nanoTime() - startTime;
+                        Metrics.recordPingLatency(latencyNanos);
+                        Metrics.recordResponse(response.code());
+                        Diagnostics.record(Diagnostics.PING_RESPONSE, response.code(), latencyNanos / 1000000);
+                        compactEncoder.responded(compactPing, response.code());
+                        return PingResult.fromResponse(response, clock);
+                    }
+                });
+    }
+
+    /**
+     * Sends several pings in one gzip-compressed request.
+     *
+     * @return the result of each ping, in order
+     */
+    @Override
+    public Observable<List<PingResult>> pingBatch(final List<String> batch) {
+        RequestBody body;
+        long bytes = 0;
+        final List<CompactPingEncoder.CompactPing> compactPings;
+        try {
+            if (compactEncoder != null) {
+                compactPings = new ArrayList<>(batch.size());
+                for (String query : batch) {
+                    CompactPingEncoder.CompactPing compactPing = compactEncoder.encode(query);
+                    compactPings.add(compactPing);
+                    bytes += compactPing.bytes.length;
+                }
+                body = encodeCompactBatch(compactPings);
+            } else {
+                compactPings = null;
+                for (String query : batch) {
+                    bytes += query.length() + 1;
+                }
+                body = encodeBatch(batch);
+            }
+        } catch (IOException e) {
+            return Observable.error(e);
+        }
+
+        Metrics.add(Metrics.PINGS_SENT, batch.size());
+        Metrics.add(Metrics.BYTES_SENT, bytes);
+        Diagnostics.record(Diagnostics.BATCH_SENT, batch.size(), bytes);
+        final long startTime = System.nanoTime();
+
+        Observable<Response<ResponseBody>> request = compactPings != null
+                ? api.pingCompactBatch(body, userAgent)
+                : api.pingBatch(body, userAgent);
+
+        return request
+                .compose(this.<Response<ResponseBody>>applySchedulers())
+                .doOnError(COUNT_NETWORK_ERROR)
+                .map(new Func1<Response<ResponseBody>, List<PingResult>>() {
+                    @Override
+                    public List<PingResult> call(Response<ResponseBody> response) {
+                        long latencyNanos = System.nanoTime() - startTime;
+                        Metrics.recordPingLatency(latencyNanos);
+                        Diagnostics.record(Diagnostics.PING_RESPONSE, response.code(), latencyNanos / 1000000);
+                        try {
+                            List<PingResult> results = decodeBatchResponse(response, batch.size(), clock);
+                            for (int i = 0; i < results.size(); i++) {
+                                Metrics.recordResponse(results.get(i).code);
+                                if (compactPings != null) {
+                                    compactEncoder.responded(compactPings.get(i), results.get(i).code);
+                                }
+                            }
+                            return results;
+                        } catch (IOException e) {
+                            throw Exceptions.propagate(e);
+                        }
+                    }
+                });
+    }
+
+    private Observable<PingResult> addToBatch(String query) {
+        PendingPing pendingPing = new PendingPing(query);
+        boolean isFull;
+
+        synchronized (batchLock) {
+            if (pendingBatch == null) {
+                pendingBatch = new ArrayList<>();
+                batchFlushSubscription = Observable.timer(batchWindowMillis, TimeUnit.MILLISECONDS)
+                        .subscribe(new Observer<Long>() {
+                            @Override
+                            public void onCompleted() {
+
+                            }
+
+                            @Override
+                            public void onError(Throwable e) {
+                                Logger.e(TAG, e.getMessage());
+                            }
+
+                            @Override
+                            public void onNext(Long aLong) {
+                                flushBatch();
+                            }
+                        });
+            }
+
+            pendingBatch.add(pendingPing);
+            isFull = pendingBatch.size() >= MAX_BATCH_SIZE;
+        }
+
+        if (isFull) {
+            flushBatch();
+        }
+
+        return pendingPing.result;
+    }
+
+    private void flushBatch() {
+        final List<PendingPing> batch;
+
+        synchronized (batchLock) {
+            batch = pendingBatch;
+            pendingBatch = null;
+
+            if (batchFlushSubscription != null) {
+                batchFlushSubscription.unsubscribe();
+                batchFlushSubscription = null;
+            }
+        }
+
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+
+        List<String> queries = new ArrayList<>(batch.size());
+        for (PendingPing pendingPing : batch) {
+            queries.add(pendingPing.query);
+        }
+
+        pingBatch(queries).subscribe(new Observer<List<PingResult>>() {
+            @Override
+            public void onCompleted() {
+
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                for (PendingPing pendingPing : batch) {
+                    pendingPing.result.onError(e);
+                }
+            }
+
+            @Override
+            public void onNext(List<PingResult> results) {
+                for (int i = 0; i < batch.size(); i++) {
+                    AsyncSubject<PingResult> result = batch.get(i).result;
+                    result.onNext(results.get(i));
+                    result.onCompleted();
+                }
+            }
+        });
+    }
+
+    static RequestBody encodeBatch(List<String> batch) throws IOException {
+        Buffer buffer = new Buffer();
+        BufferedSink sink = Okio.buffer(new GzipSink(buffer));
+
+        for (String query : batch) {
+            sink.writeUtf8(query);
+            sink.writeByte('\n');
+        }
+        sink.close();
+
+        return RequestBody.create(BATCH_MEDIA_TYPE, buffer.readByteArray());
+    }
+
+    static RequestBody encodeCompactBatch(List<CompactPingEncoder.CompactPing> batch) throws IOException {
+        ByteArrayOutputStream pings = new ByteArrayOutputStream();
+        for (CompactPingEncoder.CompactPing ping : batch) {
+            CompactPingFormat.writeVarint(pings, ping.bytes.length);
+            pings.write(ping.bytes, 0, ping.bytes.length);
+        }
+
+        Buffer buffer = new Buffer();
+        BufferedSink sink = Okio.buffer(new GzipSink(buffer));
+        sink.write(pings.toByteArray());
+        sink.close();
+
+        return RequestBody.create(COMPACT_MEDIA_TYPE, buffer.readByteArray());
+    }
+
+    /**
+     * A failed batch request applies its status code to every ping in it. Pings the
+     * server did not report on are treated like a 500 so that they are resent in full.
+     * A Retry-After on the batch response applies to every ping in it.
+     */
+    static List<PingResult> decodeBatchResponse(Response<ResponseBody> response, int batchSize, Clock clock) throws IOException {
+        long retryAfterMillis = PingResult.parseRetryAfter(response.headers(), clock);
+
+        if (response.code() != 200 || response.body() == null) {
+            return Collections.nCopies(batchSize, new PingResult(response.code(), retryAfterMillis));
+        }
+
+        List<PingResult> results = new ArrayList<>(batchSize);
+        String[] lines = response.body().string().split("\n");
+
+        for (int i = 0; i < batchSize; i++) {
+            int code = 500;
+
+            if (i < lines.length) {
+                try {
+                    code = Integer.parseInt(lines[i].trim());
+                } catch (NumberFormatException e) {
+                    Logger.e(TAG, "Invalid batch status: {}", lines[i]);
+                }
+            }
+
+            results.add(new PingResult(code, retryAfterMillis));
+        }
+
+        return results;
+    }
+
+    <T> Observable.Transformer<T, T> applySchedulers() {
+        return new Observable.Transformer<T, T>() {
+            @Override
+            public Observable<T> call(Observable<T> observable) {
+                return observable.subscribeOn(Schedulers.io())
+                        .observeOn(Schedulers.io());
+            }
+        };
+    }
+}
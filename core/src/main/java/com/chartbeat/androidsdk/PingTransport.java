@@ -0,0 +1,25 @@
+package com.chartbeat.androidsdk;
+
+import java.util.List;
+
+import rx.Observable;
+
+/**
+ * Delivers encoded pings to the Chartbeat servers, see {@link PingService}.
+ */
+interface PingTransport {
+    /**
+     * @return true if pings are collected into batches of up to {@link PingService#MAX_BATCH_SIZE}
+     */
+    boolean isBatching();
+
+    /**
+     * @param query the already encoded ping query string
+     */
+    Observable<PingResult> ping(String query);
+
+    /**
+     * @return the result of each ping, in order
+     */
+    Observable<List<PingResult>> pingBatch(List<String> batch);
+}
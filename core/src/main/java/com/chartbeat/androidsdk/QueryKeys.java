@@ -72,5 +72,12 @@ final class QueryKeys {
 
     public static final String MEMFLY_API_VERSION = "Z";
 
+    // Original time (epoch millis) of a ping replayed from the offline queue
+    public static final String QUEUED_PING_TIMESTAMP = "qt";
+
+    // Only one user in this many is tracked, for the server to scale counts back up.
+    // Absent when every user is tracked.
+    public static final String SAMPLING_FACTOR = "sf";
+
     public static final String END_MARKER = "_";
 }
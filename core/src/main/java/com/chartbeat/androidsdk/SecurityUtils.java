@@ -0,0 +1,71 @@
+package com.chartbeat.androidsdk;
+
+import java.security.SecureRandom;
+
+/**
+ * Created by Mike Dai Wang on 2016-02-04.
+ */
+final class SecurityUtils {
+	// Base64 with '+' and '/' swapped for '_' and '-', as the Chartbeat API expects
+	private static final char[] ALPHABET =
+			"ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789_-".toCharArray();
+
+	private static final ThreadLocal<RandomCharSource> SOURCES = new ThreadLocal<RandomCharSource>() {
+		@Override
+		protected RandomCharSource initialValue() {
+			return new RandomCharSource();
+		}
+	};
+
+	private SecurityUtils() {}
+
+	/**
+	 * creates a high-entropy string of length numChars according that is
+	 * safe to use in the Chartbeat API.
+	 */
+	static String randomChars(int numchars) {
+		// make sure the user requested at least one char:
+		if( numchars <= 0 )
+			throw new RuntimeException("need at least one character");
+
+		return SOURCES.get().randomChars(numchars);
+	}
+
+	/**
+	 * Per-thread SecureRandom with a pool of random bytes refilled in blocks, so
+	 * concurrent callers never contend and each call only allocates its result.
+	 */
+	private static final class RandomCharSource {
+		private static final int POOL_SIZE = 3 * 128;
+
+		private final SecureRandom random = new SecureRandom();
+		private final byte[] pool = new byte[POOL_SIZE];
+		private int poolPosition = POOL_SIZE;
+		private char[] chars = new char[32];
+
+		String randomChars(int numchars) {
+			if (chars.length < numchars) {
+				chars = new char[numchars];
+			}
+
+			// every 3 random bytes give 4 characters of 6 bits each
+			for (int i = 0; i < numchars; i += 4) {
+				if (poolPosition == POOL_SIZE) {
+					random.nextBytes(pool);
+					poolPosition = 0;
+				}
+
+				int bits = (pool[poolPosition++] & 0xFF) << 16
+						| (pool[poolPosition++] & 0xFF) << 8
+						| (pool[poolPosition++] & 0xFF);
+
+				int count = Math.min(4, numchars - i);
+				for (int j = 0; j < count; j++) {
+					chars[i + j] = ALPHABET[(bits >>> (18 - 6 * j)) & 0x3F];
+				}
+			}
+
+			return new String(chars, 0, numchars);
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package com.chartbeat.androidsdk;
+
+import java.util.Collection;
+
+/**
+ * Created by Mike Dai Wang on 2016-02-04.
+ */
+final class StringUtils {
+    static String collectionToCommaString(Collection<String> col) {
+        if (col == null || col.size() == 0) {
+            return null;
+        }
+        StringBuilder ret = new StringBuilder();
+        boolean isFirst = true;
+        for (String s : col) {
+            if (!isFirst) {
+                ret.append(',');
+            }
+            isFirst = false;
+            // commas inside an element would split it on the server
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c != ',') {
+                    ret.append(c);
+                }
+            }
+        }
+        return ret.toString();
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.chartbeat.androidsdk;
+
+/**
+ * The thread the tracker runs on. Every task posted to it runs on that one thread,
+ * in order, so the tracker state they touch needs no further locking between them.
+ */
+interface TaskScheduler {
+    /**
+     * @return false if the task could not be queued
+     */
+    boolean post(Runnable task);
+
+    /**
+     * @return false if the task could not be queued
+     */
+    boolean postDelayed(Runnable task, long delayMillis);
+
+    /**
+     * Removes pending runs of the task.
+     */
+    void cancel(Runnable task);
+
+    /**
+     * @return false once the thread is gone and posted tasks will never run
+     */
+    boolean isAlive();
+}
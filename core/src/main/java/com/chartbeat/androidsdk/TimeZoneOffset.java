@@ -0,0 +1,39 @@
+package com.chartbeat.androidsdk;
+
+import java.util.TimeZone;
+
+/**
+ * Caches the device timezone offset sent with every ping.
+ *
+ * The offset is recomputed at the top of each hour, which covers daylight saving
+ * transitions, or right away when the platform reports a timezone change through
+ * {@link #invalidate()}.
+ */
+final class TimeZoneOffset {
+    private static final long MILLISECONDS_IN_ONE_HOUR = 60 * 60 * 1000;
+
+    private static volatile int offsetInMinutes;
+    private static volatile long validUntil = 0;
+
+    private TimeZoneOffset() {
+    }
+
+    static void invalidate() {
+        validUntil = 0;
+    }
+
+    /**
+     * @return the offset of local time from UTC in minutes, with the sign flipped
+     *         as in JavaScript's Date.getTimezoneOffset()
+     */
+    static int inMinutes() {
+        long now = System.currentTimeMillis();
+
+        if (now >= validUntil) {
+            offsetInMinutes = -(TimeZone.getDefault().getOffset(now) / 1000 / 60);
+            validUntil = (now / MILLISECONDS_IN_ONE_HOUR + 1) * MILLISECONDS_IN_ONE_HOUR;
+        }
+
+        return offsetInMinutes;
+    }
+}
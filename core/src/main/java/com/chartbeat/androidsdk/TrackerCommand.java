@@ -0,0 +1,110 @@
+package com.chartbeat.androidsdk;
+
+/**
+ * A typed, pooled tracker call. Commands are obtained on the caller thread,
+ * handed to the tracker thread either directly through the {@link CommandQueue}
+ * or wrapped in an Intent for the Android service, and recycled once processed.
+ */
+final class TrackerCommand {
+    static final int INIT_TRACKER = 1;
+    static final int SET_APP_REFERRER = 2;
+    static final int STOP_TRACKER = 3;
+    static final int TRACK_VIEW = 4;
+    static final int LEFT_VIEW = 5;
+    static final int USER_INTERACTED = 6;
+    static final int USER_TYPED = 7;
+    static final int SET_DOMAIN = 8;
+    static final int SET_SUBDOMAIN = 9;
+    static final int SET_ZONES = 10;
+    static final int SET_AUTHORS = 11;
+    static final int SET_SECTIONS = 12;
+    static final int SET_VIEW_LOADING_TIME = 13;
+    static final int SET_POSITION = 14;
+    static final int PAUSE_TRACKER = 15;
+
+    private static final int MAX_POOL_SIZE = 50;
+    private static final Object poolLock = new Object();
+    private static TrackerCommand pool;
+    private static int poolSize = 0;
+
+    int type;
+
+    String accountId;
+    String domain;
+    String viewId;
+    String viewTitle;
+    // Payload of the single-string setters: referrer, domain, subdomain, zones, authors, sections
+    String value;
+
+    int scrollPositionTop = -1;
+    int scrollWindowHeight = -1;
+    int totalContentHeight = -1;
+    int fullyRenderedDocWidth = -1;
+    float viewLoadTime;
+
+    // Link used by CommandQueue
+    volatile TrackerCommand next;
+    private TrackerCommand nextInPool;
+
+    private TrackerCommand() {
+
+    }
+
+    static TrackerCommand obtain(int type) {
+        TrackerCommand command = null;
+
+        synchronized (poolLock) {
+            if (pool != null) {
+                command = pool;
+                pool = command.nextInPool;
+                command.nextInPool = null;
+                poolSize--;
+            }
+        }
+
+        if (command == null) {
+            command = new TrackerCommand();
+        }
+
+        command.type = type;
+        return command;
+    }
+
+    void recycle() {
+        clear();
+        next = null;
+
+        synchronized (poolLock) {
+            if (poolSize < MAX_POOL_SIZE) {
+                nextInPool = pool;
+                pool = this;
+                poolSize++;
+            }
+        }
+    }
+
+    /**
+     * Drops the payload so a processed command does not hold on to strings
+     * while it waits to be recycled.
+     */
+    void clear() {
+        type = 0;
+        accountId = null;
+        domain = null;
+        viewId = null;
+        viewTitle = null;
+        value = null;
+        scrollPositionTop = -1;
+        scrollWindowHeight = -1;
+        totalContentHeight = -1;
+        fullyRenderedDocWidth = -1;
+        viewLoadTime = 0.0f;
+    }
+
+    void setPosition(int scrollPositionTop, int scrollWindowHeight, int totalContentHeight, int fullyRenderedDocWidth) {
+        this.scrollPositionTop = scrollPositionTop;
+        this.scrollWindowHeight = scrollWindowHeight;
+        this.totalContentHeight = totalContentHeight;
+        this.fullyRenderedDocWidth = fullyRenderedDocWidth;
+    }
+}
@@ -0,0 +1,42 @@
+package com.chartbeat.androidsdk;
+
+import java.io.File;
+
+/**
+ * Everything {@link ChartBeatTracker} needs from the platform it runs on. The Android
+ * SDK fills it with adapters over Handler, the store file and ConnectivityManager;
+ * a headless run can use {@link #headless(String, File)}.
+ */
+final class TrackerEnvironment {
+    final Clock clock;
+    final TaskScheduler scheduler;
+    final KeyValueStore store;
+    final NetworkState networkState;
+    final ForegroundState foregroundState;
+    final PingTransport transport;
+    final File offlineQueueDirectory;
+
+    TrackerEnvironment(Clock clock, TaskScheduler scheduler, KeyValueStore store, NetworkState networkState,
+                       ForegroundState foregroundState, PingTransport transport, File offlineQueueDirectory) {
+        this.clock = clock;
+        this.scheduler = scheduler;
+        this.store = store;
+        this.networkState = networkState;
+        this.foregroundState = foregroundState;
+        this.transport = transport;
+        this.offlineQueueDirectory = offlineQueueDirectory;
+    }
+
+    /**
+     * A tracker thread of its own, memory-only storage and a network that is always up.
+     */
+    static TrackerEnvironment headless(String userAgent, File offlineQueueDirectory) {
+        return new TrackerEnvironment(Clock.SYSTEM,
+                new ExecutorTaskScheduler("TRACKER_THREAD"),
+                new MemoryKeyValueStore(),
+                NetworkState.ALWAYS_CONNECTED,
+                ForegroundState.ALWAYS_IN_FOREGROUND,
+                new PingService(userAgent),
+                offlineQueueDirectory);
+    }
+}
@@ -0,0 +1,160 @@
+package com.chartbeat.androidsdk;
+
+/**
+ * A point-in-time copy of the tracker's runtime metrics, as returned by
+ * {@code Tracker.getMetrics()}. Counters are totals since the process started.
+ */
+public final class TrackerMetrics {
+
+    /**
+     * Receives metrics snapshots periodically, see
+     * {@code Tracker.setMetricsListener(Listener, int)}.
+     */
+    public interface Listener {
+        /**
+         * Called on a background thread.
+         */
+        void onMetrics(TrackerMetrics metrics);
+    }
+
+    private final long[] counters;
+    private final long[] gauges;
+    private final long[] latencyBuckets;
+    private final long latencyCount;
+    private final long latencySumMillis;
+
+    TrackerMetrics(long[] counters, long[] gauges, long[] latencyBuckets, long latencyCount, long latencySumMillis) {
+        this.counters = counters;
+        this.gauges = gauges;
+        this.latencyBuckets = latencyBuckets;
+        this.latencyCount = latencyCount;
+        this.latencySumMillis = latencySumMillis;
+    }
+
+    /** Pings handed to the network, including those sent as part of a batch. */
+    public long getPingsSent() {
+        return counters[Metrics.PINGS_SENT];
+    }
+
+    /** Pings that failed without an HTTP response. */
+    public long getPingNetworkErrors() {
+        return counters[Metrics.PING_NETWORK_ERRORS];
+    }
+
+    /**
+     * @param statusCode one of 200, 202, 400, 500 or 503, anything else returns the
+     *                   count of all other status codes
+     */
+    public long getResponseCount(int statusCode) {
+        switch (statusCode) {
+            case 200:
+                return counters[Metrics.RESPONSES_200];
+            case 202:
+                return counters[Metrics.RESPONSES_202];
+            case 400:
+                return counters[Metrics.RESPONSES_400];
+            case 500:
+                return counters[Metrics.RESPONSES_500];
+            case 503:
+                return counters[Metrics.RESPONSES_503];
+            default:
+                return counters[Metrics.RESPONSES_OTHER];
+        }
+    }
+
+    /** Bytes of ping requests sent, before compression. */
+    public long getBytesSent() {
+        return counters[Metrics.BYTES_SENT];
+    }
+
+    /** Tracker calls that could not be delivered to the tracker. */
+    public long getDroppedEvents() {
+        return counters[Metrics.DROPPED_EVENTS];
+    }
+
+    public long getCommandsProcessed() {
+        return counters[Metrics.COMMANDS_PROCESSED];
+    }
+
+    /** Tracker calls waiting to be processed right now. */
+    public long getPendingCommands() {
+        return gauges[Metrics.PENDING_COMMANDS];
+    }
+
+    public long getRetriesScheduled() {
+        return counters[Metrics.RETRIES_SCHEDULED];
+    }
+
+    /** Failed pings that were not retried early because the retry budget was spent. */
+    public long getRetryBudgetExhausted() {
+        return counters[Metrics.RETRY_BUDGET_EXHAUSTED];
+    }
+
+    /** Times pinging was suspended because the server was busy. */
+    public long getSuspensions() {
+        return counters[Metrics.SUSPENSIONS];
+    }
+
+    /** Total time pinging was suspended for, in milliseconds. */
+    public long getSuspendedMillis() {
+        return counters[Metrics.SUSPENDED_MILLIS];
+    }
+
+    /** Current run of consecutive 503 responses. */
+    public long getSequential503Errors() {
+        return gauges[Metrics.SEQUENTIAL_503_ERRORS];
+    }
+
+    public long getPingsQueuedOffline() {
+        return counters[Metrics.PINGS_QUEUED_OFFLINE];
+    }
+
+    /** Pings sent early because the network came back. */
+    public long getCatchUpPings() {
+        return counters[Metrics.CATCH_UP_PINGS];
+    }
+
+    /** Current time between heartbeat pings, in seconds. */
+    public long getPingIntervalSeconds() {
+        return gauges[Metrics.PING_INTERVAL_SECONDS];
+    }
+
+    /**
+     * @return the upper bound of each ping latency bucket in milliseconds; the last
+     *         bucket of {@link #getPingLatencyBucketCounts()} has no upper bound
+     */
+    public long[] getPingLatencyBucketBounds() {
+        return Metrics.LATENCY_BUCKET_BOUNDS_MS.clone();
+    }
+
+    public long[] getPingLatencyBucketCounts() {
+        return latencyBuckets.clone();
+    }
+
+    public long getPingLatencyCount() {
+        return latencyCount;
+    }
+
+    public double getMeanPingLatencyMillis() {
+        return latencyCount == 0 ? 0 : (double) latencySumMillis / latencyCount;
+    }
+
+    @Override
+    public String toString() {
+        return "TrackerMetrics{pingsSent=" + getPingsSent()
+                + ", networkErrors=" + getPingNetworkErrors()
+                + ", 200=" + getResponseCount(200)
+                + ", 202=" + getResponseCount(202)
+                + ", 400=" + getResponseCount(400)
+                + ", 500=" + getResponseCount(500)
+                + ", 503=" + getResponseCount(503)
+                + ", other=" + getResponseCount(0)
+                + ", bytesSent=" + getBytesSent()
+                + ", droppedEvents=" + getDroppedEvents()
+                + ", pendingCommands=" + getPendingCommands()
+                + ", sequential503=" + getSequential503Errors()
+                + ", suspendedMillis=" + getSuspendedMillis()
+                + ", meanLatencyMillis=" + getMeanPingLatencyMillis()
+                + "}";
+    }
+}
@@ -0,0 +1,308 @@
+package com.chartbeat.androidsdk;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * @author bjorn
+ * @author Mike Dai Wang
+ *
+ */
+final class UserInfo {
+	private static final String TAG = "Chartbeat userdata";
+
+    private static final int USER_ID_CHAR_LENGTH = 18;
+    private static final int DAYS_TO_TRACK_VISITS = 16;
+    private static final int DAYS_TO_REMEMBER_USER = 30;
+    private static final int MINUTES_TO_TRACK_NEW_USER = 30;
+
+    private static final String KEY_USER_ID = "userid";
+    private static final String KEY_USER_CREATION_BY_ID = "created-";
+    private static final String KEY_USER_LAST_VISIT_TIME_BY_ID = "visits-";
+    private static final String KEY_USER_VISITS_BY_ID = "visitmask-";
+    private static final String DATE_PATTERN = "yyyy-MM-dd";
+    private static final long MILLISECONDS_IN_ONE_DAY = 24 * 60 * 60 * 1000L;
+    private static final long MILLISECONDS_IN_ONE_MINUTE = 60 * 1000L;
+
+    private final KeyValueStore store;
+    private final Clock clock;
+	
+	private final String userID;
+	private int userCreatedDay;
+	private boolean isNewUser;
+
+    // Bit i of the mask is set if the user visited i days before the anchor day.
+    // Days are counted from the epoch in local time.
+    private int visitsAnchorDay;
+    private int visitsMask;
+
+    // Last frequency string handed out and the day and visits it was computed for
+    private String visitFrequency;
+    private int visitFrequencyDay;
+    private int visitFrequencyMask;
+
+	UserInfo(KeyValueStore store, TaskScheduler scheduler, Clock clock) {
+        if (store == null) {
+            throw new NullPointerException("Store cannot be null");
+        }
+
+        this.store = store;
+        this.clock = clock;
+
+        String storedUserID = store.getString(KEY_USER_ID, null);
+        String userCreatedString = store.getString(KEY_USER_CREATION_BY_ID + storedUserID, null);
+
+        GregorianCalendar creationDate;
+
+        if( storedUserID == null || userCreatedString == null) {
+            storedUserID = createUser();
+            creationDate = todayAsCalendar();
+            storeUser(storedUserID, creationDate);
+            isNewUser = true;
+        } else {
+            creationDate = getCreationDate(userCreatedString);
+
+            GregorianCalendar thirtyDaysAgo = pastDate(DAYS_TO_REMEMBER_USER, 0, 0);
+
+            if (creationDate.compareTo(thirtyDaysAgo) >= 0) {
+                isNewUser = false;
+            } else {
+                isNewUser = true;
+
+                if (storedUserID == null) {
+                    storedUserID = createUser();
+                }
+
+                storeUser(storedUserID, todayAsCalendar());
+
+                scheduler.postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        markUserAsOld();
+                    }
+                }, MINUTES_TO_TRACK_NEW_USER * MILLISECONDS_IN_ONE_MINUTE);
+            }
+        }
+
+        this.userID = storedUserID;
+        this.userCreatedDay = dayNumber(creationDate.getTimeInMillis());
+
+        loadVisits(this.userID);
+	}
+
+    private String createUser() {
+        String newUserID = SecurityUtils.randomChars(USER_ID_CHAR_LENGTH);
+
+        return newUserID;
+    }
+
+    private void storeUser(String userID, GregorianCalendar userCreated) {
+        String usrCreatedString = dateFormat().format(userCreated.getTime());
+        store.putString(KEY_USER_ID, userID);
+        store.putString(KEY_USER_CREATION_BY_ID + userID, usrCreatedString);
+    }
+
+    private GregorianCalendar getCreationDate(String createdDateString) {
+        GregorianCalendar creationDate = new GregorianCalendar();
+        try {
+            creationDate.setTime(dateFormat().parse(createdDateString));
+        } catch( ParseException pe ) {
+            Logger.e(TAG, "Date created has become corrupt: {}", createdDateString);
+            creationDate = todayAsCalendar();
+        }
+
+        return creationDate;
+    }
+
+    /**
+     * Loads the visit history, converting the comma separated list of dates that
+     * older versions stored.
+     */
+    private void loadVisits(String userID) {
+        String visitsKey = KEY_USER_VISITS_BY_ID + userID;
+        String legacyVisitsKey = KEY_USER_LAST_VISIT_TIME_BY_ID + userID;
+
+        if (store.contains(visitsKey)) {
+            long storedVisits = store.getLong(visitsKey, 0);
+            visitsAnchorDay = (int) (storedVisits >>> 32);
+            visitsMask = (int) storedVisits;
+            return;
+        }
+
+        visitsAnchorDay = today();
+        visitsMask = 0;
+
+        String storedVisits = store.getString(legacyVisitsKey, null);
+        if (storedVisits == null) {
+            return;
+        }
+
+        Logger.d(TAG, "Migrating user visited dates: {}", storedVisits);
+
+        SimpleDateFormat dateFormat = dateFormat();
+        for (String dateString : storedVisits.split(",")) {
+            try {
+                int daysAgo = visitsAnchorDay - dayNumber(dateFormat.parse(dateString).getTime());
+
+                if (daysAgo >= 0 && daysAgo < DAYS_TO_TRACK_VISITS) {
+                    visitsMask |= 1 << daysAgo;
+                }
+            } catch (ParseException e) {
+                Logger.e(TAG, "error reading date in user info: {}", e);
+            }
+        }
+
+        store.putLong(visitsKey, encodeVisits(visitsAnchorDay, visitsMask));
+        store.remove(legacyVisitsKey);
+    }
+
+    private static long encodeVisits(int anchorDay, int mask) {
+        return ((long) anchorDay << 32) | (mask & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return the visits mask shifted so that bit i is set if the user visited i days before the given day
+     */
+    private int visitsAsOf(int day) {
+        int shift = day - visitsAnchorDay;
+
+        if (shift >= 32 || shift <= -32) {
+            return 0;
+        } else if (shift >= 0) {
+            return visitsMask << shift;
+        } else {
+            return visitsMask >>> -shift;
+        }
+    }
+
+    boolean isNewUser() {
+		return isNewUser;
+	}
+	
+	String getUserID() {
+		return userID;
+	}
+
+    /**
+     * Decides from a hash of the user ID, so that a user is either always or never in
+     * the sample of one user in samplingFactor, across views and runs.
+     */
+    boolean isSampled(int samplingFactor) {
+        if (samplingFactor <= 1) {
+            return true;
+        }
+
+        // FNV-1a, then the MurmurHash3 finalizer to spread the bits the modulo looks at
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < userID.length(); i++) {
+            hash = (hash ^ userID.charAt(i)) * 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return (hash >>> 1) % samplingFactor == 0;
+    }
+	
+	void visited() {
+		int today = today();
+		int visits = visitsAsOf(today);
+
+		if ((visits & 1) == 0 || today != visitsAnchorDay) {
+			visitsAnchorDay = today;
+			visitsMask = visits | 1;
+
+			Logger.d(TAG, "Storing user visits: {}", Integer.toBinaryString(visitsMask));
+			store.putLong(KEY_USER_VISITS_BY_ID + userID, encodeVisits(visitsAnchorDay, visitsMask));
+		}
+	}
+	
+	/**
+	 * Five hex digits: the number of days (up to 15) the user has been known, then
+	 * whether the user visited on each of the last 16 days, oldest first.
+	 */
+	String getUserVisitFrequencyString() {
+		int today = today();
+		int visits = visitsAsOf(today) & 0xFFFF;
+
+		if (visitFrequency != null && visitFrequencyDay == today && visitFrequencyMask == visits) {
+			return visitFrequency;
+		}
+
+		int validDates = Math.max(0, Math.min(DAYS_TO_TRACK_VISITS - 1, today - userCreatedDay));
+
+		visitFrequency = new String( new char[] { toHexDigit(validDates),
+				toHexDigit((visits >>> 12) & 0xF),
+				toHexDigit((visits >>> 8) & 0xF),
+				toHexDigit((visits >>> 4) & 0xF),
+				toHexDigit(visits & 0xF) } );
+		visitFrequencyDay = today;
+		visitFrequencyMask = visits;
+		return visitFrequency;
+	}
+
+	/**
+	 * @return the current day, counted from the epoch in local time
+	 */
+	private int today() {
+		long now = clock.currentTimeMillis();
+		return (int) floorDiv(now - TimeZoneOffset.inMinutes() * MILLISECONDS_IN_ONE_MINUTE, MILLISECONDS_IN_ONE_DAY);
+	}
+
+	private static int dayNumber(long time) {
+		return (int) floorDiv(time + TimeZone.getDefault().getOffset(time), MILLISECONDS_IN_ONE_DAY);
+	}
+
+	private static long floorDiv(long x, long y) {
+		long quotient = x / y;
+		if ((x % y != 0) && ((x ^ y) < 0)) {
+			quotient--;
+		}
+		return quotient;
+	}
+
+	private GregorianCalendar todayAsCalendar() {
+		GregorianCalendar gc = new GregorianCalendar();
+		gc.setTimeInMillis(clock.currentTimeMillis());
+		gc = new GregorianCalendar( gc.get(GregorianCalendar.YEAR), gc.get(GregorianCalendar.MONTH), gc.get(GregorianCalendar.DAY_OF_MONTH) );
+		return gc;
+	}
+
+    /**
+     * SimpleDateFormat is not thread-safe, so each use gets its own.
+     */
+    private static SimpleDateFormat dateFormat() {
+        return new SimpleDateFormat(DATE_PATTERN, Locale.US);
+    }
+
+    private GregorianCalendar pastDate(final int daysInPast, final int hoursInPast, final int minutesInPast) {
+        final long now = clock.currentTimeMillis();
+        return new GregorianCalendar() {{
+            setTimeInMillis(now);
+            add(Calendar.DAY_OF_YEAR, -daysInPast);
+            set(Calendar.HOUR_OF_DAY, -hoursInPast);
+            set(Calendar.MINUTE, -minutesInPast);
+            set(Calendar.SECOND, 0);
+            set(Calendar.MILLISECOND, 0);
+        }};
+    }
+	
+	static final char toHexDigit( int i ) {
+		if( i <= 9 && i >= 0 ) {
+			return (char) ('0' + i) ;
+		} else if( i > 9 && i < 16 ) {
+			return (char) ('A' + i - 10 );
+		} else {
+			throw new RuntimeException( "I is not in hex digit range: " + i );
+		}
+	}
+
+	void markUserAsOld() {
+		isNewUser = false;
+	}
+}
@@ -0,0 +1,88 @@
+package com.chartbeat.androidsdk;
+
+/**
+ * Created by Mike Dai Wang on 2016-02-09.
+ */
+final class ViewContent {
+    private static final float INVALID_LOAD_TIME = -1.0f;
+
+    private String sections;
+    private String authors;
+    private String zones;
+    private float pageLoadTime = INVALID_LOAD_TIME;
+
+    // Interned percent-encoded forms of the values above
+    private String encodedSections;
+    private String encodedAuthors;
+    private String encodedZones;
+
+    ViewContent() {
+
+    }
+
+    String getSections() {
+        return sections;
+    }
+
+    String getAuthors() {
+        return authors;
+    }
+
+    String getZones() {
+        return zones;
+    }
+
+    float getPageLoadTime() {
+        return pageLoadTime;
+    }
+
+    void setSections(String sections) {
+        this.sections = sections;
+        this.encodedSections = encode(sections);
+    }
+
+    void setAuthors(String authors) {
+        this.authors = authors;
+        this.encodedAuthors = encode(authors);
+    }
+
+    void setZones(String zones) {
+        this.zones = zones;
+        this.encodedZones = encode(zones);
+    }
+
+    void setPageLoadTime(float pageLoadTime) {
+        this.pageLoadTime = pageLoadTime;
+    }
+
+    void appendPingParams(PingEncoder encoder, PingParams pingParams) {
+        appendIfRequired(encoder, pingParams, QueryKeys.SECTION_G0, encodedSections);
+        appendIfRequired(encoder, pingParams, QueryKeys.AUTHOR_G1, encodedAuthors);
+        appendIfRequired(encoder, pingParams, QueryKeys.ZONE_G2, encodedZones);
+
+        /* Not needed at the moment, may need it later on
+        if (pageLoadTime != INVALID_LOAD_TIME && pingParams.includeParameter(QueryKeys.PAGE_LOAD_TIME)) {
+            encoder.append(QueryKeys.PAGE_LOAD_TIME, pageLoadTime);
+        }
+        */
+    }
+
+    void appendAllPingParams(PingEncoder encoder) {
+        appendIfRequired(encoder, null, QueryKeys.SECTION_G0, encodedSections);
+        appendIfRequired(encoder, null, QueryKeys.AUTHOR_G1, encodedAuthors);
+        appendIfRequired(encoder, null, QueryKeys.ZONE_G2, encodedZones);
+    }
+
+    /**
+     * @param pingParams null to append every value that is set
+     */
+    private static void appendIfRequired(PingEncoder encoder, PingParams pingParams, String key, String encodedValue) {
+        if (encodedValue != null && (pingParams == null || pingParams.includeParameter(key))) {
+            encoder.appendPreEncoded(key, encodedValue);
+        }
+    }
+
+    private static String encode(String value) {
+        return value == null ? null : MetadataInterner.encoded(value);
+    }
+}
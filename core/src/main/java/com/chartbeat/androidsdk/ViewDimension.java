@@ -0,0 +1,54 @@
+package com.chartbeat.androidsdk;
+
+/**
+ * Created by Mike Dai Wang on 2016-02-09.
+ */
+final class ViewDimension {
+    private int scrollPositionTop = -1;
+    private int totalContentHeight = -1;
+    private int scrollWindowHeight = -1;
+    private int fullyRenderedDocWidth = -1;
+    private int maxScrollDepth = -1;
+
+    ViewDimension() {
+
+    }
+
+    ViewDimension(int scrollPositionTop,
+                  int scrollWindowHeight,
+                  int totalContentHeight,
+                  int fullyRenderedDocWidth,
+                  int maxScrollDepth) {
+        update(scrollPositionTop, scrollWindowHeight, totalContentHeight, fullyRenderedDocWidth, maxScrollDepth);
+    }
+
+    void update(int scrollPositionTop,
+                int scrollWindowHeight,
+                int totalContentHeight,
+                int fullyRenderedDocWidth,
+                int maxScrollDepth) {
+        this.scrollPositionTop = scrollPositionTop;
+        this.totalContentHeight = totalContentHeight;
+        this.scrollWindowHeight = scrollWindowHeight;
+        this.fullyRenderedDocWidth = fullyRenderedDocWidth;
+        this.maxScrollDepth = maxScrollDepth;
+    }
+
+    int getMaxScrollDepth() {
+        return maxScrollDepth;
+    }
+
+    void appendPingParams(PingEncoder encoder, PingParams pingParams) {
+        appendIfRequired(encoder, pingParams, QueryKeys.SCROLL_POSITION_TOP, scrollPositionTop);
+        appendIfRequired(encoder, pingParams, QueryKeys.MAX_SCROLL_DEPTH, maxScrollDepth);
+        appendIfRequired(encoder, pingParams, QueryKeys.CONTENT_HEIGHT, totalContentHeight);
+        appendIfRequired(encoder, pingParams, QueryKeys.DOCUMENT_WIDTH, fullyRenderedDocWidth);
+        appendIfRequired(encoder, pingParams, QueryKeys.SCROLL_WINDOW_HEIGHT, scrollWindowHeight);
+    }
+
+    private static void appendIfRequired(PingEncoder encoder, PingParams pingParams, String key, int value) {
+        if (value != -1 && pingParams.includeParameter(key)) {
+            encoder.append(key, value);
+        }
+    }
+}
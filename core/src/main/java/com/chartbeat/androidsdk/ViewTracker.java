@@ -0,0 +1,234 @@
+package com.chartbeat.androidsdk;
+
+/**
+ * Created by Mike Dai Wang on 2016-02-04.
+ */
+final class ViewTracker {
+    private static final String TAG = ViewTracker.class.getSimpleName();
+
+    private static final double SECOND_IN_DOUBLE = 1000.0;
+
+    private final Clock clock;
+    private final long viewInitTime;
+
+    private ViewInfo viewInfo;
+    private ViewDimension dimension;
+    private ViewContent content;
+    private String subdomain;
+    private String domain;
+
+    // Pre-encoded parameters that stay the same for the whole view, rebuilt only
+    // when one of them changes
+    private String mandatoryStaticParams;
+    private String allStaticParams;
+    private int staticParamsTimeZoneOffset;
+    // Length of the host, subdomain and account parameters the static parameters start with
+    private int destinationParamsLength;
+
+    ViewTracker(String viewID, String viewTitle, String domain, String subdomain, String internalReferrer, String token, ViewDimension dimension, Clock clock) {
+        this.viewInfo = new ViewInfo(viewID, viewTitle, internalReferrer, token);
+        this.domain = domain;
+        this.subdomain = subdomain;
+        this.clock = clock;
+        this.viewInitTime = clock.currentTimeMillis();
+        if (dimension == null) {
+            this.dimension = new ViewDimension();
+        } else {
+            this.dimension = dimension;
+        }
+        this.content = new ViewContent();
+    }
+
+    boolean isSameView(String viewID) {
+        String currentViewID = viewInfo.getViewID();
+        return currentViewID != null && currentViewID.equals(viewID);
+    }
+
+    boolean wasReferredFromAnotherView() {
+        return viewInfo.getInternalReferrer() != null;
+    }
+
+    String getViewID() {
+        if (viewInfo != null) {
+            return viewInfo.getViewID();
+        } else {
+            return null;
+        }
+    }
+
+    String getViewTitle() {
+        if (viewInfo != null) {
+            return viewInfo.getViewTitle();
+        } else {
+            return null;
+        }
+    }
+
+    String getSubdomain() {
+        return this.subdomain;
+    }
+
+    String getDomain() { return this.domain; }
+
+    String getInternalReferrer() {
+        if (viewInfo != null) {
+            return viewInfo.getInternalReferrer();
+        } else {
+            return null;
+        }
+    }
+
+    String getToken() {
+        if (viewInfo != null) {
+            return viewInfo.getToken();
+        } else {
+            return null;
+        }
+    }
+
+    double getViewingTimeInMinutes() {
+        long timeInView = clock.currentTimeMillis() - this.viewInitTime;
+
+        if (timeInView < 0) {// could happen if time is adjusting
+            timeInView = 0;
+        }
+
+        // calculate time in minutes:
+        double secondsInView = timeInView / SECOND_IN_DOUBLE;
+        double minutesInView = secondsInView / 60;
+        // print with one decimal precision:
+        return minutesInView;
+    }
+
+    /**
+     * Appends the parameters that do not change between pings of this view, starting
+     * with those of the destination, see {@link #getDestinationParamsLength()}.
+     */
+    void appendStaticParams(PingEncoder encoder, PingParams pingParams, AppInfo appInfo, String userID) {
+        int timeZoneOffset = TimeZoneOffset.inMinutes();
+
+        if (allStaticParams == null || staticParamsTimeZoneOffset != timeZoneOffset) {
+            encodeStaticParams(appInfo, userID, timeZoneOffset);
+        }
+
+        if (pingParams.includesOptionalParameters()) {
+            encoder.appendEncodedParameters(allStaticParams);
+        } else {
+            encoder.appendEncodedParameters(mandatoryStaticParams);
+            // sections, authors and zones that just changed
+            appendContentParams(encoder, pingParams);
+        }
+    }
+
+    private void encodeStaticParams(AppInfo appInfo, String userID, int timeZoneOffset) {
+        PingEncoder params = new PingEncoder();
+
+        appendIfNotNull(params, QueryKeys.HOST, domain != null ? domain : appInfo.getDomain());
+        appendIfNotNull(params, QueryKeys.SUBDOMAIN, subdomain != null ? subdomain : appInfo.getDomain());
+        appendIfNotNull(params, QueryKeys.ACCOUNT_ID, appInfo.getAccountID());
+        destinationParamsLength = params.length();
+
+        appendIfNotNull(params, QueryKeys.VIEW_ID, getViewID());
+        appendIfNotNull(params, QueryKeys.USER_ID, userID);
+        appendIfNotNull(params, QueryKeys.TOKEN, getToken());
+        // Not mandatory, but every ping has always carried it
+        params.append(QueryKeys.TIME_ZONE, timeZoneOffset);
+        mandatoryStaticParams = params.toString();
+
+        if (content != null) {
+            content.appendAllPingParams(params);
+        }
+        appendIfNotNull(params, QueryKeys.INTERNAL_REFERRER, getInternalReferrer());
+        appendIfNotNull(params, QueryKeys.SDK_VERSION, appInfo.getSdkVersion());
+        appendIfNotNull(params, QueryKeys.VIEW_TITLE, getViewTitle());
+        params.append(QueryKeys.SCREEN_WIDTH, appInfo.getDeviceScreenWidth());
+
+        // The tell memoryfly which interaction or API version is expected.
+        // Setting <MEMFLY_API_VERSION> to 1 indicates that 202 status codes are
+        // expected rather than 500 when referrer is not present in the ping.
+        params.append(QueryKeys.MEMFLY_API_VERSION, ChartBeatTracker.PING_ENDPOINT_VERSION);
+        allStaticParams = params.toString();
+
+        staticParamsTimeZoneOffset = timeZoneOffset;
+    }
+
+    /**
+     * @return the length of the host, subdomain and account parameters the pings of
+     * this view start with, which {@link PingDestination} replaces for other accounts
+     */
+    int getDestinationParamsLength() {
+        return destinationParamsLength;
+    }
+
+    private static void appendIfNotNull(PingEncoder encoder, String key, String value) {
+        if (value != null) {
+            encoder.append(key, value);
+        }
+    }
+
+    private void invalidateStaticParams() {
+        mandatoryStaticParams = null;
+        allStaticParams = null;
+    }
+
+    void appendDimensionParams(PingEncoder encoder, PingParams pingParams) {
+        if (dimension != null) {
+            dimension.appendPingParams(encoder, pingParams);
+        }
+    }
+
+    void appendContentParams(PingEncoder encoder, PingParams pingParams) {
+        if (content != null) {
+            content.appendPingParams(encoder, pingParams);
+        }
+    }
+
+    void updateDimension(int scrollPositionTop, int scrollWindowHeight, int totalContentHeight, int fullyRenderedDocWidth,
+                         int maxScrollPositionTop) {
+        int currentMaxDepth = dimension.getMaxScrollDepth();
+
+        dimension.update(scrollPositionTop,
+                scrollWindowHeight,
+                totalContentHeight,
+                fullyRenderedDocWidth,
+                Math.max(currentMaxDepth, maxScrollPositionTop));
+    }
+
+    void updateSubdomain(String subdomain) {
+        if (subdomain != null && !subdomain.isEmpty()) {
+            this.subdomain = subdomain;
+        } else {
+            this.subdomain = null;
+        }
+        invalidateStaticParams();
+    }
+
+    void updateDomain(String domain) {
+        if (domain != null && !domain.isEmpty()) {
+            this.domain = domain;
+        } else {
+            this.domain = null;
+        }
+        invalidateStaticParams();
+    }
+
+    void updateSections(String sections) {
+        content.setSections(sections);
+        invalidateStaticParams();
+    }
+
+    void updateAuthors(String authors) {
+        content.setAuthors(authors);
+        invalidateStaticParams();
+    }
+
+    void updateZones(String zones) {
+        content.setZones(zones);
+        invalidateStaticParams();
+    }
+
+    void updatePageLoadingTime(float pageLoadTime) {
+        content.setPageLoadTime(pageLoadTime);
+        invalidateStaticParams();
+    }
+}
@@ -0,0 +1,253 @@
+package com.chartbeat.androidsdk;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Runs many reader sessions at once on the SDK's own tracker, in real time, and
+ * reports the load they put on the collector and what it cost the client:
+ *
+ * <pre>
+ * --sessions N        concurrent reader sessions (10000)
+ * --duration S        seconds to run for (120)
+ * --ramp S            seconds over which the sessions start (15)
+ * --lanes N           tracker threads shared by the sessions (one per core)
+ * --endpoint URL      collector to ping, a {@link PingCollector} on a local port if not given
+ * --script SCRIPT     responses of the local collector, see {@link ResponseScript} (200)
+ * --batch-window MS   send pings in batches collected for this long (0, off)
+ * --format FORMAT     query or compact, see {@link CompactPingFormat} (query)
+ * --sampling N        ping for one reader in N only, see {@link UserInfo#isSampled(int)} (1)
+ * --seed N            seed of the reader scripts (1)
+ * </pre>
+ */
+public final class LoadGeneratorMain {
+    private static final String LANE_THREAD_PREFIX = "tracker-lane-";
+    private static final long PROGRESS_PERIOD_MS = 10 * 1000;
+
+    private int sessionCount = 10000;
+    private long durationMs = 120 * 1000;
+    private long rampMs = 15 * 1000;
+    private int laneCount = Runtime.getRuntime().availableProcessors();
+    private String endpoint;
+    private ResponseScript script = ResponseScript.ALWAYS_200;
+    private long batchWindowMs = 0;
+    private boolean isCompact = false;
+    private int samplingFactor = 1;
+    private long seed = 1;
+
+    private LoadGeneratorMain() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadGeneratorMain load = new LoadGeneratorMain();
+        load.parse(args);
+        load.run();
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--sessions":
+                    sessionCount = Integer.parseInt(value);
+                    break;
+                case "--duration":
+                    durationMs = Long.parseLong(value) * 1000;
+                    break;
+                case "--ramp":
+                    rampMs = Long.parseLong(value) * 1000;
+                    break;
+                case "--lanes":
+                    laneCount = Integer.parseInt(value);
+                    break;
+                case "--endpoint":
+                    endpoint = value;
+                    break;
+                case "--script":
+                    script = ResponseScript.parse(value);
+                    break;
+                case "--batch-window":
+                    batchWindowMs = Long.parseLong(value);
+                    break;
+                case "--format":
+                    if (!"query".equals(value) && !"compact".equals(value)) {
+                        throw new IllegalArgumentException("Unknown ping format " + value);
+                    }
+                    isCompact = "compact".equals(value);
+                    break;
+                case "--sampling":
+                    samplingFactor = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    private void run() throws IOException, InterruptedException {
+        PingCollector collector = null;
+        if (endpoint == null) {
+            collector = new PingCollector(script, false, null, Math.max(2, laneCount / 2));
+            collector.start(new InetSocketAddress("127.0.0.1", 0));
+            endpoint = collector.endpoint();
+        }
+
+        ScheduledExecutorService[] lanes = new ScheduledExecutorService[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = ExecutorTaskScheduler.newTrackerThread(LANE_THREAD_PREFIX + i);
+        }
+
+        LoadStats stats = new LoadStats();
+        PingService pingService = newPingService();
+        File offlineQueueDirectory = Files.createTempDirectory("chartbeat-load").toFile();
+
+        System.out.printf("%d sessions on %d tracker threads for %d s against %s, sampling 1 in %d%n",
+                sessionCount, laneCount, durationMs / 1000, endpoint, samplingFactor);
+
+        List<ReaderSession> sessions = new ArrayList<>(sessionCount);
+        for (int i = 0; i < sessionCount; i++) {
+            // Compact dictionaries belong to a device, each session needs its own
+            ReaderSession session = new ReaderSession(seed * 1000003 + i,
+                    new ExecutorTaskScheduler(lanes[i % laneCount]),
+                    new MeasuringTransport(isCompact ? newPingService() : pingService, stats),
+                    new File(offlineQueueDirectory, Integer.toString(i)), samplingFactor);
+            sessions.add(session);
+            session.start((long) i * rampMs / sessionCount);
+        }
+
+        long startTime = System.currentTimeMillis();
+        long lastPings = 0;
+        long rampEndTime = 0;
+        long rampEndPings = 0;
+        long elapsed;
+        while ((elapsed = System.currentTimeMillis() - startTime) < durationMs) {
+            Thread.sleep(Math.min(PROGRESS_PERIOD_MS, durationMs - elapsed));
+
+            long now = System.currentTimeMillis();
+            long pings = stats.pings.get();
+            System.out.printf("%5d s  %8d pings  %8.1f pings/s%n", (now - startTime) / 1000,
+                    pings, (pings - lastPings) * 1000.0 / PROGRESS_PERIOD_MS);
+            lastPings = pings;
+
+            if (rampEndTime == 0 && now - startTime >= rampMs) {
+                rampEndTime = now;
+                rampEndPings = pings;
+            }
+        }
+        long endTime = System.currentTimeMillis();
+        long steadyPings = stats.pings.get() - rampEndPings;
+
+        for (ReaderSession session : sessions) {
+            session.stop();
+        }
+        // Let the pings in flight come back
+        Thread.sleep(1000);
+
+        report(stats, steadyPings * 1000.0 / Math.max(1, endTime - rampEndTime), collector);
+
+        if (collector != null) {
+            collector.stop();
+        }
+        for (ScheduledExecutorService lane : lanes) {
+            lane.shutdownNow();
+        }
+        offlineQueueDirectory.delete();
+    }
+
+    private PingService newPingService() {
+        return new PingService(endpoint, "ChartbeatLoadGenerator/1.0", batchWindowMs, isCompact);
+    }
+
+    /**
+     * @param steadyRate pings per second once all sessions had started
+     */
+    private void report(LoadStats stats, double steadyRate, PingCollector collector) {
+        long pings = stats.pings.get();
+        // Sessions start evenly over the ramp, so each ran for the duration less half of it
+        double sessionMinutes = sessionCount * (durationMs - rampMs / 2.0) / 60000.0;
+
+        System.out.println();
+        System.out.printf("pings             %d (%.1f/s after the ramp up)%n", pings, steadyRate);
+        System.out.printf("query bytes       %d (%.0f per session-minute, %.0f per ping)%n", stats.queryBytes.get(),
+                stats.queryBytes.get() / sessionMinutes, stats.queryBytes.get() / (double) Math.max(1, pings));
+        long wireBytes = Metrics.snapshot().getBytesSent();
+        System.out.printf("wire bytes        %d as %s (%.0f per session-minute, %.0f per ping)%n", wireBytes,
+                isCompact ? "compact pings" : "query strings", wireBytes / sessionMinutes,
+                wireBytes / (double) Math.max(1, pings));
+        System.out.printf("latency           p50 %s  p99 %s  max %s%n", millis(stats.latency.percentileMicros(50)),
+                millis(stats.latency.percentileMicros(99)), millis(stats.latency.maxMicros()));
+        System.out.printf("failures          %d non-200 responses, %d network errors%n",
+                stats.non200Responses.get(), stats.errors.get());
+        if (collector != null) {
+            CollectorStats collected = collector.stats();
+            System.out.printf("collector         %d pings received, %d breaking the rules%n",
+                    collected.total(CollectorStats.PINGS), collected.total(CollectorStats.INVALID_PINGS));
+        }
+        reportCpu(pings);
+
+        System.out.println();
+        System.out.println("mode                          pings   share  bytes/ping  wire/ping       p50       p99");
+        for (PingMode mode : PingMode.values()) {
+            LoadStats.ModeStats modeStats = stats.of(mode);
+            long modePings = modeStats.pings.get();
+            // Only a local collector knows what each mode took on the wire
+            String wirePerPing = "-";
+            if (collector != null) {
+                CollectorStats collected = collector.stats();
+                wirePerPing = String.format("%.0f",
+                        collected.bytesInMode(mode) / (double) Math.max(1, collected.pingsInMode(mode)));
+            }
+            System.out.printf("%-26s %8d  %5.1f%%  %10.0f  %9s  %s  %s%n", mode, modePings,
+                    100.0 * modePings / Math.max(1, pings),
+                    modeStats.queryBytes.get() / (double) Math.max(1, modePings), wirePerPing,
+                    millis(modeStats.latency.percentileMicros(50)), millis(modeStats.latency.percentileMicros(99)));
+        }
+    }
+
+    /**
+     * Client CPU is the time spent on the tracker threads, where pings are encoded,
+     * plus on the other threads of the process but those of the local collector,
+     * mostly the network threads sending pings.
+     */
+    private static void reportCpu(long pings) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadCpuTimeSupported()) {
+            return;
+        }
+
+        long trackerNanos = 0;
+        long networkNanos = 0;
+        for (long id : threads.getAllThreadIds()) {
+            ThreadInfo info = threads.getThreadInfo(id);
+            long cpuNanos = threads.getThreadCpuTime(id);
+            if (info == null || cpuNanos < 0 || PingCollector.isCollectorThread(info.getThreadName())) {
+                continue;
+            }
+
+            if (info.getThreadName().startsWith(LANE_THREAD_PREFIX)) {
+                trackerNanos += cpuNanos;
+            } else {
+                networkNanos += cpuNanos;
+            }
+        }
+
+        long perPing = Math.max(1, pings);
+        System.out.printf("client cpu        tracker %.1f s (%d us/ping), network and other %.1f s (%d us/ping)%n",
+                trackerNanos / 1e9, trackerNanos / 1000 / perPing, networkNanos / 1e9, networkNanos / 1000 / perPing);
+    }
+
+    private static String millis(long micros) {
+        return String.format("%6.2f ms", micros / 1000.0);
+    }
+}
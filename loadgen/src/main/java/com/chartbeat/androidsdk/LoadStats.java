@@ -0,0 +1,46 @@
+package com.chartbeat.androidsdk;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What the sessions of a load test sent, overall and per {@link PingMode}.
+ */
+final class LoadStats {
+    final LatencyHistogram latency = new LatencyHistogram();
+    final AtomicLong pings = new AtomicLong();
+    final AtomicLong queryBytes = new AtomicLong();
+    final AtomicLong errors = new AtomicLong();
+    final AtomicLong non200Responses = new AtomicLong();
+
+    private final ModeStats[] modes = new ModeStats[PingMode.values().length];
+
+    LoadStats() {
+        for (int i = 0; i < modes.length; i++) {
+            modes[i] = new ModeStats();
+        }
+    }
+
+    ModeStats of(PingMode mode) {
+        return modes[mode.ordinal()];
+    }
+
+    void recordPing(PingMode mode, int queryLength, long latencyNanos, int code) {
+        pings.incrementAndGet();
+        queryBytes.addAndGet(queryLength);
+        latency.recordNanos(latencyNanos);
+        if (code != 200) {
+            non200Responses.incrementAndGet();
+        }
+
+        ModeStats modeStats = of(mode);
+        modeStats.pings.incrementAndGet();
+        modeStats.queryBytes.addAndGet(queryLength);
+        modeStats.latency.recordNanos(latencyNanos);
+    }
+
+    static final class ModeStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong pings = new AtomicLong();
+        final AtomicLong queryBytes = new AtomicLong();
+    }
+}
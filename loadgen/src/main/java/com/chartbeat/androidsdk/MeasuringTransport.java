@@ -0,0 +1,58 @@
+package com.chartbeat.androidsdk;
+
+import java.util.List;
+
+import rx.Observable;
+import rx.functions.Action1;
+
+/**
+ * Sits between one session's tracker and the shared {@link PingService}, timing each
+ * ping from the tracker handing it over to its result coming back, and attributing
+ * it to the mode it was encoded in.
+ */
+final class MeasuringTransport implements PingTransport {
+    private final PingTransport transport;
+    private final LoadStats stats;
+    private ChartBeatTracker tracker;
+
+    MeasuringTransport(PingTransport transport, LoadStats stats) {
+        this.transport = transport;
+        this.stats = stats;
+    }
+
+    void attach(ChartBeatTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @Override
+    public boolean isBatching() {
+        return transport.isBatching();
+    }
+
+    @Override
+    public Observable<PingResult> ping(final String query) {
+        // Still the mode of this ping, it only moves on once the result is handled
+        final PingMode mode = tracker.getPingMode();
+        final long startTime = System.nanoTime();
+
+        return transport.ping(query)
+                .doOnNext(new Action1<PingResult>() {
+                    @Override
+                    public void call(PingResult result) {
+                        stats.recordPing(mode, query.length(), System.nanoTime() - startTime, result.code);
+                    }
+                })
+                .doOnError(new Action1<Throwable>() {
+                    @Override
+                    public void call(Throwable throwable) {
+                        stats.errors.incrementAndGet();
+                    }
+                });
+    }
+
+    @Override
+    public Observable<List<PingResult>> pingBatch(List<String> batch) {
+        // Only offline replays come through here, which a load test does not produce
+        return transport.pingBatch(batch);
+    }
+}
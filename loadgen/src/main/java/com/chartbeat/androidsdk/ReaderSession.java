@@ -0,0 +1,140 @@
+package com.chartbeat.androidsdk;
+
+import java.io.File;
+import java.util.Random;
+
+/**
+ * One simulated reader: a tracker of its own, driven through articles by a random
+ * script on the tracker's thread. A reader alternates between reading, where it
+ * interacts every few seconds and scrolls now and then, sitting idle on a view, opening
+ * another article and leaving the app for a while.
+ */
+final class ReaderSession {
+    private static final int ARTICLES = 500;
+    private static final int WINDOW_HEIGHT = 1920;
+    private static final int CONTENT_HEIGHT = 9600;
+    private static final int DOCUMENT_WIDTH = 1080;
+
+    private static final int READING = 0;
+    private static final int IDLE = 1;
+    private static final int IN_BACKGROUND = 2;
+
+    private final TaskScheduler scheduler;
+    private final ChartBeatTracker tracker;
+    private final Random random;
+
+    private volatile boolean inBackground = false;
+    private int state;
+    private long stateEndTime;
+    private String viewId;
+    private int scrollPosition;
+
+    private final Runnable step = new Runnable() {
+        @Override
+        public void run() {
+            scheduler.postDelayed(this, act());
+        }
+    };
+
+    /**
+     * @param offlineQueueDirectory not created, so a failed ping is not queued but folded
+     *                              into the next one, like on a device whose queue is full
+     * @param samplingFactor see {@link AppInfo#setSamplingFactor(int)}
+     */
+    ReaderSession(long seed, TaskScheduler scheduler, MeasuringTransport transport, File offlineQueueDirectory,
+                  int samplingFactor) {
+        this.scheduler = scheduler;
+        this.random = new Random(seed);
+
+        TrackerEnvironment environment = new TrackerEnvironment(Clock.SYSTEM, scheduler, new MemoryKeyValueStore(),
+                NetworkState.ALWAYS_CONNECTED,
+                new ForegroundState() {
+                    @Override
+                    public boolean isInBackground() {
+                        return inBackground;
+                    }
+                },
+                transport, offlineQueueDirectory);
+
+        AppInfo appInfo = new AppInfo("12345", "loadtest.chartbeat.com", "com.chartbeat.loadgen", DOCUMENT_WIDTH, 1);
+        appInfo.setSamplingFactor(samplingFactor);
+        tracker = new ChartBeatTracker(appInfo, environment);
+        transport.attach(tracker);
+    }
+
+    void start(long delayMillis) {
+        scheduler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                openArticle();
+                step.run();
+            }
+        }, delayMillis);
+    }
+
+    void stop() {
+        scheduler.cancel(step);
+        scheduler.post(new Runnable() {
+            @Override
+            public void run() {
+                tracker.stopTracker();
+            }
+        });
+    }
+
+    /**
+     * @return milliseconds until the next step
+     */
+    private long act() {
+        long now = System.currentTimeMillis();
+
+        if (state == READING) {
+            tracker.userInteractedImpl();
+            if (random.nextInt(3) == 0) {
+                scrollPosition = Math.min(CONTENT_HEIGHT - WINDOW_HEIGHT, scrollPosition + 200 + random.nextInt(600));
+                tracker.updateViewDimensions(scrollPosition, WINDOW_HEIGHT, CONTENT_HEIGHT, DOCUMENT_WIDTH, scrollPosition);
+            }
+        }
+
+        if (now < stateEndTime) {
+            return state == READING ? between(1000, 5000) : stateEndTime - now;
+        }
+
+        if (state == IN_BACKGROUND) {
+            inBackground = false;
+            tracker.trackViewImpl(viewId, viewId, scrollPosition, WINDOW_HEIGHT, CONTENT_HEIGHT, DOCUMENT_WIDTH);
+            enter(READING, between(20000, 120000));
+            return 0;
+        }
+
+        int next = random.nextInt(10);
+        if (next < 4) {
+            enter(IDLE, between(30000, 300000));
+        } else if (next < 6) {
+            enter(READING, between(20000, 120000));
+        } else if (next < 8) {
+            openArticle();
+        } else {
+            inBackground = true;
+            tracker.userLeftViewImpl(viewId);
+            enter(IN_BACKGROUND, between(10000, 120000));
+        }
+        return state == READING ? 0 : stateEndTime - now;
+    }
+
+    private void openArticle() {
+        viewId = "/article/" + random.nextInt(ARTICLES);
+        scrollPosition = 0;
+        tracker.trackViewImpl(viewId, viewId, 0, WINDOW_HEIGHT, CONTENT_HEIGHT, DOCUMENT_WIDTH);
+        enter(READING, between(20000, 120000));
+    }
+
+    private void enter(int newState, long duration) {
+        state = newState;
+        stateEndTime = System.currentTimeMillis() + duration;
+    }
+
+    private long between(long min, long max) {
+        return min + (long) (random.nextDouble() * (max - min));
+    }
+}
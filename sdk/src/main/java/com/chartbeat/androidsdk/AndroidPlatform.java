@@ -0,0 +1,76 @@
+package com.chartbeat.androidsdk;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+/**
+ * Builds the tracking core's view of Android: the tracker thread, storage, network,
+ * foreground state and logcat.
+ */
+final class AndroidPlatform {
+    private static boolean timeZoneReceiverRegistered = false;
+
+    static final Logger.Sink LOGCAT = new Logger.Sink() {
+        @Override
+        public boolean isEnabled() {
+            return Tracker.DEBUG_MODE;
+        }
+
+        @Override
+        public void log(int priority, String tag, String message) {
+            Log.println(priority, tag, message);
+        }
+    };
+
+    private static final ForegroundState FOREGROUND_TRACKER = new ForegroundState() {
+        @Override
+        public boolean isInBackground() {
+            return ForegroundTracker.get().isInBackground();
+        }
+    };
+
+    private AndroidPlatform() {
+    }
+
+    static AppInfo appInfo(Context context, String accountID, String domain) {
+        AppInfo appInfo = new AppInfo(accountID, domain, context.getPackageName(),
+                SystemUtils.getScreenSize(context).x, BuildConfig.VERSION_CODE);
+        for (PingDestination account : Tracker.getAdditionalAccounts()) {
+            appInfo.addDestination(account.getAccountID(), account.getDomain());
+        }
+        appInfo.setSamplingFactor(Tracker.getSamplingFactor());
+        return appInfo;
+    }
+
+    static TrackerEnvironment environment(Context context, Looper looper, String userAgent) {
+        Context appContext = context.getApplicationContext();
+        registerTimeZoneReceiver(appContext);
+
+        return new TrackerEnvironment(Clock.SYSTEM,
+                new HandlerTaskScheduler(new Handler(looper)),
+                ChartbeatStore.get(appContext),
+                NetworkMonitor.get(appContext),
+                FOREGROUND_TRACKER,
+                new PingService(userAgent, Tracker.getPingBatchWindowMillis(), Tracker.isCompactPingsEnabled()),
+                appContext.getFilesDir());
+    }
+
+    private static synchronized void registerTimeZoneReceiver(Context appContext) {
+        if (timeZoneReceiverRegistered) {
+            return;
+        }
+
+        appContext.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                TimeZoneOffset.invalidate();
+            }
+        }, new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED));
+        timeZoneReceiverRegistered = true;
+    }
+}
@@ -50,10 +50,12 @@ public class ChartbeatService extends Service {
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        if (intent != null) {
+        TrackerCommand command = intent == null ? null : CommandIntents.fromBundle(intent.getExtras());
+
+        if (command != null) {
             Message msg = handler.obtainMessage();
             msg.arg1 = startId;
-            msg.setData(intent.getExtras());
+            msg.obj = command;
             handler.sendMessage(msg);
         }
 
@@ -1,8 +1,6 @@
 package com.chartbeat.androidsdk;
 
 import android.content.Context;
-import android.content.SharedPreferences;
-import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
@@ -22,6 +20,15 @@ final class ChartbeatServiceHandler extends Handler {
     private static ChartBeatTracker singleton;
     private static String userAgent;
 
+    private final Runnable networkRestoredTask = new Runnable() {
+        @Override
+        public void run() {
+            if (isSDKInitialized()) {
+                singleton.networkRestored();
+            }
+        }
+    };
+
     public ChartbeatServiceHandler(WeakReference<Context> context, Looper looper, String systemUserAgent) {
         super(looper);
         this.context = context;
@@ -30,23 +37,25 @@ final class ChartbeatServiceHandler extends Handler {
 
     @Override
     public void handleMessage(Message msg) {
-        Bundle bundle = msg.getData();
+        TrackerCommand command = (TrackerCommand) msg.obj;
 
-        processMessage(bundle);
+        processCommand(command);
+        command.recycle();
     }
 
-    private void processMessage(Bundle bundle) {
-        String actionType = bundle.getString(Tracker.KEY_SDK_ACTION_TYPE);
+    void processCommand(TrackerCommand command) {
+        Metrics.increment(Metrics.COMMANDS_PROCESSED);
+        Metrics.addToGauge(Metrics.PENDING_COMMANDS, -1);
 
-        if (actionType.equals(Tracker.ACTION_INIT_TRACKER)) {
-            handleSDKInit(bundle);
+        if (command.type == TrackerCommand.INIT_TRACKER) {
+            handleSDKInit(command.accountId, command.domain);
         }
 
         if (!isSDKInitialized()) {
             reInitSDKFromBackground();
         }
 
-        handleMessageType(actionType, bundle);
+        handleCommandType(command);
     }
 
     private static boolean isSDKInitialized() {
@@ -54,100 +63,97 @@ final class ChartbeatServiceHandler extends Handler {
     }
 
     private void reInitSDKFromBackground() {
-        SharedPreferences prefs = context.get().getSharedPreferences(ChartBeatTracker.CHARTBEAT_PREFS, Context.MODE_PRIVATE);
+        ChartbeatStore store = ChartbeatStore.get(context.get());
 
-        String accountID = prefs.getString(KEY_LAST_USED_ACCOUNT_ID, null);
+        String accountID = store.getString(KEY_LAST_USED_ACCOUNT_ID, null);
 
         if (accountID != null) {
-            String domain = prefs.getString(KEY_LAST_USED_DOMAIN, null);
+            String domain = store.getString(KEY_LAST_USED_DOMAIN, null);
 
             initSDK(accountID, domain);
         }
     }
 
     private void initSDK(String accountID, String domain) {
-        singleton = new ChartBeatTracker(context, accountID, domain, userAgent, getLooper());
+        Context appContext = context.get();
+        singleton = new ChartBeatTracker(AndroidPlatform.appInfo(appContext, accountID, domain),
+                AndroidPlatform.environment(appContext, getLooper(), userAgent));
+
+        // Catch up on the tracker thread as soon as the network is back
+        NetworkMonitor.get(appContext).setReconnectListener(new Runnable() {
+            @Override
+            public void run() {
+                post(networkRestoredTask);
+            }
+        });
     }
 
-    private void handleMessageType(String actionType, Bundle bundle) {
+    private void handleCommandType(TrackerCommand command) {
 
         if (!isSDKInitialized()) {
             Logger.e(TAG, "Chartbeat SDK has not been initialized");
             return;
         }
 
-        switch (actionType) {
-            case Tracker.ACTION_SET_APP_REFERRER:
-                setAppReferrer(bundle);
+        if (singleton.coalesce(command)) {
+            return;
+        }
+
+        if (CommandCoalescer.isViewBoundary(command)) {
+            singleton.flushPendingUpdates();
+        }
+
+        switch (command.type) {
+            case TrackerCommand.SET_APP_REFERRER:
+                setAppReferrer(command.value);
                 break;
-            case Tracker.ACTION_STOP_TRACKER:
+            case TrackerCommand.STOP_TRACKER:
                 stopTracker();
                 break;
-            case Tracker.ACTION_TRACK_VIEW:
-                trackView(bundle);
+            case TrackerCommand.TRACK_VIEW:
+                trackView(command.viewId, command.viewTitle,
+                        command.scrollPositionTop, command.scrollWindowHeight,
+                        command.totalContentHeight, command.fullyRenderedDocWidth);
                 break;
-            case Tracker.ACTION_LEFT_VIEW:
-                userLeftView(bundle);
+            case TrackerCommand.LEFT_VIEW:
+                userLeftView(command.viewId);
                 break;
-            case Tracker.ACTION_USER_INTERACTED:
+            case TrackerCommand.USER_INTERACTED:
                 userInteracted();
                 break;
-            case Tracker.ACTION_USER_TYPED:
+            case TrackerCommand.USER_TYPED:
                 userTyped();
                 break;
-            case Tracker.ACTION_SET_SUBDOMAIN:
-                setSubdomain(bundle);
-                break;
-            case Tracker.ACTION_SET_DOMAIN:
-                setDomain(bundle);
-                break;
-            case Tracker.ACTION_SET_ZONES:
-                setZones(bundle);
+            case TrackerCommand.SET_VIEW_LOADING_TIME:
+                setViewLoadTime(command.viewLoadTime);
                 break;
-            case Tracker.ACTION_SET_AUTHORS:
-                setAuthors(bundle);
-                break;
-            case Tracker.ACTION_SET_SECTIONS:
-                setSections(bundle);
-                break;
-            case Tracker.ACTION_SET_VIEW_LOADING_TIME:
-                setViewLoadTime(bundle);
-                break;
-            case Tracker.ACTION_SET_POSITION:
-                setPosition(bundle);
-                break;
-            case Tracker.ACTION_PAUSE_TRACKER:
+            case TrackerCommand.PAUSE_TRACKER:
                 pauseTracker();
+                break;
             default:
                 return;
         }
     }
 
-    private void handleSDKInit(Bundle bundle) {
+    private void handleSDKInit(String accountID, String domain) {
         if (!isSDKInitialized()) {
-            String accountID = bundle.getString(Tracker.KEY_ACCOUNT_ID);
-            String domain = bundle.getString(Tracker.KEY_DOMAIN);
-
             initSDK(accountID, domain);
             cacheSDKDetailForReinit(accountID, domain);
         }
     }
 
     private void cacheSDKDetailForReinit(String accountID, String domain) {
-        SharedPreferences prefs = context.get().getSharedPreferences(ChartBeatTracker.CHARTBEAT_PREFS, Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
+        ChartbeatStore store = ChartbeatStore.get(context.get());
 
-        editor.putString(KEY_LAST_USED_ACCOUNT_ID, accountID);
-        editor.putString(KEY_LAST_USED_DOMAIN, domain);
-        editor.commit();
+        store.putString(KEY_LAST_USED_ACCOUNT_ID, accountID);
+        store.putString(KEY_LAST_USED_DOMAIN, domain);
     }
 
-    public void setAppReferrer(Bundle bundle) {
+    public void setAppReferrer(String appReferrer) {
         if (!isSDKInitialized()) {
             return;
         }
 
-        String appReferrer = bundle.getString(Tracker.KEY_APP_REFERRER);
         singleton.setExternalReferrer(appReferrer);
     }
 
@@ -170,37 +176,28 @@ final class ChartbeatServiceHandler extends Handler {
     }
 
     private void clearCachedSDKDetail() {
-        SharedPreferences prefs = context.get().getSharedPreferences(ChartBeatTracker.CHARTBEAT_PREFS, Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
+        ChartbeatStore store = ChartbeatStore.get(context.get());
 
-        editor.putString(KEY_LAST_USED_ACCOUNT_ID, null);
-        editor.putString(KEY_LAST_USED_DOMAIN, null);
-        editor.commit();
+        store.remove(KEY_LAST_USED_ACCOUNT_ID);
+        store.remove(KEY_LAST_USED_DOMAIN);
     }
 
-    public void trackView(Bundle bundle) {
+    public void trackView(String viewId, String viewTitle,
+                          int scrollPositionTop, int scrollWindowHeight,
+                          int totalContentHeight, int fullyRenderedDocWidth) {
         if (!isSDKInitialized()) {
             return;
         }
 
-        String viewId = bundle.getString(Tracker.KEY_VIEW_ID);
-        String viewTitle = bundle.getString(Tracker.KEY_VIEW_TITLE);
-
-        int scrollPositionTop = bundle.getInt(Tracker.KEY_POSITION_TOP, -1);
-        int scrollWindowHeight = bundle.getInt(Tracker.KEY_WINDOW_HEIGHT, -1);
-        int totalContentHeight = bundle.getInt(Tracker.KEY_CONTENT_HEIGHT, -1);
-        int fullyRenderedDocWidth = bundle.getInt(Tracker.KEY_DOC_WIDTH, -1);
-
         singleton.trackViewImpl(viewId, viewTitle,
                 scrollPositionTop, scrollWindowHeight, totalContentHeight, fullyRenderedDocWidth);
     }
 
-    public static void userLeftView(Bundle bundle) {
+    public static void userLeftView(String viewId) {
         if (!isSDKInitialized()) {
             return;
         }
 
-        String viewId = bundle.getString(Tracker.KEY_VIEW_ID);
         singleton.userLeftViewImpl(viewId);
     }
 
@@ -220,7 +217,7 @@ final class ChartbeatServiceHandler extends Handler {
         singleton.userTypedImpl();
     }
 
-    public static void setDomain(Bundle bundle) {
+    public static void setViewLoadTime(float viewLoadTime) {
         if (!isSDKInitialized()) {
             return;
         }
@@ -229,90 +226,6 @@ final class ChartbeatServiceHandler extends Handler {
             Logger.e(TAG, "View tracking hasn't started, please call Tracker.trackView() first");
             return;
         }
-        String domain = bundle.getString(Tracker.KEY_DOMAIN);
-        singleton.updateDomain(domain);
-    }
-
-    public static void setSubdomain(Bundle bundle) {
-        if (!isSDKInitialized()) {
-            return;
-        }
-
-        if (singleton.isNotTrackingAnyView()) {
-            Logger.e(TAG, "View tracking hasn't started, please call Tracker.trackView() first");
-            return;
-        }
-        String subdomain = bundle.getString(Tracker.KEY_SUBDOMAIN);
-        singleton.updateSubdomain(subdomain);
-    }
-
-    public static void setZones(Bundle bundle) {
-        if (!isSDKInitialized()) {
-            return;
-        }
-
-        if (singleton.isNotTrackingAnyView()) {
-            Logger.e(TAG, "View tracking hasn't started, please call Tracker.trackView() first");
-            return;
-        }
-
-        String zones = bundle.getString(Tracker.KEY_ZONES);
-        singleton.updateZones(zones);
-    }
-
-    public static void setAuthors(Bundle bundle) {
-        if (!isSDKInitialized()) {
-            return;
-        }
-
-        if (singleton.isNotTrackingAnyView()) {
-            Logger.e(TAG, "View tracking hasn't started, please call Tracker.trackView() first");
-            return;
-        }
-        String authors = bundle.getString(Tracker.KEY_AUTHORS);
-        singleton.updateAuthors(authors);
-    }
-
-    public static void setSections(Bundle bundle) {
-        if (!isSDKInitialized()) {
-            return;
-        }
-
-        if (singleton.isNotTrackingAnyView()) {
-            Logger.e(TAG, "View tracking hasn't started, please call Tracker.trackView() first");
-            return;
-        }
-        String sections = bundle.getString(Tracker.KEY_SECTIONS);
-        singleton.updateSections(sections);
-    }
-
-    public static void setViewLoadTime(Bundle bundle) {
-        if (!isSDKInitialized()) {
-            return;
-        }
-
-        if (singleton.isNotTrackingAnyView()) {
-            Logger.e(TAG, "View tracking hasn't started, please call Tracker.trackView() first");
-            return;
-        }
-        float viewLoadTime = bundle.getFloat(Tracker.KEY_VIEW_LOADING_TIME, 0.0f);
         singleton.updatePageLoadingTime(viewLoadTime);
     }
-
-    public static void setPosition(Bundle bundle) {
-        if (!isSDKInitialized()) {
-            Logger.e(TAG, "Chartbeat SDK has not been initialized");
-            return;
-        }
-
-        int scrollPositionTop = bundle.getInt(Tracker.KEY_POSITION_TOP, -1);
-        int scrollWindowHeight = bundle.getInt(Tracker.KEY_WINDOW_HEIGHT, -1);
-        int totalContentHeight = bundle.getInt(Tracker.KEY_CONTENT_HEIGHT, -1);
-        int fullyRenderedDocWidth = bundle.getInt(Tracker.KEY_DOC_WIDTH, -1);
-
-        singleton.updateViewDimensions(scrollPositionTop,
-                scrollWindowHeight,
-                totalContentHeight,
-                fullyRenderedDocWidth);
-    }
 }
\ No newline at end of file
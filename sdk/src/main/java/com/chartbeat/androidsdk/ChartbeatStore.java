@@ -0,0 +1,397 @@
+package com.chartbeat.androidsdk;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import rx.Scheduler;
+import rx.functions.Action0;
+import rx.schedulers.Schedulers;
+
+/**
+ * Small key-value store for the user and session state the SDK keeps across runs.
+ *
+ * Reads are served from memory. Writes update memory right away and are appended to
+ * an operation log on an io thread at most {@link #FLUSH_DELAY_MS} later, so callers
+ * never wait on the disk. The log is rewritten as a snapshot once it holds many more
+ * records than there are keys.
+ *
+ * File layout: a 4 byte magic followed by records of [byte op][UTF key][value], where
+ * the value is a UTF string for {@link #OP_PUT_STRING}, a long for {@link #OP_PUT_LONG}
+ * and absent for {@link #OP_REMOVE}. A truncated last record is ignored on load.
+ *
+ * The first time the store is opened it takes over the entries of the
+ * {@link #CHARTBEAT_PREFS} shared preferences, which are only cleared once the file
+ * holding them is written.
+ */
+final class ChartbeatStore implements KeyValueStore {
+    private static final String TAG = ChartbeatStore.class.getSimpleName();
+
+    static final String CHARTBEAT_PREFS = "com.chartbeat.androidsdk.user";
+    private static final String STORE_FILE_NAME = "com.chartbeat.androidsdk.store";
+    private static final String COMPACTION_FILE_SUFFIX = ".tmp";
+
+    private static final int MAGIC = 0xCB57083E;
+    private static final byte OP_PUT_STRING = 1;
+    private static final byte OP_PUT_LONG = 2;
+    private static final byte OP_REMOVE = 3;
+
+    static final long FLUSH_DELAY_MS = 2000;
+    private static final long MAX_RETRY_DELAY_MS = 60 * 1000;
+    private static final int MIN_RECORDS_BEFORE_COMPACTION = 64;
+
+    private static ChartbeatStore instance;
+
+    private final File file;
+    private final Map<String, Object> values = new HashMap<>();
+    private final Scheduler.Worker worker;
+    private final Object fileLock = new Object();
+    private final Action0 flushAction;
+
+    // Guarded by this
+    private ByteArrayOutputStream pendingBytes = new ByteArrayOutputStream();
+    private DataOutputStream pendingLog = new DataOutputStream(pendingBytes);
+    private int pendingRecords = 0;
+    private boolean flushScheduled = false;
+    private boolean rewriteOnNextFlush = false;
+
+    // Records in the file, compared with the number of keys to decide on compaction.
+    // Guarded by this.
+    private int fileRecords = 0;
+
+    // Delay before retrying a failed write, doubled on every failure. Guarded by this.
+    private long retryDelayMs = FLUSH_DELAY_MS;
+
+    // Preferences migrated from but not cleared yet, as their entries are not on disk.
+    // Guarded by this.
+    private SharedPreferences migratedPrefs;
+
+    static synchronized ChartbeatStore get(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            instance = new ChartbeatStore(new File(appContext.getFilesDir(), STORE_FILE_NAME));
+            instance.load(appContext);
+        }
+
+        return instance;
+    }
+
+    private ChartbeatStore(File file) {
+        this.file = file;
+        this.worker = Schedulers.io().createWorker();
+        this.flushAction = new Action0() {
+            @Override
+            public void call() {
+                flush();
+            }
+        };
+    }
+
+    @Override
+    public synchronized String getString(String key, String defaultValue) {
+        Object value = values.get(key);
+        return value instanceof String ? (String) value : defaultValue;
+    }
+
+    @Override
+    public synchronized long getLong(String key, long defaultValue) {
+        Object value = values.get(key);
+        return value instanceof Long ? (Long) value : defaultValue;
+    }
+
+    @Override
+    public synchronized boolean contains(String key) {
+        return values.containsKey(key);
+    }
+
+    /**
+     * Stores a string, or removes the key if value is null.
+     */
+    @Override
+    public synchronized void putString(String key, String value) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+
+        values.put(key, value);
+        try {
+            pendingLog.writeByte(OP_PUT_STRING);
+            pendingLog.writeUTF(key);
+            pendingLog.writeUTF(value);
+        } catch (IOException e) {
+            // Cannot happen when writing to memory
+        }
+        recordAdded();
+    }
+
+    @Override
+    public synchronized void putLong(String key, long value) {
+        values.put(key, value);
+        try {
+            pendingLog.writeByte(OP_PUT_LONG);
+            pendingLog.writeUTF(key);
+            pendingLog.writeLong(value);
+        } catch (IOException e) {
+            // Cannot happen when writing to memory
+        }
+        recordAdded();
+    }
+
+    @Override
+    public synchronized void remove(String key) {
+        if (values.remove(key) == null) {
+            return;
+        }
+
+        try {
+            pendingLog.writeByte(OP_REMOVE);
+            pendingLog.writeUTF(key);
+        } catch (IOException e) {
+            // Cannot happen when writing to memory
+        }
+        recordAdded();
+    }
+
+    private void recordAdded() {
+        pendingRecords++;
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        scheduleFlush(FLUSH_DELAY_MS);
+    }
+
+    private void scheduleFlush(long delayMs) {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            worker.schedule(flushAction, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes the pending changes to disk. Runs on the store's io worker.
+     */
+    private void flush() {
+        byte[] records;
+        int recordCount;
+        Map<String, Object> snapshot = null;
+
+        synchronized (this) {
+            flushScheduled = false;
+            if (pendingRecords == 0 && !rewriteOnNextFlush) {
+                return;
+            }
+
+            records = pendingBytes.toByteArray();
+            recordCount = pendingRecords;
+            pendingBytes = new ByteArrayOutputStream();
+            pendingLog = new DataOutputStream(pendingBytes);
+            pendingRecords = 0;
+
+            int totalRecords = fileRecords + recordCount;
+            if (rewriteOnNextFlush
+                    || (totalRecords > MIN_RECORDS_BEFORE_COMPACTION && totalRecords > 2 * values.size())) {
+                snapshot = new HashMap<>(values);
+                rewriteOnNextFlush = false;
+            }
+        }
+
+        synchronized (fileLock) {
+            try {
+                if (snapshot != null) {
+                    writeSnapshot(snapshot);
+                } else {
+                    append(records);
+                }
+
+                synchronized (this) {
+                    retryDelayMs = FLUSH_DELAY_MS;
+                    fileRecords = snapshot != null ? snapshot.size() : fileRecords + recordCount;
+                    if (snapshot != null && migratedPrefs != null) {
+                        migratedPrefs.edit().clear().apply();
+                        migratedPrefs = null;
+                    }
+                }
+            } catch (IOException e) {
+                Logger.e(TAG, "Could not write the Chartbeat store: {}", e.getLocalizedMessage());
+
+                // The file may now be missing changes, write it out in full next time. The
+                // changes taken out of the log are only in memory, retry without waiting
+                // for another write.
+                synchronized (this) {
+                    rewriteOnNextFlush = true;
+                    scheduleFlush(retryDelayMs);
+                    retryDelayMs = Math.min(retryDelayMs * 2, MAX_RETRY_DELAY_MS);
+                }
+            }
+        }
+    }
+
+    private void append(byte[] records) throws IOException {
+        boolean isNewFile = !file.exists() || file.length() == 0;
+        FileOutputStream out = new FileOutputStream(file, true);
+        try {
+            if (isNewFile) {
+                new DataOutputStream(out).writeInt(MAGIC);
+            }
+            out.write(records);
+            out.getFD().sync();
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    private void writeSnapshot(Map<String, Object> snapshot) throws IOException {
+        File compacted = new File(file.getPath() + COMPACTION_FILE_SUFFIX);
+        FileOutputStream fileOut = new FileOutputStream(compacted);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+        try {
+            out.writeInt(MAGIC);
+            for (Map.Entry<String, Object> entry : snapshot.entrySet()) {
+                writeEntry(out, entry.getKey(), entry.getValue());
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        } finally {
+            closeQuietly(out);
+        }
+
+        if (!compacted.renameTo(file)) {
+            throw new IOException("Could not replace " + file.getName());
+        }
+    }
+
+    private static void writeEntry(DataOutputStream out, String key, Object value) throws IOException {
+        if (value instanceof Long) {
+            out.writeByte(OP_PUT_LONG);
+            out.writeUTF(key);
+            out.writeLong((Long) value);
+        } else {
+            out.writeByte(OP_PUT_STRING);
+            out.writeUTF(key);
+            out.writeUTF(String.valueOf(value));
+        }
+    }
+
+    private synchronized void load(Context context) {
+        if (!file.exists()) {
+            migrateSharedPreferences(context);
+            return;
+        }
+
+        byte[] contents;
+        try {
+            contents = readFile();
+        } catch (IOException e) {
+            Logger.e(TAG, "Could not read the Chartbeat store: {}", e.getLocalizedMessage());
+            return;
+        }
+
+        ByteArrayInputStream bytes = new ByteArrayInputStream(contents);
+        DataInputStream in = new DataInputStream(bytes);
+        int validLength = 0;
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Bad magic");
+            }
+            validLength = contents.length - bytes.available();
+
+            while (bytes.available() > 0) {
+                byte op = in.readByte();
+                String key = in.readUTF();
+
+                if (op == OP_PUT_STRING) {
+                    values.put(key, in.readUTF());
+                } else if (op == OP_PUT_LONG) {
+                    values.put(key, in.readLong());
+                } else if (op == OP_REMOVE) {
+                    values.remove(key);
+                } else {
+                    throw new IOException("Unknown operation " + op);
+                }
+
+                fileRecords++;
+                validLength = contents.length - bytes.available();
+            }
+        } catch (IOException e) {
+            Logger.e(TAG, "Chartbeat store is damaged after {} bytes: {}", validLength, e.getLocalizedMessage());
+        }
+
+        if (validLength < contents.length) {
+            // Appending after a partial record would lose everything written later
+            rewriteOnNextFlush = true;
+            scheduleFlush();
+        }
+    }
+
+    private byte[] readFile() throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            byte[] contents = new byte[(int) file.length()];
+            int offset = 0;
+            int read;
+            while (offset < contents.length && (read = in.read(contents, offset, contents.length - offset)) != -1) {
+                offset += read;
+            }
+            return offset == contents.length ? contents : Arrays.copyOf(contents, offset);
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    private void migrateSharedPreferences(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(CHARTBEAT_PREFS, Context.MODE_PRIVATE);
+        Map<String, ?> entries = prefs.getAll();
+
+        if (entries != null) {
+            for (Map.Entry<String, ?> entry : entries.entrySet()) {
+                Object value = entry.getValue();
+
+                if (value instanceof String) {
+                    values.put(entry.getKey(), value);
+                } else if (value instanceof Long || value instanceof Integer) {
+                    values.put(entry.getKey(), ((Number) value).longValue());
+                }
+            }
+        }
+
+        // Written right away, even when there was nothing to migrate: clearing the
+        // preferences before their entries are on disk would lose the user if the
+        // process died first. Nothing else touches the file before the store is loaded.
+        try {
+            writeSnapshot(new HashMap<>(values));
+            fileRecords = values.size();
+            prefs.edit().clear().apply();
+        } catch (IOException e) {
+            Logger.e(TAG, "Could not write the Chartbeat store: {}", e.getLocalizedMessage());
+            migratedPrefs = prefs;
+            rewriteOnNextFlush = true;
+            scheduleFlush();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Nothing left to do
+            }
+        }
+    }
+}
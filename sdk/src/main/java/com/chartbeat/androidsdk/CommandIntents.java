@@ -0,0 +1,187 @@
+package com.chartbeat.androidsdk;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+
+/**
+ * Carries {@link TrackerCommand}s to {@link ChartbeatService} as Intent extras.
+ */
+final class CommandIntents {
+
+    private CommandIntents() {
+    }
+
+    static Intent toIntent(TrackerCommand command, Context context) {
+        Intent intent = new Intent(context, ChartbeatService.class);
+        intent.putExtra(Tracker.KEY_SDK_ACTION_TYPE, actionFor(command.type));
+
+        switch (command.type) {
+            case TrackerCommand.INIT_TRACKER:
+                intent.putExtra(Tracker.KEY_ACCOUNT_ID, command.accountId);
+                if (command.domain != null) {
+                    intent.putExtra(Tracker.KEY_DOMAIN, command.domain);
+                }
+                break;
+            case TrackerCommand.SET_APP_REFERRER:
+                intent.putExtra(Tracker.KEY_APP_REFERRER, command.value);
+                break;
+            case TrackerCommand.TRACK_VIEW:
+                intent.putExtra(Tracker.KEY_VIEW_ID, command.viewId);
+                intent.putExtra(Tracker.KEY_VIEW_TITLE, command.viewTitle);
+                putPosition(intent, command);
+                break;
+            case TrackerCommand.LEFT_VIEW:
+                intent.putExtra(Tracker.KEY_VIEW_ID, command.viewId);
+                break;
+            case TrackerCommand.SET_DOMAIN:
+                intent.putExtra(Tracker.KEY_DOMAIN, command.value);
+                break;
+            case TrackerCommand.SET_SUBDOMAIN:
+                intent.putExtra(Tracker.KEY_SUBDOMAIN, command.value);
+                break;
+            case TrackerCommand.SET_ZONES:
+                intent.putExtra(Tracker.KEY_ZONES, command.value);
+                break;
+            case TrackerCommand.SET_AUTHORS:
+                intent.putExtra(Tracker.KEY_AUTHORS, command.value);
+                break;
+            case TrackerCommand.SET_SECTIONS:
+                intent.putExtra(Tracker.KEY_SECTIONS, command.value);
+                break;
+            case TrackerCommand.SET_VIEW_LOADING_TIME:
+                intent.putExtra(Tracker.KEY_VIEW_LOADING_TIME, command.viewLoadTime);
+                break;
+            case TrackerCommand.SET_POSITION:
+                putPosition(intent, command);
+                break;
+            default:
+                break;
+        }
+
+        return intent;
+    }
+
+    private static void putPosition(Intent intent, TrackerCommand command) {
+        intent.putExtra(Tracker.KEY_POSITION_TOP, command.scrollPositionTop);
+        intent.putExtra(Tracker.KEY_WINDOW_HEIGHT, command.scrollWindowHeight);
+        intent.putExtra(Tracker.KEY_CONTENT_HEIGHT, command.totalContentHeight);
+        intent.putExtra(Tracker.KEY_DOC_WIDTH, command.fullyRenderedDocWidth);
+    }
+
+    /**
+     * Rebuilds a command from the extras of an Intent delivered to {@link ChartbeatService}.
+     *
+     * @return the command, or null if the bundle does not carry a known action
+     */
+    static TrackerCommand fromBundle(Bundle bundle) {
+        if (bundle == null) {
+            return null;
+        }
+
+        int type = typeFor(bundle.getString(Tracker.KEY_SDK_ACTION_TYPE));
+        if (type == 0) {
+            return null;
+        }
+
+        TrackerCommand command = TrackerCommand.obtain(type);
+
+        switch (type) {
+            case TrackerCommand.INIT_TRACKER:
+                command.accountId = bundle.getString(Tracker.KEY_ACCOUNT_ID);
+                command.domain = bundle.getString(Tracker.KEY_DOMAIN);
+                break;
+            case TrackerCommand.SET_APP_REFERRER:
+                command.value = bundle.getString(Tracker.KEY_APP_REFERRER);
+                break;
+            case TrackerCommand.TRACK_VIEW:
+                command.viewId = bundle.getString(Tracker.KEY_VIEW_ID);
+                command.viewTitle = bundle.getString(Tracker.KEY_VIEW_TITLE);
+                readPosition(command, bundle);
+                break;
+            case TrackerCommand.LEFT_VIEW:
+                command.viewId = bundle.getString(Tracker.KEY_VIEW_ID);
+                break;
+            case TrackerCommand.SET_DOMAIN:
+                command.value = bundle.getString(Tracker.KEY_DOMAIN);
+                break;
+            case TrackerCommand.SET_SUBDOMAIN:
+                command.value = bundle.getString(Tracker.KEY_SUBDOMAIN);
+                break;
+            case TrackerCommand.SET_ZONES:
+                command.value = bundle.getString(Tracker.KEY_ZONES);
+                break;
+            case TrackerCommand.SET_AUTHORS:
+                command.value = bundle.getString(Tracker.KEY_AUTHORS);
+                break;
+            case TrackerCommand.SET_SECTIONS:
+                command.value = bundle.getString(Tracker.KEY_SECTIONS);
+                break;
+            case TrackerCommand.SET_VIEW_LOADING_TIME:
+                command.viewLoadTime = bundle.getFloat(Tracker.KEY_VIEW_LOADING_TIME, 0.0f);
+                break;
+            case TrackerCommand.SET_POSITION:
+                readPosition(command, bundle);
+                break;
+            default:
+                break;
+        }
+
+        return command;
+    }
+
+    private static void readPosition(TrackerCommand command, Bundle bundle) {
+        command.scrollPositionTop = bundle.getInt(Tracker.KEY_POSITION_TOP, -1);
+        command.scrollWindowHeight = bundle.getInt(Tracker.KEY_WINDOW_HEIGHT, -1);
+        command.totalContentHeight = bundle.getInt(Tracker.KEY_CONTENT_HEIGHT, -1);
+        command.fullyRenderedDocWidth = bundle.getInt(Tracker.KEY_DOC_WIDTH, -1);
+    }
+
+    private static String actionFor(int type) {
+        switch (type) {
+            case TrackerCommand.INIT_TRACKER: return Tracker.ACTION_INIT_TRACKER;
+            case TrackerCommand.SET_APP_REFERRER: return Tracker.ACTION_SET_APP_REFERRER;
+            case TrackerCommand.STOP_TRACKER: return Tracker.ACTION_STOP_TRACKER;
+            case TrackerCommand.TRACK_VIEW: return Tracker.ACTION_TRACK_VIEW;
+            case TrackerCommand.LEFT_VIEW: return Tracker.ACTION_LEFT_VIEW;
+            case TrackerCommand.USER_INTERACTED: return Tracker.ACTION_USER_INTERACTED;
+            case TrackerCommand.USER_TYPED: return Tracker.ACTION_USER_TYPED;
+            case TrackerCommand.SET_DOMAIN: return Tracker.ACTION_SET_DOMAIN;
+            case TrackerCommand.SET_SUBDOMAIN: return Tracker.ACTION_SET_SUBDOMAIN;
+            case TrackerCommand.SET_ZONES: return Tracker.ACTION_SET_ZONES;
+            case TrackerCommand.SET_AUTHORS: return Tracker.ACTION_SET_AUTHORS;
+            case TrackerCommand.SET_SECTIONS: return Tracker.ACTION_SET_SECTIONS;
+            case TrackerCommand.SET_VIEW_LOADING_TIME: return Tracker.ACTION_SET_VIEW_LOADING_TIME;
+            case TrackerCommand.SET_POSITION: return Tracker.ACTION_SET_POSITION;
+            case TrackerCommand.PAUSE_TRACKER: return Tracker.ACTION_PAUSE_TRACKER;
+            default:
+                throw new IllegalArgumentException("Unknown command type: " + type);
+        }
+    }
+
+    private static int typeFor(String action) {
+        if (action == null) {
+            return 0;
+        }
+
+        switch (action) {
+            case Tracker.ACTION_INIT_TRACKER: return TrackerCommand.INIT_TRACKER;
+            case Tracker.ACTION_SET_APP_REFERRER: return TrackerCommand.SET_APP_REFERRER;
+            case Tracker.ACTION_STOP_TRACKER: return TrackerCommand.STOP_TRACKER;
+            case Tracker.ACTION_TRACK_VIEW: return TrackerCommand.TRACK_VIEW;
+            case Tracker.ACTION_LEFT_VIEW: return TrackerCommand.LEFT_VIEW;
+            case Tracker.ACTION_USER_INTERACTED: return TrackerCommand.USER_INTERACTED;
+            case Tracker.ACTION_USER_TYPED: return TrackerCommand.USER_TYPED;
+            case Tracker.ACTION_SET_DOMAIN: return TrackerCommand.SET_DOMAIN;
+            case Tracker.ACTION_SET_SUBDOMAIN: return TrackerCommand.SET_SUBDOMAIN;
+            case Tracker.ACTION_SET_ZONES: return TrackerCommand.SET_ZONES;
+            case Tracker.ACTION_SET_AUTHORS: return TrackerCommand.SET_AUTHORS;
+            case Tracker.ACTION_SET_SECTIONS: return TrackerCommand.SET_SECTIONS;
+            case Tracker.ACTION_SET_VIEW_LOADING_TIME: return TrackerCommand.SET_VIEW_LOADING_TIME;
+            case Tracker.ACTION_SET_POSITION: return TrackerCommand.SET_POSITION;
+            case Tracker.ACTION_PAUSE_TRACKER: return TrackerCommand.PAUSE_TRACKER;
+            default:
+                return 0;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.chartbeat.androidsdk;
+
+import android.os.Handler;
+
+/**
+ * Runs the tracker's tasks on the looper of a Handler.
+ */
+final class HandlerTaskScheduler implements TaskScheduler {
+    private final Handler handler;
+
+    HandlerTaskScheduler(Handler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public boolean post(Runnable task) {
+        return handler.post(task);
+    }
+
+    @Override
+    public boolean postDelayed(Runnable task, long delayMillis) {
+        return handler.postDelayed(task, delayMillis);
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+        handler.removeCallbacks(task);
+    }
+
+    @Override
+    public boolean isAlive() {
+        return handler.getLooper().getThread().isAlive();
+    }
+}
@@ -0,0 +1,229 @@
+package com.chartbeat.androidsdk;
+
+import android.annotation.TargetApi;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.os.Build;
+
+/**
+ * Keeps the state of the default network up to date from connectivity callbacks,
+ * so that checking it before every ping is a volatile read instead of a binder call
+ * into the ConnectivityManager.
+ *
+ * Registers once per process: a default network callback from Android N, the
+ * connectivity broadcast before. If neither can be registered, every check asks
+ * the ConnectivityManager like before.
+ */
+final class NetworkMonitor implements NetworkState {
+    private static final String TAG = NetworkMonitor.class.getSimpleName();
+
+    static final int TRANSPORT_NONE = 0;
+    static final int TRANSPORT_WIFI = 1;
+    static final int TRANSPORT_CELLULAR = 2;
+    static final int TRANSPORT_ETHERNET = 3;
+    static final int TRANSPORT_OTHER = 4;
+
+    private static final Snapshot DISCONNECTED = new Snapshot(false, false, TRANSPORT_NONE);
+
+    private static NetworkMonitor instance;
+
+    private final Context appContext;
+    private final ConnectivityManager connectivityManager;
+    private volatile boolean isMonitoring = false;
+    private volatile Snapshot state = DISCONNECTED;
+    private volatile Runnable reconnectListener;
+
+    /**
+     * The network as last reported, never changed once built.
+     */
+    private static final class Snapshot {
+        final boolean isConnected;
+        final boolean isMetered;
+        final int transport;
+
+        Snapshot(boolean isConnected, boolean isMetered, int transport) {
+            this.isConnected = isConnected;
+            this.isMetered = isMetered;
+            this.transport = transport;
+        }
+
+        @Override
+        public String toString() {
+            return isConnected ? "connected, transport " + transport + (isMetered ? ", metered" : "") : "disconnected";
+        }
+    }
+
+    static synchronized NetworkMonitor get(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            instance = new NetworkMonitor(appContext);
+            instance.register();
+        }
+
+        return instance;
+    }
+
+    private NetworkMonitor(Context appContext) {
+        this.appContext = appContext;
+        this.connectivityManager = (ConnectivityManager) appContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    @Override
+    public boolean isNetworkAvailable() {
+        if (!isMonitoring) {
+            return SystemUtils.isNetworkAvailable(appContext);
+        }
+
+        return state.isConnected;
+    }
+
+    boolean isMetered() {
+        return state.isMetered;
+    }
+
+    /**
+     * @return one of the TRANSPORT_ constants
+     */
+    int getTransport() {
+        return state.transport;
+    }
+
+    /**
+     * @param listener run on the thread of the connectivity callback whenever the
+     *                 network comes back after being lost
+     */
+    void setReconnectListener(Runnable listener) {
+        reconnectListener = listener;
+    }
+
+    private void register() {
+        if (connectivityManager == null) {
+            return;
+        }
+
+        // Read once up front, the first callback may take a while to arrive
+        update(readActiveNetwork());
+
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                DefaultNetworkCallback.register(this);
+            } else {
+                appContext.registerReceiver(new BroadcastReceiver() {
+                    @Override
+                    public void onReceive(Context context, Intent intent) {
+                        update(readActiveNetwork());
+                    }
+                }, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+            }
+            isMonitoring = true;
+        } catch (RuntimeException e) {
+            Logger.e(TAG, "Could not monitor the network, checking it before every ping: {}", e.getLocalizedMessage());
+        }
+    }
+
+    private void update(Snapshot newState) {
+        Snapshot oldState = state;
+        state = newState;
+
+        if (newState.isConnected != oldState.isConnected) {
+            Logger.d(TAG, "Network {}", newState);
+        }
+
+        Runnable listener = reconnectListener;
+        if (newState.isConnected && !oldState.isConnected && listener != null) {
+            listener.run();
+        }
+    }
+
+    private Snapshot readActiveNetwork() {
+        NetworkInfo netInfo = connectivityManager.getActiveNetworkInfo();
+        if (netInfo == null || !netInfo.isConnectedOrConnecting()) {
+            return DISCONNECTED;
+        }
+
+        int transport;
+        switch (netInfo.getType()) {
+            case ConnectivityManager.TYPE_WIFI:
+                transport = TRANSPORT_WIFI;
+                break;
+            case ConnectivityManager.TYPE_MOBILE:
+                transport = TRANSPORT_CELLULAR;
+                break;
+            case ConnectivityManager.TYPE_ETHERNET:
+                transport = TRANSPORT_ETHERNET;
+                break;
+            default:
+                transport = TRANSPORT_OTHER;
+        }
+
+        boolean isMetered = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                ? connectivityManager.isActiveNetworkMetered()
+                : transport == TRANSPORT_CELLULAR;
+        return new Snapshot(true, isMetered, transport);
+    }
+
+    private static Snapshot fromCapabilities(NetworkCapabilities capabilities) {
+        if (capabilities == null) {
+            // Gone already, or not reported yet: assume a connection, as the network is up
+            return new Snapshot(true, true, TRANSPORT_OTHER);
+        }
+
+        int transport = TRANSPORT_OTHER;
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+            transport = TRANSPORT_WIFI;
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+            transport = TRANSPORT_CELLULAR;
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
+            transport = TRANSPORT_ETHERNET;
+        }
+
+        return new Snapshot(true, !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED),
+                transport);
+    }
+
+    /**
+     * Follows the default network, the one pings go out on.
+     */
+    @TargetApi(24)
+    private static final class DefaultNetworkCallback extends ConnectivityManager.NetworkCallback {
+        private final NetworkMonitor monitor;
+        // Only touched on the callback thread
+        private Network defaultNetwork;
+
+        private DefaultNetworkCallback(NetworkMonitor monitor) {
+            this.monitor = monitor;
+        }
+
+        static void register(NetworkMonitor monitor) {
+            monitor.connectivityManager.registerDefaultNetworkCallback(new DefaultNetworkCallback(monitor));
+        }
+
+        @Override
+        public void onAvailable(Network network) {
+            defaultNetwork = network;
+            monitor.update(fromCapabilities(monitor.connectivityManager.getNetworkCapabilities(network)));
+        }
+
+        @Override
+        public void onCapabilitiesChanged(Network network, NetworkCapabilities capabilities) {
+            if (network.equals(defaultNetwork)) {
+                monitor.update(fromCapabilities(capabilities));
+            }
+        }
+
+        @Override
+        public void onLost(Network network) {
+            // A new default network may have been announced before the old one was lost
+            if (network.equals(defaultNetwork)) {
+                defaultNetwork = null;
+                monitor.update(DISCONNECTED);
+            }
+        }
+    }
+}
@@ -9,7 +9,9 @@ import android.content.Context;
 import android.content.Intent;
 import android.text.TextUtils;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import rx.Observable;
@@ -59,6 +61,18 @@ public final class Tracker {
     private static Context appContext;
     private static String accountID;
 
+    private static boolean inProcessEngineEnabled = false;
+    private static int pingBatchWindowInSeconds = 0;
+    private static boolean compactPingsEnabled = false;
+    private static final List<PingDestination> additionalAccounts = new ArrayList<>();
+    private static int samplingFactor = 1;
+    private static TrackerEngine engine;
+    private static Subscription metricsSubscription;
+
+    static {
+        Logger.setSink(AndroidPlatform.LOGCAT);
+    }
+
     static final String KEY_SDK_ACTION_TYPE = "KEY_SDK_ACTION_TYPE";
 
     static final String ACTION_INIT_TRACKER = "ACTION_INIT_TRACKER";
@@ -98,6 +112,212 @@ public final class Tracker {
 
     /** ----------- Public static functions -------------- */
 
+    /**
+     * Runs the tracker on an in-process command queue instead of delivering every
+     * call to ChartbeatService through an Intent. Tracker calls then cost a queue
+     * insert on the calling thread and are never dropped by background service
+     * restrictions. This must be called before setupTracker(); later calls are ignored.
+     *
+     * @param enabled
+     *            true to use the in-process engine, false to use the service (default).
+     */
+    public static void setInProcessEngineEnabled(boolean enabled) {
+        if (appContext != null) {
+            Logger.w(TAG, "setInProcessEngineEnabled() must be called before setupTracker()");
+            return;
+        }
+
+        inProcessEngineEnabled = enabled;
+    }
+
+    /**
+     * Sends pings in batches: pings taken within the given window are held back and
+     * sent together in one compressed request, which saves radio wake-ups on cellular
+     * networks at the cost of delaying the data by up to the window. This must be
+     * called before setupTracker(); later calls are ignored.
+     *
+     * @param seconds
+     *            the batching window, 0 (default) sends every ping right away.
+     */
+    public static void setPingBatchWindow(int seconds) {
+        if (appContext != null) {
+            Logger.w(TAG, "setPingBatchWindow() must be called before setupTracker()");
+            return;
+        }
+
+        if (seconds < 0) {
+            throw new IllegalArgumentException("Ping batch window cannot be negative");
+        }
+
+        pingBatchWindowInSeconds = seconds;
+    }
+
+    static long getPingBatchWindowMillis() {
+        return TimeUnit.SECONDS.toMillis(pingBatchWindowInSeconds);
+    }
+
+    /**
+     * Sends pings in a compact binary format instead of a query string: numbers as
+     * varints, keys as a bitmap and the strings already sent for the current view as
+     * references, for less than half the bytes per ping. Meant for apps whose readers
+     * are mostly on metered connections. This must be called before setupTracker();
+     * later calls are ignored.
+     *
+     * @param enabled
+     *            true to send compact pings, false (default) for query strings.
+     */
+    public static void setCompactPingsEnabled(boolean enabled) {
+        if (appContext != null) {
+            Logger.w(TAG, "setCompactPingsEnabled() must be called before setupTracker()");
+            return;
+        }
+
+        compactPingsEnabled = enabled;
+    }
+
+    static boolean isCompactPingsEnabled() {
+        return compactPingsEnabled;
+    }
+
+    /**
+     * Also reports the app's traffic to another Chartbeat account, e.g. a network
+     * dashboard next to the site's own. Every ping is encoded once and sent to each
+     * account over the same connections, in one request per ping when there are several
+     * accounts. Domain and subdomain changes made while tracking a view only apply to
+     * the account given to setupTracker(). This must be called before setupTracker();
+     * later calls are ignored.
+     *
+     * @param accountId
+     *            the other account id on the Chartbeat system. e.g. "12345"
+     * @param domain
+     *            the dashboard domain name to report to for that account, e.g.
+     *            "mynewspapergroup.com"
+     */
+    public static void addAccount(String accountId, String domain) {
+        if (appContext != null) {
+            Logger.w(TAG, "addAccount() must be called before setupTracker()");
+            return;
+        }
+
+        if (TextUtils.isEmpty(accountId) || TextUtils.isEmpty(domain)) {
+            throw new IllegalArgumentException("Account ID and domain cannot be empty");
+        }
+
+        synchronized (additionalAccounts) {
+            additionalAccounts.add(new PingDestination(accountId, domain));
+        }
+    }
+
+    static List<PingDestination> getAdditionalAccounts() {
+        synchronized (additionalAccounts) {
+            return new ArrayList<>(additionalAccounts);
+        }
+    }
+
+    /**
+     * Tracks only one user in the given number, to cut the ping volume of very large
+     * audiences. The users are picked from a hash of their user id, so a user is either
+     * always or never tracked. Users left out run no ping timer and send nothing; the
+     * pings of the others carry the factor for the server to scale the counts back up.
+     * This must be called before setupTracker(); later calls are ignored.
+     *
+     * @param factor
+     *            track one user in factor, 1 (default) tracks every user.
+     */
+    public static void setSamplingFactor(int factor) {
+        if (appContext != null) {
+            Logger.w(TAG, "setSamplingFactor() must be called before setupTracker()");
+            return;
+        }
+
+        if (factor < 1) {
+            throw new IllegalArgumentException("Sampling factor must be at least 1");
+        }
+
+        samplingFactor = factor;
+    }
+
+    static int getSamplingFactor() {
+        return samplingFactor;
+    }
+
+    /**
+     * Returns a snapshot of the tracker's runtime metrics: pings sent, responses by
+     * status code, ping latency, retries, suspensions, dropped and pending calls.
+     * Cheap enough to call at any time, from any thread.
+     */
+    public static TrackerMetrics getMetrics() {
+        return Metrics.snapshot();
+    }
+
+    /**
+     * Keeps the last few hundred SDK events (views tracked, pings sent and their
+     * responses, retries, suspensions, offline queueing) in memory, for
+     * {@link #dumpDiagnostics()}. Works without DEBUG_MODE, and costs next to
+     * nothing when off, which is the default.
+     */
+    public static void setDiagnosticsEnabled(boolean enabled) {
+        Diagnostics.setEnabled(enabled);
+    }
+
+    /**
+     * Returns the SDK events recorded since diagnostics were enabled, oldest first, one
+     * per line with its UTC time, to attach to a support request. View ids appear as
+     * hashes.
+     *
+     * @return the events, or an empty string if diagnostics are not enabled.
+     */
+    public static String dumpDiagnostics() {
+        return Diagnostics.dump();
+    }
+
+    /**
+     * Delivers a metrics snapshot to the listener every periodInSeconds, on a
+     * background thread. Replaces any previous listener.
+     *
+     * @param listener
+     *            the listener, or null to stop the callbacks.
+     * @param periodInSeconds
+     *            time between callbacks, must be positive.
+     */
+    public static synchronized void setMetricsListener(final TrackerMetrics.Listener listener, int periodInSeconds) {
+        if (metricsSubscription != null) {
+            metricsSubscription.unsubscribe();
+            metricsSubscription = null;
+        }
+
+        if (listener == null) {
+            return;
+        }
+
+        if (periodInSeconds <= 0) {
+            throw new IllegalArgumentException("Metrics period must be positive");
+        }
+
+        metricsSubscription = Observable.interval(periodInSeconds, periodInSeconds, TimeUnit.SECONDS, Schedulers.computation())
+                .subscribe(new Subscriber<Long>() {
+                    @Override
+                    public void onCompleted() {
+
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        Logger.e(TAG, "Metrics listener stopped: {}", e.getLocalizedMessage());
+                    }
+
+                    @Override
+                    public void onNext(Long aLong) {
+                        // A throwing listener would end the subscription, keep the next snapshots coming
+                        try {
+                            listener.onMetrics(Metrics.snapshot());
+                        } catch (RuntimeException e) {
+                            Logger.e(TAG, "Metrics listener failed: {}", e.getLocalizedMessage());
+                        }
+                    }
+                });
+    }
+
     /**
      * initializes the tracker. If the tracker has already been initialized,
      * this call will be ignored.
@@ -131,14 +351,15 @@ public final class Tracker {
         monitorAppStatus();
         Tracker.accountID = accountID;
 
-        Intent intent = new Intent(context.getApplicationContext(), ChartbeatService.class);
-        intent.putExtra(KEY_SDK_ACTION_TYPE, ACTION_INIT_TRACKER);
-        intent.putExtra(KEY_ACCOUNT_ID, accountID);
-        if (domain != null) {
-            intent.putExtra(KEY_DOMAIN, domain);
+        if (inProcessEngineEnabled) {
+            engine = TrackerEngine.start(appContext);
         }
 
-        sendServiceSignal(intent);
+        TrackerCommand command = TrackerCommand.obtain(TrackerCommand.INIT_TRACKER);
+        command.accountId = accountID;
+        command.domain = domain;
+
+        sendCommand(command);
     }
 
     private static void monitorAppStatus() {
@@ -189,11 +410,9 @@ public final class Tracker {
     public static void setAppReferrer(String appReferrer) {
         didInit();
 
-        Intent intent = new Intent(appContext, ChartbeatService.class);
-        
-        intent.putExtra(KEY_SDK_ACTION_TYPE, ACTION_SET_APP_REFERRER);
-        intent.putExtra(KEY_APP_REFERRER, appReferrer);
-        sendServiceSignal(intent);
+        TrackerCommand command = TrackerCommand.obtain(TrackerCommand.SET_APP_REFERRER);
+        command.value = appReferrer;
+        sendCommand(command);
     }
 
     /**
@@ -205,11 +424,7 @@ public final class Tracker {
             return;
         }
 
-        Intent intent = new Intent(appContext, ChartbeatService.class);
-        
-        intent.putExtra(KEY_SDK_ACTION_TYPE, ACTION_STOP_TRACKER);
-
-        sendServiceSignal(intent);
+        sendCommand(TrackerCommand.obtain(TrackerCommand.STOP_TRACKER));
     }
 
     /**
@@ -220,11 +435,7 @@ public final class Tracker {
             return;
         }
 
-        Intent intent = new Intent(appContext, ChartbeatService.class);
-
-        intent.putExtra(KEY_SDK_ACTION_TYPE, ACTION_PAUSE_TRACKER);
-
-        sendServiceSignal(intent);
+        sendCommand(TrackerCommand.obtain(TrackerCommand.PAUSE_TRACKER));
     }
 
     /**
@@ -257,13 +468,11 @@ public final class Tracker {
         }
         
         appContext = context.getApplicationContext();
-        
-        Intent intent = new Intent(appContext, ChartbeatService.class);
-        
-        intent.putExtra(KEY_SDK_ACTION_TYPE, ACTION_TRACK_VIEW);
-        intent.putExtra(KEY_VIEW_ID, viewId);
-        intent.putExtra(KEY_VIEW_TITLE, viewTitle);
-        sendServiceSignal(intent);
+
+        TrackerCommand command = TrackerCommand.obtain(TrackerCommand.TRACK_VIEW);
+        command.viewId = viewId;
+        command.viewTitle = viewTitle;
+        sendCommand(command);
     }
 
     /**
@@ -308,17 +517,12 @@ public final class Tracker {
 
         appContext = context.getApplicationContext();
 
-        Intent intent = new Intent(appContext, ChartbeatService.class);
-        
-        intent.putExtra(KEY_SDK_ACTION_TYPE, ACTION_TRACK_VIEW);
-        intent.putExtra(KEY_VIEW_ID, viewId);
-        intent.putExtra(KEY_VIEW_TITLE, viewTitle);
-        intent.putExtra(KEY_POSITION_TOP, scrollPositionTop);
-        intent.putExtra(KEY_WINDOW_HEIGHT, scrollWindowHeight);
-        intent.putExtra(KEY_CONTENT_HEIGHT, totalContentHeight);
-        intent.putExtra(KEY_DOC_WIDTH, fullyRenderedDocWidth);
+        TrackerCommand command = TrackerCommand.obtain(TrackerCommand.TRACK_VIEW);
+        command.viewId = viewId;
+        command.viewTitle = viewTitle;
+        command.setPosition(scrollPositionTop, scrollWindowHeight, totalContentHeight, fullyRenderedDocWidth);
 
-        sendServiceSignal(intent);
+        sendCommand(command);
     }
 
     private static void resetUserInteractionMonitor() {
@@ -342,12 +546,10 @@ public final class Tracker {
 
         resetUserInteractionMonitor();
 
-        Intent intent = new Intent(appContext, ChartbeatService.class);
-        
-        intent.putExtra(KEY_SDK_ACTION_TYPE, ACTION_LEFT_VIEW);
-        intent.putExtra(KEY_VIEW_ID, viewId);
+        TrackerCommand command = TrackerCommand.obtain(TrackerCommand.LEFT_VIEW);
+        command.viewId = viewId;
 
-        sendServiceSignal(intent);
+        sendCommand(command);
     }
 
     /**
@@ -369,9 +571,7 @@ public final class Tracker {
             return;
         }
 
-        Intent intent = new Intent(appContext, ChartbeatService.class);
-        intent.putExtra(KEY_SDK_ACTION_TYPE, ACTION_USER_INTERACTED);
-        sendServiceSignal(intent);
+        sendCommand(TrackerCommand.obtain(TrackerCommand.USER_INTERACTED));
 
         userInteractSubscription = Observable.timer(USER_INTERACT_WINDOW_IN_MILLISECONDS, TimeUnit.MILLISECONDS)
                 .observeOn(Schedulers.io())
@@ -401,11 +601,7 @@ public final class Tracker {
         didInit();
         didStartTracking();
 
-        Intent intent = new Intent(appContext, ChartbeatService.class);
-        
-        intent.putExtra(KEY_SDK_ACTION_TYPE, ACTION_USER_TYPED);
-
-        sendServiceSignal(intent);
+        sendCommand(TrackerCommand.obtain(TrackerCommand.USER_TYPED));
     }
 
     /**
@@ -421,11 +617,9 @@ public final class Tracker {
         didInit();
         didStartTracking();
 
-        Intent intent = new Intent(appContext, ChartbeatService.class);
-
-        intent.putExtra(KEY_SDK_ACTION_TYPE, ACTION_SET_DOMAIN);
-        intent.putExtra(KEY_DOMAIN, domain);
-        sendServiceSignal(intent);
+        TrackerCommand command = TrackerCommand.obtain(TrackerCommand.SET_DOMAIN);
+        command.value = domain;
+        sendCommand(command);
     }
 
     /**
@@ -441,11 +635,9 @@ public final class Tracker {
         didInit();
         didStartTracking();
 
-        Intent intent = new Intent(appContext, ChartbeatService.class);
-
-        intent.putExtra(KEY_SDK_ACTION_TYPE, ACTION_SET_SUBDOMAIN);
-        intent.putExtra(KEY_SUBDOMAIN, subdomain);
-        sendServiceSignal(intent);
+        TrackerCommand command = TrackerCommand.obtain(TrackerCommand.SET_SUBDOMAIN);
+        command.value = subdomain;
+        sendCommand(command);
     }
 
     /**
@@ -474,17 +666,15 @@ public final class Tracker {
         didInit();
         didStartTracking();
 
-        setZonesImpl(StringUtils.collectionToCommaString(zones));
+        setZonesImpl(MetadataInterner.commaString(zones));
     }
 
     private static void setZonesImpl(String zones) {
         didInit();
 
-        Intent intent = new Intent(appContext, ChartbeatService.class);
-        
-        intent.putExtra(KEY_SDK_ACTION_TYPE, ACTION_SET_ZONES);
-        intent.putExtra(KEY_ZONES, zones);
-        sendServiceSignal(intent);
+        TrackerCommand command = TrackerCommand.obtain(TrackerCommand.SET_ZONES);
+        command.value = zones;
+        sendCommand(command);
     }
 
     /**
@@ -513,15 +703,13 @@ public final class Tracker {
         didInit();
         didStartTracking();
 
-        setAuthorsImpl(StringUtils.collectionToCommaString(authors));
+        setAuthorsImpl(MetadataInterner.commaString(authors));
     }
 
     private static void setAuthorsImpl(String authors) {
-        Intent intent = new Intent(appContext, ChartbeatService.class);
-        
-        intent.putExtra(KEY_SDK_ACTION_TYPE, ACTION_SET_AUTHORS);
-        intent.putExtra(KEY_AUTHORS, authors);
-        sendServiceSignal(intent);
+        TrackerCommand command = TrackerCommand.obtain(TrackerCommand.SET_AUTHORS);
+        command.value = authors;
+        sendCommand(command);
     }
 
     /**
@@ -550,15 +738,13 @@ public final class Tracker {
         didInit();
         didStartTracking();
 
-        setSectionsImpl(StringUtils.collectionToCommaString(sections));
+        setSectionsImpl(MetadataInterner.commaString(sections));
     }
 
     private static void setSectionsImpl(String sections) {
-        Intent intent = new Intent(appContext, ChartbeatService.class);
-        
-        intent.putExtra(KEY_SDK_ACTION_TYPE, ACTION_SET_SECTIONS);
-        intent.putExtra(KEY_SECTIONS, sections);
-        sendServiceSignal(intent);
+        TrackerCommand command = TrackerCommand.obtain(TrackerCommand.SET_SECTIONS);
+        command.value = sections;
+        sendCommand(command);
     }
 
     /**
@@ -575,11 +761,9 @@ public final class Tracker {
             return;
         }
 
-        Intent intent = new Intent(appContext, ChartbeatService.class);
-        
-        intent.putExtra(KEY_SDK_ACTION_TYPE, ACTION_SET_VIEW_LOADING_TIME);
-        intent.putExtra(KEY_VIEW_LOADING_TIME, pageLoadTime);
-        sendServiceSignal(intent);
+        TrackerCommand command = TrackerCommand.obtain(TrackerCommand.SET_VIEW_LOADING_TIME);
+        command.viewLoadTime = pageLoadTime;
+        sendCommand(command);
     }
 
     /**
@@ -600,15 +784,9 @@ public final class Tracker {
         didInit();
         didStartTracking();
 
-        Intent intent = new Intent(appContext, ChartbeatService.class);
-        
-        intent.putExtra(KEY_SDK_ACTION_TYPE, ACTION_SET_POSITION);
-
-        intent.putExtra(KEY_POSITION_TOP, scrollPositionTop);
-        intent.putExtra(KEY_WINDOW_HEIGHT, scrollWindowHeight);
-        intent.putExtra(KEY_CONTENT_HEIGHT, totalContentHeight);
-        intent.putExtra(KEY_DOC_WIDTH, fullyRenderedDocWidth);
-        sendServiceSignal(intent);
+        TrackerCommand command = TrackerCommand.obtain(TrackerCommand.SET_POSITION);
+        command.setPosition(scrollPositionTop, scrollWindowHeight, totalContentHeight, fullyRenderedDocWidth);
+        sendCommand(command);
     }
 
     public static void didInit() {
@@ -623,11 +801,26 @@ public final class Tracker {
         }
     }
 
+    private static void sendCommand(TrackerCommand command) {
+        Metrics.addToGauge(Metrics.PENDING_COMMANDS, 1);
+
+        if (engine != null) {
+            engine.enqueue(command);
+            return;
+        }
+
+        Intent intent = CommandIntents.toIntent(command, appContext);
+        command.recycle();
+        sendServiceSignal(intent);
+    }
+
     private static void sendServiceSignal(Intent intent) {
         try {
             appContext.startService(intent);
         } catch (IllegalStateException e) {
             // Preventive measure for Android Oreo background limits.
+            Metrics.increment(Metrics.DROPPED_EVENTS);
+            Metrics.addToGauge(Metrics.PENDING_COMMANDS, -1);
         }
     }
 }
\ No newline at end of file
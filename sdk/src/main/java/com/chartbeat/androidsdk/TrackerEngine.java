@@ -0,0 +1,76 @@
+package com.chartbeat.androidsdk;
+
+import android.content.Context;
+import android.os.HandlerThread;
+import android.os.Process;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Same-process replacement for the {@link ChartbeatService} round trip. Tracker calls
+ * are enqueued as {@link TrackerCommand}s and drained in order on the tracker thread,
+ * without going through the ActivityManager or parsing a Bundle.
+ */
+final class TrackerEngine {
+    private static final String TAG = TrackerEngine.class.getSimpleName();
+    private static final String TRACKER_THREAD = "TRACKER_THREAD";
+
+    private static TrackerEngine instance;
+
+    private final HandlerThread bgThread;
+    private final ChartbeatServiceHandler handler;
+    private final CommandQueue queue;
+    private final AtomicBoolean drainScheduled;
+    private final Runnable drainTask;
+
+    private TrackerEngine(Context appContext) {
+        bgThread = new HandlerThread(TRACKER_THREAD, Process.THREAD_PRIORITY_BACKGROUND);
+        bgThread.start();
+
+        String userAgent = SystemUtils.getSystemUserAgent(appContext);
+        handler = new ChartbeatServiceHandler(new WeakReference<>(appContext), bgThread.getLooper(), userAgent);
+
+        queue = new CommandQueue();
+        drainScheduled = new AtomicBoolean(false);
+        drainTask = new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        };
+    }
+
+    static synchronized TrackerEngine start(Context appContext) {
+        if (instance == null) {
+            instance = new TrackerEngine(appContext.getApplicationContext());
+        }
+
+        return instance;
+    }
+
+    void enqueue(TrackerCommand command) {
+        queue.offer(command);
+
+        // Only the first producer after a drain needs to wake the tracker thread
+        if (drainScheduled.compareAndSet(false, true)) {
+            handler.post(drainTask);
+        }
+    }
+
+    private void drain() {
+        // Cleared before polling so that a command offered while draining schedules another pass
+        drainScheduled.set(false);
+
+        TrackerCommand command;
+        while ((command = queue.poll()) != null) {
+            try {
+                handler.processCommand(command);
+            } catch (Exception e) {
+                Logger.e(TAG, "Problem processing tracker command: {}", e.getLocalizedMessage());
+            } finally {
+                command.clear();
+            }
+        }
+    }
+}
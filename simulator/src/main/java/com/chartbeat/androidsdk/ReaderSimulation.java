@@ -0,0 +1,175 @@
+package com.chartbeat.androidsdk;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Drives a tracker through a scripted reader session on a {@link VirtualScheduler}.
+ * Each step acts like the app would at the current virtual time, then lets the
+ * tracker run everything due, so hours of reading replay in milliseconds:
+ *
+ * <pre>
+ * sim.trackView("/article").read(60 * SECOND, 3 * SECOND).idle(10 * MINUTE).background();
+ * </pre>
+ */
+final class ReaderSimulation {
+    static final long SECOND = 1000;
+    static final long MINUTE = 60 * SECOND;
+    static final long HOUR = 60 * MINUTE;
+
+    // Tracker pauses once the app has been in the background this long, as on Android
+    private static final long BACKGROUND_PAUSE_DELAY = 4 * SECOND;
+
+    private static final int WINDOW_HEIGHT = 1920;
+    private static final int CONTENT_HEIGHT = 9600;
+    private static final int DOCUMENT_WIDTH = 1080;
+
+    private final VirtualScheduler scheduler = new VirtualScheduler();
+    private final ScriptedTransport transport = new ScriptedTransport(scheduler);
+    private final ChartBeatTracker tracker;
+
+    private boolean inBackground = false;
+    private boolean networkAvailable = true;
+    private String currentViewId;
+    private int maxScrollPosition = 0;
+
+    private final Runnable pauseTracker = new Runnable() {
+        @Override
+        public void run() {
+            tracker.stopTracker();
+        }
+    };
+
+    ReaderSimulation(File offlineQueueDirectory) {
+        TrackerEnvironment environment = new TrackerEnvironment(scheduler, scheduler, new MemoryKeyValueStore(),
+                new NetworkState() {
+                    @Override
+                    public boolean isNetworkAvailable() {
+                        return networkAvailable;
+                    }
+                },
+                new ForegroundState() {
+                    @Override
+                    public boolean isInBackground() {
+                        return inBackground;
+                    }
+                },
+                transport, offlineQueueDirectory);
+
+        tracker = new ChartBeatTracker(new AppInfo("12345", "simulation.chartbeat.com",
+                "com.chartbeat.simulator", DOCUMENT_WIDTH, 1), environment);
+    }
+
+    ReaderSimulation trackView(String viewId) {
+        currentViewId = viewId;
+        maxScrollPosition = 0;
+        tracker.trackViewImpl(viewId, viewId, 0, WINDOW_HEIGHT, CONTENT_HEIGHT, DOCUMENT_WIDTH);
+        scheduler.runPending();
+        return this;
+    }
+
+    ReaderSimulation interact() {
+        tracker.userInteractedImpl();
+        scheduler.runPending();
+        return this;
+    }
+
+    ReaderSimulation type() {
+        tracker.userTypedImpl();
+        scheduler.runPending();
+        return this;
+    }
+
+    ReaderSimulation scrollTo(int position) {
+        maxScrollPosition = Math.max(maxScrollPosition, position);
+        tracker.updateViewDimensions(position, WINDOW_HEIGHT, CONTENT_HEIGHT, DOCUMENT_WIDTH, maxScrollPosition);
+        scheduler.runPending();
+        return this;
+    }
+
+    /**
+     * An engaged reader, interacting once every interactionPeriod for the given time.
+     */
+    ReaderSimulation read(long duration, long interactionPeriod) {
+        long end = scheduler.elapsedMillis() + duration;
+
+        while (scheduler.elapsedMillis() < end) {
+            interact();
+            scheduler.advanceBy(Math.min(interactionPeriod, end - scheduler.elapsedMillis()));
+        }
+
+        return this;
+    }
+
+    /**
+     * The reader keeps the view open without touching it.
+     */
+    ReaderSimulation idle(long duration) {
+        scheduler.advanceBy(duration);
+        return this;
+    }
+
+    ReaderSimulation background() {
+        inBackground = true;
+        tracker.userLeftViewImpl(currentViewId);
+        scheduler.postDelayed(pauseTracker, BACKGROUND_PAUSE_DELAY);
+        scheduler.runPending();
+        return this;
+    }
+
+    /**
+     * Back to the app, which tracks the view it shows again.
+     */
+    ReaderSimulation foreground() {
+        inBackground = false;
+        scheduler.cancel(pauseTracker);
+        return trackView(currentViewId);
+    }
+
+    /**
+     * Connectivity changes, told to the tracker like the Android network monitor does.
+     */
+    ReaderSimulation networkAvailable(boolean available) {
+        boolean wasAvailable = networkAvailable;
+        networkAvailable = available;
+        if (available && !wasAvailable) {
+            tracker.networkRestored();
+        }
+        return this;
+    }
+
+    /**
+     * The server answers with the given code from now on, for the given time.
+     *
+     * @param retryAfterMillis the Retry-After sent along, or {@link PingResult#NO_RETRY_AFTER}
+     */
+    ReaderSimulation serverResponds(int code, long retryAfterMillis, long duration) {
+        long now = scheduler.elapsedMillis();
+        transport.respond(code, retryAfterMillis, now, now + duration);
+        return this;
+    }
+
+    ReaderSimulation serverResponds(int code, long duration) {
+        return serverResponds(code, PingResult.NO_RETRY_AFTER, duration);
+    }
+
+    long elapsedMillis() {
+        return scheduler.elapsedMillis();
+    }
+
+    List<RecordedPing> pings() {
+        return transport.pings();
+    }
+
+    /**
+     * @return the pings received at or after the given time since the start
+     */
+    List<RecordedPing> pingsSince(long time) {
+        List<RecordedPing> pings = transport.pings();
+        int first = 0;
+        while (first < pings.size() && pings.get(first).time < time) {
+            first++;
+        }
+        return pings.subList(first, pings.size());
+    }
+}
@@ -0,0 +1,82 @@
+package com.chartbeat.androidsdk;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A ping as the simulated server received it.
+ */
+final class RecordedPing {
+    /** Milliseconds since the simulation started */
+    final long time;
+    /** Milliseconds since the previous ping, or -1 for the first one */
+    final long sincePrevious;
+    final String query;
+    final int responseCode;
+
+    private final Map<String, String> params;
+
+    RecordedPing(long time, long sincePrevious, String query, int responseCode) {
+        this.time = time;
+        this.sincePrevious = sincePrevious;
+        this.query = query;
+        this.responseCode = responseCode;
+        this.params = parse(query);
+    }
+
+    String get(String key) {
+        return params.get(key);
+    }
+
+    boolean has(String key) {
+        return params.containsKey(key);
+    }
+
+    /**
+     * @return the value of a numeric parameter, or -1 if the ping does not carry it
+     */
+    long getLong(String key) {
+        String value = params.get(key);
+        return value == null ? -1 : Long.parseLong(value);
+    }
+
+    long engagedSeconds() {
+        return getLong(QueryKeys.ENGAGED_SECONDS);
+    }
+
+    long decaySeconds() {
+        return getLong(QueryKeys.DECAY);
+    }
+
+    private static Map<String, String> parse(String query) {
+        Map<String, String> params = new LinkedHashMap<>();
+
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+
+            try {
+                params.put(key, URLDecoder.decode(value, "UTF-8"));
+            } catch (UnsupportedEncodingException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        return params;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%8.1fs %+7.1fs  %d  E=%s e=%s j=%s%s",
+                time / 1000.0,
+                sincePrevious < 0 ? 0 : sincePrevious / 1000.0,
+                responseCode,
+                get(QueryKeys.ENGAGED_SECONDS),
+                get(QueryKeys.ENGAGED_SECONDS_SINCE_LAST_PING),
+                get(QueryKeys.DECAY),
+                has(QueryKeys.QUEUED_PING_TIMESTAMP) ? "  (queued)" : "");
+    }
+}
@@ -0,0 +1,84 @@
+package com.chartbeat.androidsdk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import rx.Observable;
+
+/**
+ * Stands in for the Chartbeat servers. Answers each ping at once with the response
+ * scripted for the current virtual time, 200 by default, and records it.
+ */
+final class ScriptedTransport implements PingTransport {
+    private final VirtualScheduler scheduler;
+    private final List<ResponseWindow> windows = new ArrayList<>();
+    private final List<RecordedPing> pings = new ArrayList<>();
+
+    ScriptedTransport(VirtualScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Answers every ping in [from, until) with the given code, times in
+     * milliseconds since the simulation started.
+     *
+     * @param retryAfterMillis the Retry-After sent along, or {@link PingResult#NO_RETRY_AFTER}
+     */
+    void respond(int code, long retryAfterMillis, long from, long until) {
+        windows.add(new ResponseWindow(code, retryAfterMillis, from, until));
+    }
+
+    List<RecordedPing> pings() {
+        return Collections.unmodifiableList(pings);
+    }
+
+    @Override
+    public boolean isBatching() {
+        return false;
+    }
+
+    @Override
+    public Observable<PingResult> ping(String query) {
+        return Observable.just(receive(query));
+    }
+
+    @Override
+    public Observable<List<PingResult>> pingBatch(List<String> batch) {
+        List<PingResult> results = new ArrayList<>(batch.size());
+        for (String query : batch) {
+            results.add(receive(query));
+        }
+        return Observable.just(results);
+    }
+
+    private PingResult receive(String query) {
+        long now = scheduler.elapsedMillis();
+        PingResult result = new PingResult(200, PingResult.NO_RETRY_AFTER);
+
+        // Later windows take precedence over earlier ones
+        for (ResponseWindow window : windows) {
+            if (now >= window.from && now < window.until) {
+                result = new PingResult(window.code, window.retryAfterMillis);
+            }
+        }
+
+        long sincePrevious = pings.isEmpty() ? -1 : now - pings.get(pings.size() - 1).time;
+        pings.add(new RecordedPing(now, sincePrevious, query, result.code));
+        return result;
+    }
+
+    private static final class ResponseWindow {
+        final int code;
+        final long retryAfterMillis;
+        final long from;
+        final long until;
+
+        ResponseWindow(int code, long retryAfterMillis, long from, long until) {
+            this.code = code;
+            this.retryAfterMillis = retryAfterMillis;
+            this.from = from;
+            this.until = until;
+        }
+    }
+}
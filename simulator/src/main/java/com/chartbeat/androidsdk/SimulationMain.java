@@ -0,0 +1,255 @@
+package com.chartbeat.androidsdk;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.chartbeat.androidsdk.ReaderSimulation.HOUR;
+import static com.chartbeat.androidsdk.ReaderSimulation.MINUTE;
+import static com.chartbeat.androidsdk.ReaderSimulation.SECOND;
+
+/**
+ * Replays the reader sessions below on a virtual clock and checks every ping the
+ * tracker sends: when it went out, its decay and the engaged seconds it carried.
+ * Exits with status 1 if any session differs. Pass -v to print every ping.
+ */
+public final class SimulationMain {
+
+    private SimulationMain() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean verbose = Arrays.asList(args).contains("-v");
+        int failures = 0;
+
+        for (Scenario scenario : scenarios()) {
+            File offlineQueueDirectory = Files.createTempDirectory("chartbeat-simulation").toFile();
+            ReaderSimulation sim = new ReaderSimulation(offlineQueueDirectory);
+            long start = System.nanoTime();
+
+            try {
+                scenario.run(sim);
+                System.out.printf("PASS  %s (%d pings, %d min simulated in %d ms)%n", scenario.name,
+                        sim.pings().size(), sim.elapsedMillis() / MINUTE, (System.nanoTime() - start) / 1000000);
+                if (verbose) {
+                    print(sim.pings());
+                }
+            } catch (AssertionError e) {
+                failures++;
+                System.out.printf("FAIL  %s: %s%n", scenario.name, e.getMessage());
+                print(sim.pings());
+            }
+        }
+
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static List<Scenario> scenarios() {
+        List<Scenario> scenarios = new ArrayList<>();
+
+        scenarios.add(new Scenario("An engaged reader is pinged every 15 seconds") {
+            @Override
+            void run(ReaderSimulation sim) {
+                sim.trackView("/article").read(2 * MINUTE, 3 * SECOND);
+
+                List<RecordedPing> pings = sim.pings();
+                expectTimes(pings, 0, 15, 30, 45, 60, 75, 90, 105, 120);
+                expectEngagedSeconds(pings, 1, 16, 31, 46, 61, 76, 91, 106, 121);
+                // Nothing was engaged before the first ping, so it announced a longer interval
+                expectDecays(pings, 60, 30, 30, 30, 30, 30, 30, 30, 30);
+            }
+        });
+
+        scenarios.add(new Scenario("An idle reader is pinged less and less, then not at all after two hours") {
+            @Override
+            void run(ReaderSimulation sim) {
+                sim.trackView("/article").idle(3 * HOUR);
+
+                List<Long> times = new ArrayList<>(Arrays.asList(0L, 30L, 90L));
+                for (long time = 210; time <= 2 * HOUR / SECOND; time += 120) {
+                    times.add(time);
+                }
+                List<RecordedPing> pings = sim.pings();
+                expectTimes(pings, toArray(times));
+
+                expect(pings.get(0).decaySeconds() == 60 && pings.get(1).decaySeconds() == 120,
+                        "decay doubles with the interval");
+                for (RecordedPing ping : pings.subList(2, pings.size())) {
+                    expect(ping.decaySeconds() == 240, "decay capped at 240s, got " + ping);
+                }
+                for (RecordedPing ping : pings.subList(1, pings.size())) {
+                    expect(ping.engagedSeconds() == 5, "only the first 5s of the view engaged, got " + ping);
+                }
+            }
+        });
+
+        scenarios.add(new Scenario("Scrolling brings an idle reader back to the base interval") {
+            @Override
+            void run(ReaderSimulation sim) {
+                sim.trackView("/first").read(30 * SECOND, 3 * SECOND)
+                        .trackView("/second").scrollTo(2000).idle(20 * SECOND)
+                        .scrollTo(4000).idle(MINUTE);
+
+                List<RecordedPing> pings = sim.pingsSince(30 * SECOND);
+                expectTimes(pings, 30, 30, 45, 65, 95);
+                expectEngagedSeconds(pings, 31, 1, 5, 5, 5);
+                expectDecays(pings, 30, 60, 60, 60, 120);
+                expect("/first".equals(pings.get(0).get(QueryKeys.VIEW_ID)), "last ping of /first before /second");
+                expect("/second".equals(pings.get(1).get(QueryKeys.VIEW_ID)), "/second pinged as soon as tracked");
+            }
+        });
+
+        scenarios.add(new Scenario("The app in the background is not pinged until it comes back") {
+            @Override
+            void run(ReaderSimulation sim) {
+                sim.trackView("/article").read(MINUTE, 3 * SECOND)
+                        .background().idle(10 * MINUTE)
+                        .foreground().read(MINUTE, 3 * SECOND);
+
+                List<RecordedPing> pings = sim.pings();
+                expectTimes(pings, 0, 15, 30, 45, 60, 660, 675, 690, 705, 720);
+                // Coming back enters the view again, which starts counting from scratch
+                expectEngagedSeconds(pings, 1, 16, 31, 46, 61, 1, 16, 31, 46, 61);
+            }
+        });
+
+        scenarios.add(new Scenario("Three 503s in a row suspend pinging for ten minutes") {
+            @Override
+            void run(ReaderSimulation sim) {
+                sim.trackView("/article").read(MINUTE, 3 * SECOND)
+                        .serverResponds(503, 5 * MINUTE)
+                        .read(15 * MINUTE, 5 * SECOND);
+
+                List<RecordedPing> pings = sim.pingsSince(75 * SECOND);
+                expectCodes(pings.subList(0, 4), 503, 503, 503, 200);
+                // Suspended until 105s + 10 minutes, the first regular tick after that pings
+                expectTimes(pings.subList(0, 4), 75, 90, 105, 720);
+                // A 5s engagement window renewed every 5s misses the second it ends on
+                expectEngagedSeconds(pings.subList(0, 4), 75, 89, 103, 717);
+                expect(pings.get(3).getLong(QueryKeys.ENGAGED_SECONDS_SINCE_LAST_PING) == 614,
+                        "engagement during the suspension is reported after it, got " + pings.get(3));
+                expect(pings.size() == 3 + 1 + (960 - 720) / 15, "back to every 15 seconds, got " + pings.size());
+            }
+        });
+
+        scenarios.add(new Scenario("A 503 with Retry-After suspends pinging for the time asked") {
+            @Override
+            void run(ReaderSimulation sim) {
+                sim.trackView("/article").read(30 * SECOND, 3 * SECOND)
+                        .serverResponds(503, 90 * SECOND, MINUTE)
+                        .read(2 * MINUTE, 5 * SECOND);
+
+                List<RecordedPing> pings = sim.pings();
+                expectTimes(pings, 0, 15, 30, 45, 150);
+                expectCodes(pings, 200, 200, 200, 503, 200);
+            }
+        });
+
+        scenarios.add(new Scenario("Pings taken offline are replayed with their original time once back online") {
+            @Override
+            void run(ReaderSimulation sim) {
+                sim.trackView("/article").read(30 * SECOND, 3 * SECOND)
+                        .networkAvailable(false).read(50 * SECOND, 3 * SECOND)
+                        .networkAvailable(true).read(40 * SECOND, 3 * SECOND);
+
+                List<RecordedPing> pings = sim.pings();
+                expectTimes(pings, 0, 15, 30, 80, 80, 80, 80, 95, 110);
+                expectEngagedSeconds(pings, 1, 16, 31, 81, 46, 61, 76, 96, 111);
+
+                long[] queuedAt = {45, 60, 75};
+                for (int i = 0; i < queuedAt.length; i++) {
+                    long timestamp = pings.get(4 + i).getLong(QueryKeys.QUEUED_PING_TIMESTAMP);
+                    expect(timestamp == VirtualScheduler.START_TIME + queuedAt[i] * SECOND,
+                            "queued ping " + i + " taken at " + queuedAt[i] + "s, got " + timestamp);
+                }
+            }
+        });
+
+        return scenarios;
+    }
+
+    private static void print(List<RecordedPing> pings) {
+        System.out.println("      time     gap  code");
+        for (RecordedPing ping : pings) {
+            System.out.println("  " + ping);
+        }
+    }
+
+    private static long[] toArray(List<Long> values) {
+        long[] array = new long[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * A scripted reader session and what the server should have seen from it.
+     */
+    private abstract static class Scenario {
+        final String name;
+
+        Scenario(String name) {
+            this.name = name;
+        }
+
+        abstract void run(ReaderSimulation sim);
+
+        static void expect(boolean condition, String message) {
+            if (!condition) {
+                throw new AssertionError(message);
+            }
+        }
+
+        /**
+         * @param seconds when each ping should have gone out, in seconds since the start
+         */
+        static void expectTimes(List<RecordedPing> pings, long... seconds) {
+            long[] actual = new long[pings.size()];
+            for (int i = 0; i < actual.length; i++) {
+                actual[i] = pings.get(i).time;
+            }
+            long[] expected = new long[seconds.length];
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] = seconds[i] * SECOND;
+            }
+            expectEqual("ping times (ms)", expected, actual);
+        }
+
+        static void expectEngagedSeconds(List<RecordedPing> pings, long... values) {
+            long[] actual = new long[pings.size()];
+            for (int i = 0; i < actual.length; i++) {
+                actual[i] = pings.get(i).engagedSeconds();
+            }
+            expectEqual("engaged seconds", values, actual);
+        }
+
+        static void expectDecays(List<RecordedPing> pings, long... values) {
+            long[] actual = new long[pings.size()];
+            for (int i = 0; i < actual.length; i++) {
+                actual[i] = pings.get(i).decaySeconds();
+            }
+            expectEqual("decays", values, actual);
+        }
+
+        static void expectCodes(List<RecordedPing> pings, long... codes) {
+            long[] actual = new long[pings.size()];
+            for (int i = 0; i < actual.length; i++) {
+                actual[i] = pings.get(i).responseCode;
+            }
+            expectEqual("response codes", codes, actual);
+        }
+
+        private static void expectEqual(String what, long[] expected, long[] actual) {
+            if (!Arrays.equals(expected, actual)) {
+                throw new AssertionError(what + ": expected " + Arrays.toString(expected)
+                        + " but was " + Arrays.toString(actual));
+            }
+        }
+    }
+}
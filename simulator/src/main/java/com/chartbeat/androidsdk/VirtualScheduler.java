@@ -0,0 +1,95 @@
+package com.chartbeat.androidsdk;
+
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+/**
+ * Clock and tracker thread in one, where time only moves when the simulation says so.
+ * Tasks run on the calling thread from {@link #advanceBy(long)}, each at the virtual
+ * time it was due, in the order they were posted when due at the same time.
+ */
+final class VirtualScheduler implements Clock, TaskScheduler {
+    // 2018-01-15 10:00:00 UTC, any fixed start keeps the runs reproducible
+    static final long START_TIME = 1516010400000L;
+
+    private final PriorityQueue<ScheduledTask> tasks = new PriorityQueue<>();
+    private long now = START_TIME;
+    private long postedCount = 0;
+
+    @Override
+    public long currentTimeMillis() {
+        return now;
+    }
+
+    /**
+     * @return milliseconds since the simulation started
+     */
+    long elapsedMillis() {
+        return now - START_TIME;
+    }
+
+    @Override
+    public boolean post(Runnable task) {
+        return postDelayed(task, 0);
+    }
+
+    @Override
+    public boolean postDelayed(Runnable task, long delayMillis) {
+        tasks.add(new ScheduledTask(now + Math.max(0, delayMillis), postedCount++, task));
+        return true;
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+        Iterator<ScheduledTask> iterator = tasks.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().task == task) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public boolean isAlive() {
+        return true;
+    }
+
+    /**
+     * Runs every task due up to now, including those they post without a delay.
+     */
+    void runPending() {
+        advanceBy(0);
+    }
+
+    void advanceBy(long millis) {
+        long until = now + millis;
+
+        while (!tasks.isEmpty() && tasks.peek().dueTime <= until) {
+            ScheduledTask next = tasks.poll();
+            now = next.dueTime;
+            next.task.run();
+        }
+
+        now = until;
+    }
+
+    private static final class ScheduledTask implements Comparable<ScheduledTask> {
+        final long dueTime;
+        final long order;
+        final Runnable task;
+
+        ScheduledTask(long dueTime, long order, Runnable task) {
+            this.dueTime = dueTime;
+            this.order = order;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(ScheduledTask other) {
+            if (dueTime != other.dueTime) {
+                return dueTime < other.dueTime ? -1 : 1;
+            }
+            return order < other.order ? -1 : (order == other.order ? 0 : 1);
+        }
+    }
+}